@@ -0,0 +1,100 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Многопоточные замеры: все потоки работают с одним популярным курсом.
+ * Реализация выбирается параметром {@code engine}; {@code synchronized} —
+ * обычный {@link Course} под общей блокировкой, служащий точкой отсчёта.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentCourseBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+
+    @Param({"synchronized", "concurrent", "stamped"})
+    String engine;
+
+    private Engine course;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        course = Engine.create(engine, size);
+        for (int studentId = 0; studentId < size; studentId++) {
+            course.enroll(studentId);
+        }
+    }
+
+    /**
+     * Собственный диапазон идентификаторов каждого потока.
+     */
+    @State(Scope.Thread)
+    public static class ThreadIds {
+        int base;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentCourseBenchmark benchmark) {
+            base = benchmark.size + benchmark.threads.getAndIncrement() * 1024;
+        }
+
+        int nextId() {
+            next = (next + 1) & 1023;
+            return base + next;
+        }
+    }
+
+    /**
+     * Запись в заполненный курс (в список ожидания) и отмена записи из всех потоков.
+     */
+    @Benchmark
+    @Threads(8)
+    public void enrollUnenroll(ThreadIds ids) {
+        int studentId = ids.nextId();
+        course.enroll(studentId);
+        course.unenroll(studentId);
+    }
+
+    /**
+     * Смешанная нагрузка: один поток меняет состав курса, остальные проверяют наличие мест.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void writer(ThreadIds ids) {
+        int studentId = ids.nextId();
+        course.enroll(studentId);
+        course.unenroll(studentId);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public boolean reader() {
+        return course.isFullyEnrolled();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточные замеры операций над курсом на разных размерах списков.
+ * <p>
+ * Каждая операция составлена так, чтобы размер курса оставался постоянным:
+ * отмена записи сопровождается повторной записью того же студента.
+ * Реализация выбирается параметром {@code engine}, что позволяет сравнивать
+ * варианты хранения на одинаковой нагрузке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CourseBenchmark {
+
+    private static final int RANDOM_IDS = 1 << 16;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+
+    @Param({"course", "concurrent"})
+    String engine;
+
+    private Engine course;
+    private Engine courseWithWaitingList;
+    private Engine courseWithFreeSeat;
+    private int[] randomIds;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        course = Engine.create(engine, size);
+        courseWithWaitingList = Engine.create(engine, size);
+        courseWithFreeSeat = Engine.create(engine, size + 1);
+        for (int studentId = 0; studentId < size; studentId++) {
+            course.enroll(studentId);
+            courseWithFreeSeat.enroll(studentId);
+        }
+        for (int studentId = 0; studentId < 2 * size; studentId++) {
+            courseWithWaitingList.enroll(studentId);
+        }
+        Random random = new Random(42);
+        randomIds = new int[RANDOM_IDS];
+        for (int i = 0; i < RANDOM_IDS; i++) {
+            randomIds[i] = random.nextInt(size);
+        }
+        step = 0;
+    }
+
+    /**
+     * Запись нового студента на последнее свободное место и отмена его записи (конец списка).
+     */
+    @Benchmark
+    public void enrollUnenrollTail() {
+        courseWithFreeSeat.enroll(size);
+        courseWithFreeSeat.unenroll(size);
+    }
+
+    /**
+     * Отмена записи первого студента и его повторная запись в конец списка.
+     */
+    @Benchmark
+    public void unenrollHead() {
+        int studentId = step;
+        step = step + 1 == size ? 0 : step + 1;
+        course.unenroll(studentId);
+        course.enroll(studentId);
+    }
+
+    /**
+     * Отмена записи случайного студента (в среднем — из середины списка) и его повторная запись.
+     */
+    @Benchmark
+    public void unenrollMiddle() {
+        int studentId = randomIds[step];
+        step = (step + 1) & (RANDOM_IDS - 1);
+        course.unenroll(studentId);
+        course.enroll(studentId);
+    }
+
+    /**
+     * Отмена записи первого студента с переводом первого ожидающего;
+     * ушедший студент снова встаёт в конец списка ожидания.
+     */
+    @Benchmark
+    public void promoteFromWaitingList() {
+        int studentId = step;
+        step = step + 1 == 2 * size ? 0 : step + 1;
+        courseWithWaitingList.unenroll(studentId);
+        courseWithWaitingList.enroll(studentId);
+    }
+
+    /**
+     * Полный обход списка записавшихся студентов.
+     */
+    @Benchmark
+    public void iterateEnrollmentList(Blackhole blackhole) {
+        long sum = 0;
+        for (int studentId : course.enrollmentList()) {
+            sum += studentId;
+        }
+        blackhole.consume(sum);
+    }
+}
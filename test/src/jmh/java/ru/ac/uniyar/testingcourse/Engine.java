@@ -0,0 +1,128 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.List;
+
+/**
+ * Общий интерфейс сравниваемых в замерах реализаций курса.
+ */
+interface Engine {
+
+    void enroll(int studentId);
+
+    void unenroll(int studentId);
+
+    boolean isFullyEnrolled();
+
+    List<Integer> enrollmentList();
+
+    /**
+     * Создание курса выбранной реализации.
+     *
+     * @param engine      {@code course} — {@link Course}, {@code synchronized} — {@link Course}
+     *                    под общей блокировкой, {@code concurrent} — {@link ConcurrentCourse},
+     *                    {@code stamped} — {@link StampedCourse}.
+     * @param maxStudents максимальное количество студентов.
+     */
+    static Engine create(String engine, int maxStudents) {
+        switch (engine) {
+            case "course":
+                return new Engine() {
+                    private final Course course = new Course(maxStudents);
+
+                    @Override
+                    public void enroll(int studentId) {
+                        course.enroll(studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int studentId) {
+                        course.unenroll(studentId);
+                    }
+
+                    @Override
+                    public boolean isFullyEnrolled() {
+                        return course.isFullyEnrolled();
+                    }
+
+                    @Override
+                    public List<Integer> enrollmentList() {
+                        return course.getEnrollmentList();
+                    }
+                };
+            case "synchronized":
+                return new Engine() {
+                    private final Course course = new Course(maxStudents);
+
+                    @Override
+                    public synchronized void enroll(int studentId) {
+                        course.enroll(studentId);
+                    }
+
+                    @Override
+                    public synchronized void unenroll(int studentId) {
+                        course.unenroll(studentId);
+                    }
+
+                    @Override
+                    public synchronized boolean isFullyEnrolled() {
+                        return course.isFullyEnrolled();
+                    }
+
+                    @Override
+                    public synchronized List<Integer> enrollmentList() {
+                        return course.getEnrollmentList();
+                    }
+                };
+            case "concurrent":
+                return new Engine() {
+                    private final ConcurrentCourse course = new ConcurrentCourse(maxStudents);
+
+                    @Override
+                    public void enroll(int studentId) {
+                        course.enroll(studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int studentId) {
+                        course.unenroll(studentId);
+                    }
+
+                    @Override
+                    public boolean isFullyEnrolled() {
+                        return course.isFullyEnrolled();
+                    }
+
+                    @Override
+                    public List<Integer> enrollmentList() {
+                        return course.getEnrollmentList();
+                    }
+                };
+            case "stamped":
+                return new Engine() {
+                    private final StampedCourse course = new StampedCourse(maxStudents);
+
+                    @Override
+                    public void enroll(int studentId) {
+                        course.enroll(studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int studentId) {
+                        course.unenroll(studentId);
+                    }
+
+                    @Override
+                    public boolean isFullyEnrolled() {
+                        return course.isFullyEnrolled();
+                    }
+
+                    @Override
+                    public List<Integer> enrollmentList() {
+                        return course.getEnrollmentList();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Неизвестная реализация курса: " + engine);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Последовательность операций над курсами для нагрузочных прогонов
+ * (см. {@link WorkloadGenerator}, {@link WorkloadRunner}).
+ * <p>
+ * Операции хранятся в параллельных массивах примитивов, чтобы сама нагрузка
+ * не создавала объектов во время прогона. Текстовый формат трассы — по одной
+ * операции в строке: буква {@code E} (запись), {@code U} (отмена записи) или
+ * {@code R} (проверка наличия мест), затем идентификатор курса и, кроме
+ * {@code R}, идентификатор студента, разделённые пробелами. Пустые строки
+ * и строки, начинающиеся с {@code #}, пропускаются.
+ */
+public final class Workload {
+
+    public static final byte ENROLL = 0;
+    public static final byte UNENROLL = 1;
+    public static final byte READ = 2;
+
+    private final byte[] types;
+    private final int[] courseIds;
+    private final int[] studentIds;
+    private final int size;
+
+    Workload(byte[] types, int[] courseIds, int[] studentIds, int size) {
+        this.types = types;
+        this.courseIds = courseIds;
+        this.studentIds = studentIds;
+        this.size = size;
+    }
+
+    /**
+     * Чтение трассы.
+     *
+     * @throws IOException если файл не читается или строка трассы некорректна.
+     */
+    public static Workload read(Path trace) throws IOException {
+        Builder builder = new Builder(1024);
+        try (BufferedReader in = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                try {
+                    byte type = parseType(fields[0]);
+                    if (fields.length != (type == READ ? 2 : 3)) {
+                        throw new IOException("Неверное количество полей в строке " + number + ": " + line);
+                    }
+                    builder.add(type, Integer.parseInt(fields[1]), type == READ ? 0 : Integer.parseInt(fields[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Некорректное число в строке " + number + ": " + line, e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Запись трассы в текстовом формате.
+     */
+    public void write(Path trace) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(trace, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < size; i++) {
+                switch (types[i]) {
+                    case ENROLL:
+                        out.write("E " + courseIds[i] + ' ' + studentIds[i]);
+                        break;
+                    case UNENROLL:
+                        out.write("U " + courseIds[i] + ' ' + studentIds[i]);
+                        break;
+                    default:
+                        out.write("R " + courseIds[i]);
+                        break;
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Количество операций.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Тип операции: {@link #ENROLL}, {@link #UNENROLL} или {@link #READ}.
+     */
+    public byte type(int index) {
+        return types[index];
+    }
+
+    public int courseId(int index) {
+        return courseIds[index];
+    }
+
+    /**
+     * Студент операции; для {@link #READ} — 0.
+     */
+    public int studentId(int index) {
+        return studentIds[index];
+    }
+
+    /**
+     * Наибольший идентификатор курса плюс один — сколько курсов нужно цели прогона.
+     */
+    public int courseCount() {
+        int max = -1;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, courseIds[i]);
+        }
+        return max + 1;
+    }
+
+    /**
+     * Количество операций заданного типа.
+     */
+    public int count(byte type) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte parseType(String field) throws IOException {
+        switch (field) {
+            case "E":
+                return ENROLL;
+            case "U":
+                return UNENROLL;
+            case "R":
+                return READ;
+            default:
+                throw new IOException("Неизвестная операция: " + field);
+        }
+    }
+
+    /**
+     * Накопление операций с расширением массивов.
+     */
+    static final class Builder {
+        private byte[] types;
+        private int[] courseIds;
+        private int[] studentIds;
+        private int size;
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            types = new byte[capacity];
+            courseIds = new int[capacity];
+            studentIds = new int[capacity];
+        }
+
+        void add(byte type, int courseId, int studentId) {
+            if (courseId < 0) {
+                throw new IllegalArgumentException("Идентификатор курса не может быть отрицательным: " + courseId);
+            }
+            if (size == types.length) {
+                int capacity = size << 1;
+                types = Arrays.copyOf(types, capacity);
+                courseIds = Arrays.copyOf(courseIds, capacity);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+            }
+            types[size] = type;
+            courseIds[size] = courseId;
+            studentIds[size] = studentId;
+            size++;
+        }
+
+        Workload build() {
+            return new Workload(types, courseIds, studentIds, size);
+        }
+    }
+}
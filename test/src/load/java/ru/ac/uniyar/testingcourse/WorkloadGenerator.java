@@ -0,0 +1,140 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор синтетической нагрузки, похожей на открытие записи на курсы.
+ * <p>
+ * Популярность курсов распределена по закону Ципфа: курс с номером {@code k}
+ * (с нуля) выбирается с вероятностью, пропорциональной {@code 1 / (k + 1)^s}.
+ * Операции смешиваются в заданных долях: запись, отмена записи и проверка
+ * наличия мест. Отмена относится к одной из недавних записей, иначе почти все
+ * отмены приходились бы на незаписанных студентов. С заданной вероятностью
+ * запись повторяется сразу после себя — так клиенты повторяют запрос, не
+ * дождавшись ответа, и курс получает повторные записи.
+ * <p>
+ * Параметры задаются цепочкой вызовов:
+ * <pre>{@code
+ * Workload spike = new WorkloadGenerator(1000, 50_000)
+ *         .zipfExponent(1.2)
+ *         .mix(0.6, 0.1)
+ *         .retryRate(0.05)
+ *         .generate(1_000_000, 42);
+ * }</pre>
+ */
+public class WorkloadGenerator {
+
+    private static final int RECENT_ENROLLMENTS = 4096;
+
+    private final int courses;
+    private final int students;
+    private double zipfExponent = 1.0;
+    private double enrollShare = 0.5;
+    private double unenrollShare = 0.1;
+    private double retryRate;
+
+    /**
+     * Конструктор.
+     *
+     * @param courses  количество курсов.
+     * @param students количество студентов (идентификаторы от 0).
+     */
+    public WorkloadGenerator(int courses, int students) {
+        if (courses <= 0 || students <= 0) {
+            throw new IllegalArgumentException("Количество курсов и студентов должно быть положительным");
+        }
+        this.courses = courses;
+        this.students = students;
+    }
+
+    /**
+     * Показатель распределения Ципфа; 0 — все курсы одинаково популярны.
+     */
+    public WorkloadGenerator zipfExponent(double zipfExponent) {
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("Показатель не может быть отрицательным: " + zipfExponent);
+        }
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    /**
+     * Доли записей и отмен записи; остальное — проверки наличия мест.
+     */
+    public WorkloadGenerator mix(double enrollShare, double unenrollShare) {
+        if (enrollShare < 0 || unenrollShare < 0 || enrollShare + unenrollShare > 1) {
+            throw new IllegalArgumentException("Некорректные доли операций: " + enrollShare + ", " + unenrollShare);
+        }
+        this.enrollShare = enrollShare;
+        this.unenrollShare = unenrollShare;
+        return this;
+    }
+
+    /**
+     * Вероятность того, что запись будет немедленно повторена.
+     */
+    public WorkloadGenerator retryRate(double retryRate) {
+        if (retryRate < 0 || retryRate >= 1) {
+            throw new IllegalArgumentException("Некорректная вероятность повтора: " + retryRate);
+        }
+        this.retryRate = retryRate;
+        return this;
+    }
+
+    /**
+     * Создание нагрузки. Одинаковые параметры и {@code seed} дают одинаковую нагрузку.
+     *
+     * @param operations количество операций без учёта повторов.
+     * @param seed       начальное значение генератора случайных чисел.
+     */
+    public Workload generate(int operations, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] popularity = cumulativePopularity();
+        int[] recentCourses = new int[RECENT_ENROLLMENTS];
+        int[] recentStudents = new int[RECENT_ENROLLMENTS];
+        int recent = 0;
+        Workload.Builder builder = new Workload.Builder(operations + (int) (operations * retryRate * enrollShare) + 16);
+        for (int i = 0; i < operations; i++) {
+            double kind = random.nextDouble();
+            if (kind < enrollShare) {
+                int courseId = pickCourse(popularity, random);
+                int studentId = random.nextInt(students);
+                builder.add(Workload.ENROLL, courseId, studentId);
+                if (random.nextDouble() < retryRate) {
+                    builder.add(Workload.ENROLL, courseId, studentId);
+                }
+                recentCourses[recent % RECENT_ENROLLMENTS] = courseId;
+                recentStudents[recent % RECENT_ENROLLMENTS] = studentId;
+                recent++;
+            } else if (kind < enrollShare + unenrollShare && recent > 0) {
+                int index = random.nextInt(Math.min(recent, RECENT_ENROLLMENTS));
+                builder.add(Workload.UNENROLL, recentCourses[index], recentStudents[index]);
+            } else {
+                builder.add(Workload.READ, pickCourse(popularity, random), 0);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Накопленные вероятности курсов, нормированные к единице.
+     */
+    private double[] cumulativePopularity() {
+        double[] cumulative = new double[courses];
+        double sum = 0;
+        for (int k = 0; k < courses; k++) {
+            sum += 1 / Math.pow(k + 1, zipfExponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < courses; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pickCourse(double[] cumulative, SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Гистограмма длительностей нагрузочного прогона с относительной погрешностью
+ * не более 1/{@value #SUB_BUCKETS}.
+ * <p>
+ * Значения до {@code 2 * 32} учитываются точно, дальше каждый интервал
+ * {@code [2^k, 2^(k+1))} делится на {@value #SUB_BUCKETS} равных частей
+ * (как в HdrHistogram), поэтому перцентиль отличается от истинного не больше
+ * чем на 3%, тогда как {@link LatencyHistogram} со степенями двойки может
+ * ошибиться почти вдвое. Вся шкала до {@link Long#MAX_VALUE} занимает
+ * 1888 счётчиков.
+ * <p>
+ * Гистограмма не потокобезопасна: каждый рабочий поток прогона ведёт свою,
+ * а по окончании они складываются через {@link #add(WorkloadHistogram)}.
+ */
+public final class WorkloadHistogram {
+
+    private static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - 2 - SUB_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long max;
+
+    /**
+     * Учёт одного замера.
+     *
+     * @param nanos длительность в наносекундах; отрицательные значения считаются нулём.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Добавление замеров другой гистограммы.
+     */
+    public void add(WorkloadHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Количество замеров.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Наибольший замер в наносекундах.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Оценка перцентиля сверху: граница интервала, в который он попадает,
+     * но не больше наибольшего замера.
+     *
+     * @param quantile доля от 0 до 1, например 0.99.
+     * @return длительность в наносекундах.
+     */
+    public long getPercentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Номер интервала: значения меньше {@code 2 * 32} — сами себе номер,
+     * у больших номер складывается из порядка и шести старших бит значения.
+     */
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Наибольшее значение, попадающее в интервал.
+     */
+    static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index - (long) shift * SUB_BUCKETS;
+        return sub + 1 == 2 * SUB_BUCKETS && shift == Long.SIZE - 2 - SUB_BITS
+                ? Long.MAX_VALUE : ((sub + 1) << shift) - 1;
+    }
+}
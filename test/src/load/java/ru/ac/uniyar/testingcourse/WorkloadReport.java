@@ -0,0 +1,119 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Locale;
+
+/**
+ * Итоги одного нагрузочного прогона {@link WorkloadRunner}.
+ */
+public final class WorkloadReport {
+
+    private final String scenario;
+    private final int threads;
+    private final double rate;
+    private final long operations;
+    private final long elapsedNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+    private final long allocatedBytes;
+
+    WorkloadReport(String scenario, int threads, double rate, long operations, long elapsedNanos,
+                   WorkloadHistogram latency, long allocatedBytes) {
+        this.scenario = scenario;
+        this.threads = threads;
+        this.rate = rate;
+        this.operations = operations;
+        this.elapsedNanos = elapsedNanos;
+        this.p50Nanos = latency.getPercentile(0.5);
+        this.p99Nanos = latency.getPercentile(0.99);
+        this.p999Nanos = latency.getPercentile(0.999);
+        this.maxNanos = latency.getMax();
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Заданная интенсивность поступления операций в секунду или 0 для закрытой модели
+     * (см. {@link WorkloadRunner}). В открытой модели перцентили включают ожидание
+     * от назначенного момента начала операции.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Пропускная способность, операций в секунду.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Медиана длительности операции (оценка сверху с точностью 3%, см. {@link WorkloadHistogram}).
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    /**
+     * Наибольшая длительность операции (точно).
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Память, выделенная рабочими потоками за прогон, или -1, если JVM
+     * не ведёт такой учёт.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Выделение памяти в байтах на операцию или -1, если оно неизвестно.
+     */
+    public double getAllocatedBytesPerOperation() {
+        return allocatedBytes < 0 || operations == 0 ? -1 : (double) allocatedBytes / operations;
+    }
+
+    /**
+     * Скорость выделения памяти в мегабайтах в секунду или -1, если она неизвестна.
+     */
+    public double getAllocationRate() {
+        return allocatedBytes < 0 || elapsedNanos == 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos / (1 << 20);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%-24s threads=%d rate=%s ops=%d throughput=%.0f ops/s p50=%dns p99=%dns p999=%dns max=%dns alloc=%.1f B/op (%.1f MB/s)",
+                scenario, threads, rate == 0 ? "closed" : String.format(Locale.ROOT, "%.0f/s", rate), operations,
+                getThroughput(), p50Nanos, p99Nanos, p999Nanos, maxNanos,
+                getAllocatedBytesPerOperation(), getAllocationRate());
+    }
+}
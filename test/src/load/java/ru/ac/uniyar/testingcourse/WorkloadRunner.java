@@ -0,0 +1,221 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Прогон нагрузки {@link Workload} на наборе курсов {@link WorkloadTarget}.
+ * <p>
+ * В закрытой модели (без заданной интенсивности) каждый поток начинает следующую
+ * операцию сразу после предыдущей, а операции распределяются между потоками
+ * по кругу (поток {@code t} выполняет операции {@code t, t + threads, ...}).
+ * Такой прогон измеряет пропускную способность, но не задержки под нагрузкой:
+ * пока медленная операция занимает поток, новые операции просто не поступают,
+ * и задержка, которую почувствовали бы ожидающие клиенты, в замеры не попадает.
+ * <p>
+ * В открытой модели задаётся интенсивность поступления {@code rate} операций
+ * в секунду: операция {@code i} должна начаться в момент {@code i / rate} от
+ * начала прогона, её берёт первый свободный поток, а длительность отсчитывается
+ * от назначенного момента, а не от фактического начала. Если цель не успевает,
+ * время ожидания свободного потока входит в замер, как для реального клиента.
+ * <p>
+ * В обеих моделях при одном потоке трасса воспроизводится строго в записанном
+ * порядке. Длительность каждой операции учитывается в {@link WorkloadHistogram}
+ * своего потока, выделение памяти — по счётчикам рабочих потоков JVM (если они доступны).
+ * <p>
+ * Запуск из командной строки (задача Gradle {@code runWorkload}, исходники
+ * нагрузочного стенда лежат в отдельном наборе {@code load}), параметры вида {@code имя=значение}:
+ * <pre>
+ * engines=course,bitmap,stamped,concurrent,registry  реализации для сравнения
+ * threads=4 seats=30 warmup=1                        потоки, места на курсе, прогревочные прогоны
+ * rate=100000                                        открытая модель с заданной интенсивностью, операций в секунду
+ * trace=путь                                         воспроизвести трассу вместо синтетической нагрузки
+ * operations=1000000 courses=1000 students=100000    параметры синтетической нагрузки
+ * zipf=1.1 enroll=0.6 unenroll=0.1 retry=0.05 seed=1
+ * </pre>
+ */
+public final class WorkloadRunner {
+
+    /**
+     * Ожидание короче этого выполняется без засыпания: точность {@link LockSupport#parkNanos}
+     * порядка десятков микросекунд.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private WorkloadRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Параметр должен иметь вид имя=значение: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        Workload workload;
+        String scenario;
+        if (options.containsKey("trace")) {
+            workload = Workload.read(Paths.get(options.get("trace")));
+            scenario = "trace";
+        } else {
+            workload = new WorkloadGenerator(intOption(options, "courses", 1000), intOption(options, "students", 100_000))
+                    .zipfExponent(doubleOption(options, "zipf", 1.1))
+                    .mix(doubleOption(options, "enroll", 0.6), doubleOption(options, "unenroll", 0.1))
+                    .retryRate(doubleOption(options, "retry", 0.05))
+                    .generate(intOption(options, "operations", 1_000_000), intOption(options, "seed", 1));
+            scenario = "zipf";
+        }
+        int threads = intOption(options, "threads", Runtime.getRuntime().availableProcessors());
+        int seats = intOption(options, "seats", 30);
+        int warmup = intOption(options, "warmup", 1);
+        double rate = doubleOption(options, "rate", 0);
+        int courses = workload.courseCount();
+        for (String engine : options.getOrDefault("engines", "course,bitmap,stamped,concurrent,registry").split(",")) {
+            for (int i = 0; i < warmup; i++) {
+                run(scenario, workload, WorkloadTarget.create(engine, courses, seats), threads, rate);
+            }
+            System.out.println(run(scenario + "/" + engine, workload, WorkloadTarget.create(engine, courses, seats), threads, rate));
+        }
+    }
+
+    /**
+     * Выполнение всех операций нагрузки в закрытой модели.
+     *
+     * @see #run(String, Workload, WorkloadTarget, int, double)
+     */
+    public static WorkloadReport run(String scenario, Workload workload, WorkloadTarget target, int threads)
+            throws InterruptedException {
+        return run(scenario, workload, target, threads, 0);
+    }
+
+    /**
+     * Выполнение всех операций нагрузки.
+     *
+     * @param scenario название прогона для отчёта.
+     * @param workload нагрузка.
+     * @param target   курсы; должны существовать все курсы, упомянутые в нагрузке.
+     * @param threads  количество рабочих потоков.
+     * @param rate     интенсивность поступления операций в секунду для открытой модели;
+     *                 0 — закрытая модель.
+     * @throws IllegalStateException если операция завершилась исключением.
+     */
+    public static WorkloadReport run(String scenario, Workload workload, WorkloadTarget target, int threads, double rate)
+            throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threads);
+        }
+        if (!(rate >= 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Интенсивность должна быть неотрицательным числом: " + rate);
+        }
+        double interval = rate == 0 ? 0 : 1e9 / rate;
+        AtomicInteger next = new AtomicInteger();
+        long[] origin = new long[1];
+        WorkloadHistogram latency = new WorkloadHistogram();
+        LongAdder allocated = new LongAdder();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) threadBean : null;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    long id = Thread.currentThread().getId();
+                    long before = allocations != null ? allocations.getThreadAllocatedBytes(id) : 0;
+                    WorkloadHistogram own = new WorkloadHistogram();
+                    if (interval == 0) {
+                        for (int i = first; i < workload.size(); i += threads) {
+                            long begin = System.nanoTime();
+                            apply(workload, i, target);
+                            own.record(System.nanoTime() - begin);
+                        }
+                    } else {
+                        int i;
+                        while ((i = next.getAndIncrement()) < workload.size()) {
+                            long intended = origin[0] + (long) (i * interval);
+                            awaitStart(intended);
+                            apply(workload, i, target);
+                            own.record(System.nanoTime() - intended);
+                        }
+                    }
+                    if (allocations != null) {
+                        allocated.add(allocations.getThreadAllocatedBytes(id) - before);
+                    }
+                    synchronized (latency) {
+                        latency.add(own);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "workload-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        origin[0] = begin;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (failure.get() != null) {
+            throw new IllegalStateException("Операция нагрузки завершилась ошибкой", failure.get());
+        }
+        return new WorkloadReport(scenario, threads, rate, workload.size(), elapsed, latency,
+                allocations != null ? allocated.sum() : -1);
+    }
+
+    /**
+     * Ожидание назначенного момента начала операции; опоздавшая операция начинается сразу.
+     */
+    private static void awaitStart(long intended) {
+        long wait;
+        while ((wait = intended - System.nanoTime()) > 0) {
+            if (wait > SPIN_NANOS) {
+                LockSupport.parkNanos(wait - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private static void apply(Workload workload, int index, WorkloadTarget target) {
+        int courseId = workload.courseId(index);
+        switch (workload.type(index)) {
+            case Workload.ENROLL:
+                target.enroll(courseId, workload.studentId(index));
+                break;
+            case Workload.UNENROLL:
+                target.unenroll(courseId, workload.studentId(index));
+                break;
+            default:
+                target.hasFreeSeat(courseId);
+                break;
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
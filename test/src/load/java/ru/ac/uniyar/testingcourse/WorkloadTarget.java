@@ -0,0 +1,133 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Набор курсов, к которому применяется нагрузка {@link WorkloadRunner}.
+ * Реализации должны допускать вызовы из нескольких потоков.
+ */
+public interface WorkloadTarget {
+
+    void enroll(int courseId, int studentId);
+
+    void unenroll(int courseId, int studentId);
+
+    /**
+     * Проверка наличия свободных мест — типичный запрос страницы курса.
+     */
+    boolean hasFreeSeat(int courseId);
+
+    /**
+     * Создание набора курсов выбранной реализации.
+     *
+     * @param engine  {@code course} — {@link Course} под блокировкой каждого курса,
+     *                {@code bitmap} — то же с {@link RosterStorage#BITMAP},
+     *                {@code stamped} — {@link StampedCourse}, {@code concurrent} —
+     *                {@link ConcurrentCourse}, {@code registry} — {@link CourseRegistry}.
+     * @param courses количество курсов (идентификаторы от 0).
+     * @param seats   количество мест на каждом курсе.
+     */
+    static WorkloadTarget create(String engine, int courses, int seats) {
+        switch (engine) {
+            case "course":
+            case "bitmap": {
+                RosterStorage storage = engine.equals("bitmap") ? RosterStorage.BITMAP : RosterStorage.ORDERED;
+                Course[] targets = new Course[courses];
+                for (int i = 0; i < courses; i++) {
+                    targets[i] = new Course(seats, storage);
+                }
+                return new WorkloadTarget() {
+                    @Override
+                    public void enroll(int courseId, int studentId) {
+                        Course course = targets[courseId];
+                        synchronized (course) {
+                            course.enroll(studentId);
+                        }
+                    }
+
+                    @Override
+                    public void unenroll(int courseId, int studentId) {
+                        Course course = targets[courseId];
+                        synchronized (course) {
+                            course.unenroll(studentId);
+                        }
+                    }
+
+                    @Override
+                    public boolean hasFreeSeat(int courseId) {
+                        Course course = targets[courseId];
+                        synchronized (course) {
+                            return !course.isFullyEnrolled();
+                        }
+                    }
+                };
+            }
+            case "stamped": {
+                StampedCourse[] targets = new StampedCourse[courses];
+                for (int i = 0; i < courses; i++) {
+                    targets[i] = new StampedCourse(seats);
+                }
+                return new WorkloadTarget() {
+                    @Override
+                    public void enroll(int courseId, int studentId) {
+                        targets[courseId].enroll(studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int courseId, int studentId) {
+                        targets[courseId].unenroll(studentId);
+                    }
+
+                    @Override
+                    public boolean hasFreeSeat(int courseId) {
+                        return !targets[courseId].isFullyEnrolled();
+                    }
+                };
+            }
+            case "concurrent": {
+                ConcurrentCourse[] targets = new ConcurrentCourse[courses];
+                for (int i = 0; i < courses; i++) {
+                    targets[i] = new ConcurrentCourse(seats);
+                }
+                return new WorkloadTarget() {
+                    @Override
+                    public void enroll(int courseId, int studentId) {
+                        targets[courseId].enroll(studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int courseId, int studentId) {
+                        targets[courseId].unenroll(studentId);
+                    }
+
+                    @Override
+                    public boolean hasFreeSeat(int courseId) {
+                        return !targets[courseId].isFullyEnrolled();
+                    }
+                };
+            }
+            case "registry": {
+                CourseRegistry registry = new CourseRegistry();
+                for (int i = 0; i < courses; i++) {
+                    registry.createCourse(i, seats);
+                }
+                return new WorkloadTarget() {
+                    @Override
+                    public void enroll(int courseId, int studentId) {
+                        registry.enroll(courseId, studentId);
+                    }
+
+                    @Override
+                    public void unenroll(int courseId, int studentId) {
+                        registry.unenroll(courseId, studentId);
+                    }
+
+                    @Override
+                    public boolean hasFreeSeat(int courseId) {
+                        return !registry.read(courseId, Course::isFullyEnrolled);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Неизвестная реализация курса: " + engine);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты генератора нагрузки, трасс и нагрузочного прогона.
+ */
+public class WorkloadTest {
+
+    /**
+     * Сгенерированная нагрузка соответствует заданным долям операций и распределению популярности
+     */
+    @Test
+    void generatorFollowsMixAndZipf() {
+        int operations = 200_000;
+        Workload workload = new WorkloadGenerator(100, 10_000)
+                .zipfExponent(1.0)
+                .mix(0.5, 0.2)
+                .retryRate(0.1)
+                .generate(operations, 5);
+        assertThat(workload.size()).withFailMessage("Повторы должны добавлять операции")
+                .isBetween(operations + operations / 25, operations + operations / 15);
+        assertThat(workload.count(Workload.UNENROLL)).withFailMessage("Неверная доля отмен записи")
+                .isBetween(operations / 5 - operations / 50, operations / 5 + operations / 50);
+        int[] perCourse = new int[100];
+        int retries = 0;
+        for (int i = 0; i < workload.size(); i++) {
+            perCourse[workload.courseId(i)]++;
+            if (i > 0 && workload.type(i) == Workload.ENROLL && workload.type(i - 1) == Workload.ENROLL
+                    && workload.courseId(i) == workload.courseId(i - 1) && workload.studentId(i) == workload.studentId(i - 1)) {
+                retries++;
+            }
+        }
+        assertThat(retries).withFailMessage("Нет повторных записей").isGreaterThan(operations / 25);
+        // при s = 1 первый курс популярнее десятого примерно в десять раз
+        assertThat((double) perCourse[0] / perCourse[9]).withFailMessage("Популярность не соответствует закону Ципфа").isBetween(7.0, 13.0);
+        Workload same = new WorkloadGenerator(100, 10_000).zipfExponent(1.0).mix(0.5, 0.2).retryRate(0.1).generate(operations, 5);
+        assertThat(same.size()).withFailMessage("Нагрузка должна определяться начальным значением").isEqualTo(workload.size());
+    }
+
+    /**
+     * Трасса записывается и читается без потерь, некорректные строки отклоняются
+     */
+    @Test
+    void traceRoundTrip(@TempDir Path directory) throws IOException {
+        Workload workload = new WorkloadGenerator(10, 100).retryRate(0.2).generate(1000, 3);
+        Path trace = directory.resolve("trace.txt");
+        workload.write(trace);
+        Workload replayed = Workload.read(trace);
+        assertThat(replayed.size()).withFailMessage("Неверное количество операций").isEqualTo(workload.size());
+        for (int i = 0; i < workload.size(); i++) {
+            assertThat(replayed.type(i)).withFailMessage("Неверный тип операции").isEqualTo(workload.type(i));
+            assertThat(replayed.courseId(i)).withFailMessage("Неверный курс").isEqualTo(workload.courseId(i));
+            assertThat(replayed.studentId(i)).withFailMessage("Неверный студент").isEqualTo(workload.studentId(i));
+        }
+        Path broken = directory.resolve("broken.txt");
+        Files.write(broken, Arrays.asList("# opening minute", "E 1 5", "X 1 5"), StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> Workload.read(broken)).isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Однопоточный прогон трассы воспроизводит её в точности, отчёт учитывает все операции
+     */
+    @Test
+    void runnerReplaysTrace(@TempDir Path directory) throws Exception {
+        Path trace = directory.resolve("trace.txt");
+        Files.write(trace, Arrays.asList("E 0 1", "E 0 2", "E 0 2", "E 0 3", "R 0", "U 0 1", "E 1 7"), StandardCharsets.UTF_8);
+        Workload workload = Workload.read(trace);
+        Course[] courses = {new Course(2), new Course(2)};
+        WorkloadTarget target = new WorkloadTarget() {
+            @Override
+            public void enroll(int courseId, int studentId) {
+                courses[courseId].enroll(studentId);
+            }
+
+            @Override
+            public void unenroll(int courseId, int studentId) {
+                courses[courseId].unenroll(studentId);
+            }
+
+            @Override
+            public boolean hasFreeSeat(int courseId) {
+                return !courses[courseId].isFullyEnrolled();
+            }
+        };
+        WorkloadReport report = WorkloadRunner.run("trace", workload, target, 1);
+        assertThat(courses[0].getEnrollmentArray()).withFailMessage("Трасса воспроизведена неверно").containsExactly(2, 3);
+        assertThat(courses[1].getEnrollmentArray()).withFailMessage("Трасса воспроизведена неверно").containsExactly(7);
+        assertThat(report.getOperations()).withFailMessage("Учтены не все операции").isEqualTo(7);
+        assertThat(report.getP999Nanos()).withFailMessage("Перцентили должны быть упорядочены").isGreaterThanOrEqualTo(report.getP50Nanos());
+        assertThat(report.getThroughput()).withFailMessage("Пропускная способность должна быть положительной").isPositive();
+    }
+
+    /**
+     * Многопоточный прогон синтетической нагрузки на всех реализациях
+     */
+    @Test
+    void runnerComparesEngines() throws Exception {
+        Workload workload = new WorkloadGenerator(50, 5_000).zipfExponent(1.2).generate(20_000, 11);
+        for (String engine : new String[]{"course", "bitmap", "stamped", "concurrent", "registry"}) {
+            WorkloadReport report = WorkloadRunner.run(engine, workload, WorkloadTarget.create(engine, workload.courseCount(), 20), 4);
+            assertThat(report.getOperations()).withFailMessage("Учтены не все операции: " + engine).isEqualTo(workload.size());
+            assertThat(report.toString()).withFailMessage("Отчёт должен содержать название прогона").startsWith(engine);
+        }
+        assertThatThrownBy(() -> WorkloadTarget.create("unknown", 1, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Открытая модель выдерживает заданную интенсивность и учитывает ожидание
+     * операций, которые цель не успела начать вовремя
+     */
+    @Test
+    void openLoopMeasuresFromIntendedStart() throws Exception {
+        Workload workload = new WorkloadGenerator(1, 100).mix(1, 0).generate(20, 1);
+        WorkloadTarget slow = new WorkloadTarget() {
+            @Override
+            public void enroll(int courseId, int studentId) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void unenroll(int courseId, int studentId) {
+            }
+
+            @Override
+            public boolean hasFreeSeat(int courseId) {
+                return true;
+            }
+        };
+        // операции назначены раз в 1 мс, а каждая длится не меньше 2 мс: последняя
+        // начнётся не раньше чем через 38 мс вместо назначенных 19 мс
+        WorkloadReport open = WorkloadRunner.run("open", workload, slow, 1, 1000);
+        assertThat(open.getRate()).withFailMessage("Отчёт должен содержать интенсивность").isEqualTo(1000);
+        assertThat(open.getMaxNanos()).withFailMessage("Ожидание опоздавших операций не учтено")
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(21));
+        assertThat(open.toString()).withFailMessage("Отчёт должен содержать интенсивность").contains("rate=1000/s");
+
+        Workload fast = new WorkloadGenerator(10, 1000).generate(100, 2);
+        WorkloadReport paced = WorkloadRunner.run("paced", fast, WorkloadTarget.create("course", fast.courseCount(), 5), 2, 10_000);
+        assertThat(paced.getElapsedNanos()).withFailMessage("Операции должны поступать не быстрее заданной интенсивности")
+                .isGreaterThanOrEqualTo(TimeUnit.MICROSECONDS.toNanos(9_900));
+        assertThat(paced.getOperations()).withFailMessage("Учтены не все операции").isEqualTo(fast.size());
+        assertThatThrownBy(() -> WorkloadRunner.run("bad", fast, slow, 1, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Перцентили гистограммы прогона отличаются от истинных не больше чем на 1/32
+     */
+    @Test
+    void histogramHasSubBucketPrecision() {
+        WorkloadHistogram histogram = new WorkloadHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        long[] quantiles = {50_000_000, 99_000_000, 99_900_000};
+        assertThat(histogram.getPercentile(0.5)).withFailMessage("Неточная медиана").isBetween(quantiles[0], quantiles[0] + quantiles[0] / 32);
+        assertThat(histogram.getPercentile(0.99)).withFailMessage("Неточный 99-й перцентиль").isBetween(quantiles[1], quantiles[1] + quantiles[1] / 32);
+        assertThat(histogram.getPercentile(0.999)).withFailMessage("Неточный 99,9-й перцентиль").isBetween(quantiles[2], quantiles[2] + quantiles[2] / 32);
+        assertThat(histogram.getPercentile(1)).withFailMessage("Перцентиль не должен превышать максимум").isEqualTo(100_000_000);
+        for (long value : new long[]{0, 1, 63, 64, 65, 1000, 1L << 40, Long.MAX_VALUE}) {
+            int index = WorkloadHistogram.index(value);
+            assertThat(WorkloadHistogram.upperBound(index)).withFailMessage("Значение вне своего интервала: " + value).isGreaterThanOrEqualTo(value);
+            assertThat(index == 0 || WorkloadHistogram.upperBound(index - 1) < value).withFailMessage("Интервалы пересекаются: " + value).isTrue();
+        }
+        WorkloadHistogram other = new WorkloadHistogram();
+        other.record(Long.MAX_VALUE);
+        histogram.add(other);
+        assertThat(histogram.getCount()).withFailMessage("Сложение потеряло замеры").isEqualTo(100_001);
+        assertThat(histogram.getMax()).withFailMessage("Сложение потеряло максимум").isEqualTo(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Поведение курса при уменьшении максимального количества студентов
+ * ниже числа уже записавшихся (см. {@link Course#setMaxStudents(int)}).
+ */
+public enum CapacityReductionPolicy {
+    /**
+     * Записавшиеся остаются на курсе; новые студенты попадают в список
+     * ожидания, а освободившиеся места не занимаются, пока записавшихся
+     * не станет меньше нового максимума.
+     */
+    BLOCK_NEW,
+    /**
+     * Лишние студенты, записавшиеся последними, переводятся в начало списка
+     * ожидания в порядке записи и первыми вернутся на курс при появлении мест.
+     * При хранении {@link RosterStorage#BITMAP} порядок записи не известен,
+     * и переводятся студенты с наибольшими идентификаторами.
+     */
+    DEMOTE_LATEST
+}
@@ -0,0 +1,306 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасный вариант {@link Course} с тем же набором операций.
+ * <p>
+ * Места на курсе учитываются счётчиком, который изменяется через CAS:
+ * студент сначала резервирует место и лишь затем регистрируется, поэтому
+ * записавшихся никогда не бывает больше {@code maxStudents}. Каждый студент
+ * представлен единственной записью в {@link ConcurrentHashMap}, состояние
+ * которой (записан, ожидает, удалён) также меняется через CAS, — это исключает
+ * повторную запись. Список ожидания — неблокирующая очередь
+ * {@link ConcurrentLinkedQueue}; удаление студента из её середины лишь
+ * помечает запись удалённой, а такие записи пропускаются при переводе.
+ * <p>
+ * Каждая операция, освобождающая место или пополняющая список ожидания,
+ * завершается попыткой перевода студентов из очереди, поэтому после окончания
+ * всех конкурирующих вызовов не остаётся ситуации «есть свободное место и есть
+ * ожидающий студент».
+ * <p>
+ * Список ожидания обслуживается по порядку: место, освобождённое при удалении
+ * записавшегося студента, передаётся первому ожидающему без возврата в счётчик,
+ * а новый студент при непустом списке ожидания встаёт в его конец, даже если
+ * в этот момент есть свободное место.
+ */
+public class ConcurrentCourse {
+
+    private static final int ENROLLED = 1;
+    private static final int WAITING = 2;
+    private static final int REMOVED = 3;
+
+    private final int maxStudents;
+    private final AtomicInteger seats = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Entry> students = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> waitingQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleEntries = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * Конструктор.
+     *
+     * @param maxStudents максимальное количество студентов.
+     */
+    public ConcurrentCourse(int maxStudents) {
+        this.maxStudents = maxStudents;
+    }
+
+    /**
+     * Запись студента на курс. Если курс полностью заполнен,
+     * студент помещается в список ожидания.
+     *
+     * @param studentId идентификатор записываемого студента.
+     */
+    public void enroll(int studentId) {
+        if (students.containsKey(studentId)) {
+            return;
+        }
+        if (waiting.get() == 0 && tryReserveSeat()) {
+            Entry entry = new Entry(studentId, ENROLLED, sequence.incrementAndGet());
+            if (students.putIfAbsent(studentId, entry) != null) {
+                releaseSeat();
+            }
+            return;
+        }
+        Entry entry = new Entry(studentId, WAITING, sequence.incrementAndGet());
+        waiting.incrementAndGet();
+        if (students.putIfAbsent(studentId, entry) != null) {
+            waiting.decrementAndGet();
+            return;
+        }
+        waitingQueue.offer(entry);
+        promote();
+    }
+
+    /**
+     * Удаление студента из числа записавшихся/помещённых в список ожидания.
+     *
+     * @param studentId идентификатор удаляемого студента.
+     */
+    public void unenroll(int studentId) {
+        Entry entry = students.get(studentId);
+        if (entry == null) {
+            return;
+        }
+        while (true) {
+            int state = entry.state;
+            if (state == REMOVED) {
+                return;
+            }
+            if (entry.compareAndSet(state, REMOVED)) {
+                students.remove(studentId, entry);
+                if (state == WAITING) {
+                    waiting.decrementAndGet();
+                    if (staleEntries.incrementAndGet() > waiting.get() + 64) {
+                        sweep();
+                    }
+                } else {
+                    releaseSeat();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Проверка, что студент записан на курс.
+     *
+     * @param studentId идентификатор студента.
+     */
+    public boolean isEnrolled(int studentId) {
+        Entry entry = students.get(studentId);
+        return entry != null && entry.state == ENROLLED;
+    }
+
+    /**
+     * Проверка, что студент находится в списке ожидания.
+     *
+     * @param studentId идентификатор студента.
+     */
+    public boolean isWaiting(int studentId) {
+        Entry entry = students.get(studentId);
+        return entry != null && entry.state == WAITING;
+    }
+
+    /**
+     * Проверка, что на курс записалось максимально возможное количество студентов.
+     * Места, зарезервированные выполняющимися в этот момент операциями, считаются занятыми.
+     */
+    public boolean isFullyEnrolled() {
+        return seats.get() == maxStudents;
+    }
+
+    /**
+     * Проверка, что список ожидания для курса не пуст.
+     */
+    public boolean hasWaitingList() {
+        return waiting.get() > 0;
+    }
+
+    /**
+     * Получение снимка списка записавшихся студентов в порядке записи.
+     * Снимок не отражает последующих изменений.
+     */
+    public List<Integer> getEnrollmentList() {
+        List<Entry> enrolled = new ArrayList<>();
+        for (Entry entry : students.values()) {
+            if (entry.state == ENROLLED) {
+                enrolled.add(entry);
+            }
+        }
+        enrolled.sort((a, b) -> Long.compare(a.order, b.order));
+        List<Integer> result = new ArrayList<>(enrolled.size());
+        for (Entry entry : enrolled) {
+            result.add(entry.studentId);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Получение снимка списка ожидания.
+     * Снимок не отражает последующих изменений.
+     */
+    public List<Integer> getWaitingList() {
+        List<Integer> result = new ArrayList<>();
+        for (Entry entry : waitingQueue) {
+            if (entry.state == WAITING) {
+                result.add(entry.studentId);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Получение снимка списка записавшихся студентов в виде массива.
+     */
+    public int[] getEnrollmentArray() {
+        return getEnrollmentList().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Получение снимка списка ожидания в виде массива.
+     */
+    public int[] getWaitingArray() {
+        return getWaitingList().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Получение максимально возможного кол-ва студентов в курсе
+     *
+     * @return количество студентов в курсе
+     */
+    public int getMaxStudents() {
+        return maxStudents;
+    }
+
+    private boolean tryReserveSeat() {
+        while (true) {
+            int taken = seats.get();
+            if (taken >= maxStudents) {
+                return false;
+            }
+            if (seats.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождение занятого места: оно сразу передаётся первому живому студенту
+     * из очереди, поэтому конкурирующая запись не может занять его в обход
+     * списка ожидания. Только если очередь пуста, место возвращается в счётчик.
+     */
+    private void releaseSeat() {
+        Entry entry;
+        while ((entry = waitingQueue.poll()) != null) {
+            entry.order = sequence.incrementAndGet();
+            if (entry.compareAndSet(WAITING, ENROLLED)) {
+                waiting.decrementAndGet();
+                return;
+            }
+            staleEntries.decrementAndGet();
+        }
+        seats.decrementAndGet();
+        promote();
+    }
+
+    /**
+     * Перевод студентов из очереди на свободные места. Место резервируется
+     * до извлечения студента из очереди; если живых записей в очереди
+     * не нашлось, резерв снимается и очередь проверяется повторно, чтобы
+     * не упустить студента, добавленного, пока место было зарезервировано.
+     */
+    private void promote() {
+        while (!waitingQueue.isEmpty()) {
+            if (!tryReserveSeat()) {
+                return;
+            }
+            boolean promoted = false;
+            Entry entry;
+            while (!promoted && (entry = waitingQueue.poll()) != null) {
+                entry.order = sequence.incrementAndGet();
+                if (entry.compareAndSet(WAITING, ENROLLED)) {
+                    waiting.decrementAndGet();
+                    promoted = true;
+                } else {
+                    staleEntries.decrementAndGet();
+                }
+            }
+            if (!promoted) {
+                seats.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Очистка очереди от записей студентов, покинувших список ожидания.
+     * Счётчик таких записей приблизителен и служит лишь для выбора момента очистки.
+     */
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            staleEntries.set(0);
+            for (Iterator<Entry> it = waitingQueue.iterator(); it.hasNext(); ) {
+                if (it.next().state != WAITING) {
+                    it.remove();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static final class Entry {
+
+        private static final AtomicIntegerFieldUpdater<Entry> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        final int studentId;
+        volatile int state;
+        volatile long order;
+
+        Entry(int studentId, int state, long order) {
+            this.studentId = studentId;
+            this.state = state;
+            this.order = order;
+        }
+
+        boolean compareAndSet(int expected, int updated) {
+            return STATE.compareAndSet(this, expected, updated);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package ru.ac.uniyar.testingcourse;
 
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Класс предназначен для учёта студентов, записанных на учебный курс.
@@ -13,12 +15,60 @@ import java.util.List;
  * студента из списка записавшихся, а список ожидания не пуст, то первый студент
  * из него перемещается в список записавшихся. Каждый студент может быть
  * записан не более одного раза.
+ * <p>
+ * Оба списка хранятся в {@link IntOrderedSet} — упорядоченных множествах
+ * примитивных идентификаторов: проверка принадлежности и удаление из середины
+ * выполняются за O(1), а запись и отмена записи не упаковывают идентификаторы
+ * в {@link Integer}.
+ * <p>
+ * Если курсу назначен {@link EnrollmentEventDispatcher}, каждое изменение
+ * списков публикуется как {@link EnrollmentEvent} с возрастающим номером.
+ * Если назначены {@link CourseMetrics}, изменения учитываются в счётчиках,
+ * а длительности {@link #enroll(int)} и {@link #unenroll(int)} — в гистограммах.
+ * Если назначены {@link CourseGauges}, в них поддерживаются текущие размеры списков.
+ * <p>
+ * Порядок перевода из списка ожидания задаётся {@link PromotionPolicy}
+ * (по умолчанию — строгая очередь). Для других политик курс дополнительно
+ * ведёт {@link IndexedIntHeap} ожидающих студентов, поэтому выбор следующего
+ * и уход из списка ожидания стоят O(log n).
+ * <p>
+ * Список записавшихся хранится либо в {@link IntOrderedSet} (в порядке записи),
+ * либо, для плотных диапазонов идентификаторов, в сжатой битовой карте
+ * {@link StudentBitmap} (см. {@link RosterStorage}); составы курсов можно
+ * пересекать и объединять через {@link #getEnrollmentBitmap()}.
+ * <p>
+ * {@link #snapshot()} за O(1) возвращает неизменяемый {@link RosterSnapshot}
+ * обоих списков, который можно читать без блокировок параллельно с изменениями курса.
+ * <p>
+ * Если курсу назначено {@link TimerWheel}, пребывание в списке ожидания
+ * может быть ограничено сроком ({@link #setWaitingTtl(long, TimeUnit)}), а перевод
+ * из списка ожидания — оформляться как предложение места, которое студент должен
+ * подтвердить ({@link #confirm(int)}) в течение {@link #setOfferTimeout(long, TimeUnit)};
+ * иначе место переходит к следующему ожидающему. Пока предложение не подтверждено,
+ * студент занимает место и считается записанным.
  */
 public class Course {
 
     private int maxStudents;
-    private LinkedList<Integer> enrollList = new LinkedList<>();
-    private LinkedList<Integer> waitingList = new LinkedList<>();
+    private final RosterStorage storage;
+    private final IntRoster enrollList;
+    private IntOrderedSet waitingList = new IntOrderedSet(true);
+    private EnrollmentEventDispatcher events;
+    private int eventCourseId;
+    private CourseMetrics metrics;
+    private CourseGauges gauges;
+    private long eventSequence;
+    private long version;
+    private PromotionPolicy promotionPolicy = PromotionPolicy.FIFO;
+    private IndexedIntHeap promotionQueue;
+    private long waitingSequence;
+    private long demotionSequence;
+    private CapacityReductionPolicy capacityReductionPolicy = CapacityReductionPolicy.BLOCK_NEW;
+    private TimerWheel timers;
+    private TimerWheel.Target expiry;
+    private IntIntHashMap deadlines;
+    private long waitingTtlNanos;
+    private long offerTimeoutNanos;
 
     /**
      * Конструктор.
@@ -26,7 +76,72 @@ public class Course {
      * @param maxStudents максимальное количество студентов.
      */
     public Course(int maxStudents) {
+        this(maxStudents, RosterStorage.ORDERED);
+    }
+
+    /**
+     * Конструктор курса с заданным способом хранения списка записавшихся.
+     *
+     * @param maxStudents максимальное количество студентов.
+     * @param storage     способ хранения списка записавшихся.
+     */
+    public Course(int maxStudents, RosterStorage storage) {
         this.maxStudents = maxStudents;
+        this.storage = storage;
+        this.enrollList = storage == RosterStorage.BITMAP ? new StudentBitmap() : new IntOrderedSet();
+    }
+
+    /**
+     * Восстановление курса с заданным содержимым списков (например, из снимка).
+     *
+     * @param maxStudents максимальное количество студентов.
+     * @param enrolled    записавшиеся студенты в порядке записи.
+     * @param waiting     список ожидания в порядке очереди.
+     */
+    static Course restore(int maxStudents, int[] enrolled, int[] waiting) {
+        return restore(maxStudents, RosterStorage.ORDERED, enrolled, waiting);
+    }
+
+    /**
+     * Восстановление курса с заданным способом хранения списка записавшихся.
+     */
+    static Course restore(int maxStudents, RosterStorage storage, int[] enrolled, int[] waiting) {
+        Course course = new Course(maxStudents, storage);
+        course.reserve(enrolled.length, waiting.length);
+        for (int studentId : enrolled) {
+            course.restoreEnrolled(studentId);
+        }
+        for (int studentId : waiting) {
+            course.restoreWaiting(studentId);
+        }
+        return course;
+    }
+
+    /**
+     * Подготовка места в списках при восстановлении курса.
+     */
+    void reserve(int enrolled, int waiting) {
+        enrollList.ensureCapacity(enrolled);
+        waitingList.ensureCapacity(waiting);
+    }
+
+    /**
+     * Добавление записавшегося студента при восстановлении курса, без проверки
+     * вместимости и без событий.
+     *
+     * @return false, если студент уже есть в одном из списков.
+     */
+    boolean restoreEnrolled(int studentId) {
+        return !waitingList.contains(studentId) && enrollList.add(studentId);
+    }
+
+    /**
+     * Добавление студента в конец списка ожидания при восстановлении курса.
+     *
+     * @return false, если студент уже есть в одном из списков.
+     */
+    boolean restoreWaiting(int studentId) {
+        return !enrollList.contains(studentId) && waitingList.add(studentId);
     }
 
     /**
@@ -36,13 +151,19 @@ public class Course {
      * @param studentId идентификатор записываемого студента.
      */
     public void enroll(int studentId) {
+        CourseMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
         if (enrollList.contains(studentId) || waitingList.contains(studentId)) {
-            return;
-        }
-        if (isFullyEnrolled()) {
-            waitingList.add(studentId);
+            recordDuplicate();
+        } else if (isFullyEnrolled()) {
+            addWaiting(studentId);
+            changed(EnrollmentEvent.Type.WAITLISTED, studentId);
         } else {
             enrollList.add(studentId);
+            changed(EnrollmentEvent.Type.ENROLLED, studentId);
+        }
+        if (metrics != null) {
+            metrics.getEnrollLatency().record(System.nanoTime() - start);
         }
     }
 
@@ -52,22 +173,312 @@ public class Course {
      * @param studentId идентификатор удаляемого студента.
      */
     public void unenroll(int studentId) {
-        if (waitingList.contains(studentId)) {
-            waitingList.remove((Object) studentId);
+        CourseMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (removeWaiting(studentId)) {
+            changed(EnrollmentEvent.Type.UNENROLLED, studentId);
+        } else if (enrollList.remove(studentId)) {
+            cancelDeadline(studentId);
+            changed(EnrollmentEvent.Type.UNENROLLED, studentId);
+            if (hasWaitingList() && enrollList.size() < maxStudents) {
+                promote();
+            }
+        }
+        if (metrics != null) {
+            metrics.getUnenrollLatency().record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Назначение счётчиков, в которых учитывается работа курса.
+     *
+     * @param metrics счётчики или null, чтобы отключить учёт.
+     */
+    public void setMetrics(CourseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Назначение показателей, в которых курс поддерживает текущие размеры своих списков.
+     *
+     * @param gauges показатели или null, чтобы перестать их обновлять.
+     */
+    public void setGauges(CourseGauges gauges) {
+        this.gauges = gauges;
+        if (gauges != null) {
+            gauges.update(this);
+        }
+    }
+
+    /**
+     * Назначение политики перевода из списка ожидания. Приоритеты студентов,
+     * уже находящихся в списке ожидания, вычисляются заново, при равных
+     * приоритетах сохраняется их текущий порядок.
+     *
+     * @param promotionPolicy политика; {@link PromotionPolicy#FIFO} — строгая очередь.
+     */
+    public void setPromotionPolicy(PromotionPolicy promotionPolicy) {
+        this.promotionPolicy = promotionPolicy;
+        if (promotionPolicy == PromotionPolicy.FIFO) {
+            promotionQueue = null;
+            return;
+        }
+        promotionQueue = new IndexedIntHeap();
+        waitingSequence = 0;
+        for (int studentId : waitingList.toArray()) {
+            promotionQueue.add(studentId, promotionPolicy.priority(studentId), waitingSequence++);
+        }
+    }
+
+    /**
+     * Текущая политика перевода из списка ожидания.
+     */
+    public PromotionPolicy getPromotionPolicy() {
+        return promotionPolicy;
+    }
+
+    /**
+     * Назначение диспетчера событий об изменении списков курса.
+     *
+     * @param events   диспетчер или null, чтобы перестать публиковать события.
+     * @param courseId идентификатор курса в событиях; по нему подписчики
+     *                 различают курсы, обслуживаемые одним диспетчером.
+     */
+    public void setEventDispatcher(EnrollmentEventDispatcher events, int courseId) {
+        this.events = events;
+        this.eventCourseId = courseId;
+    }
+
+    /**
+     * Запись группы студентов на курс. Результат совпадает с поочерёдным
+     * вызовом {@link #enroll(int)} для каждого идентификатора, но число
+     * свободных мест вычисляется один раз: они заполняются первыми студентами
+     * группы, остальные в порядке следования попадают в список ожидания.
+     * Повторы внутри группы и уже записанные студенты пропускаются.
+     *
+     * @param studentIds идентификаторы записываемых студентов.
+     */
+    public void enrollAll(int[] studentIds) {
+        int freeSeats = Math.max(maxStudents - enrollList.size(), 0);
+        enrollList.ensureCapacity(Math.min(freeSeats, studentIds.length));
+        for (int studentId : studentIds) {
+            if (waitingList.contains(studentId)) {
+                recordDuplicate();
+                continue;
+            }
+            if (freeSeats > 0) {
+                if (enrollList.add(studentId)) {
+                    freeSeats--;
+                    changed(EnrollmentEvent.Type.ENROLLED, studentId);
+                } else {
+                    recordDuplicate();
+                }
+            } else if (!enrollList.contains(studentId)) {
+                addWaiting(studentId);
+                changed(EnrollmentEvent.Type.WAITLISTED, studentId);
+            } else {
+                recordDuplicate();
+            }
         }
-        if (enrollList.contains(studentId)) {
-            enrollList.remove((Object) studentId);
-            if (hasWaitingList()) {
-                enrollList.add(waitingList.removeFirst());
+    }
+
+    /**
+     * Удаление группы студентов. Сначала все студенты группы удаляются
+     * из обоих списков, затем освободившиеся места за один проход занимают
+     * следующие по очереди студенты из списка ожидания.
+     *
+     * @param studentIds идентификаторы удаляемых студентов.
+     */
+    public void unenrollAll(int[] studentIds) {
+        int freedSeats = 0;
+        for (int studentId : studentIds) {
+            if (removeWaiting(studentId)) {
+                changed(EnrollmentEvent.Type.UNENROLLED, studentId);
+            } else if (enrollList.remove(studentId)) {
+                cancelDeadline(studentId);
+                freedSeats++;
+                changed(EnrollmentEvent.Type.UNENROLLED, studentId);
             }
         }
+        if (freedSeats > 0) {
+            promoteToCapacity();
+        }
+    }
+
+    /**
+     * Изменение максимального количества студентов. При увеличении освободившиеся
+     * места за один проход занимают следующие по очереди студенты из списка
+     * ожидания. При уменьшении ниже числа записавшихся действует
+     * {@link #getCapacityReductionPolicy()}. Стоимость пропорциональна числу
+     * переведённых студентов, а не размеру списков.
+     *
+     * @param maxStudents новое максимальное количество студентов.
+     * @return студенты, переведённые между списками: при увеличении — в порядке
+     * перевода на курс, при уменьшении — начиная с записавшегося последним.
+     */
+    public int[] setMaxStudents(int maxStudents) {
+        this.maxStudents = maxStudents;
+        if (gauges != null) {
+            gauges.update(this);
+        }
+        int enrolled = enrollList.size();
+        if (enrolled < maxStudents) {
+            return promoteToCapacity();
+        }
+        if (enrolled == maxStudents || capacityReductionPolicy != CapacityReductionPolicy.DEMOTE_LATEST) {
+            return new int[0];
+        }
+        int[] demoted = enrollList.removeLast(enrolled - maxStudents);
+        waitingList.ensureFrontCapacity(demoted.length);
+        for (int studentId : demoted) {
+            cancelDeadline(studentId);
+            waitingList.addFirst(studentId);
+            if (promotionQueue != null) {
+                promotionQueue.add(studentId, promotionPolicy.priority(studentId), --demotionSequence);
+            }
+            scheduleDeadline(studentId, waitingTtlNanos);
+            changed(EnrollmentEvent.Type.DEMOTED, studentId);
+        }
+        return demoted;
+    }
+
+    /**
+     * Назначение поведения при уменьшении числа мест ниже числа записавшихся.
+     * По умолчанию — {@link CapacityReductionPolicy#BLOCK_NEW}.
+     */
+    public void setCapacityReductionPolicy(CapacityReductionPolicy capacityReductionPolicy) {
+        this.capacityReductionPolicy = capacityReductionPolicy;
+    }
+
+    public CapacityReductionPolicy getCapacityReductionPolicy() {
+        return capacityReductionPolicy;
+    }
+
+    /**
+     * Назначение колеса таймеров, отсчитывающего сроки курса. Колесо не
+     * потокобезопасно: одно колесо может обслуживать любое количество курсов,
+     * только если все они изменяются и колесо продвигается в одном потоке или
+     * под одной блокировкой. Курсы {@link CourseRegistry} получают колёса
+     * реестра (см. {@link CourseRegistry#enableDeadlines(long, TimeUnit)}).
+     *
+     * @param timers колесо или null, чтобы отключить сроки.
+     * @throws IllegalStateException если у курса есть неистёкшие сроки.
+     */
+    public void setTimerWheel(TimerWheel timers) {
+        setTimerWheel(timers, this::expired);
+    }
+
+    /**
+     * Назначение колеса таймеров с собственным получателем истёкших сроков,
+     * который должен вызвать {@link #expire(int, boolean)} с {@code fired = true}.
+     */
+    void setTimerWheel(TimerWheel timers, TimerWheel.Target expiry) {
+        if (deadlines != null && deadlines.size() > 0) {
+            throw new IllegalStateException("У курса есть неистёкшие сроки");
+        }
+        this.timers = timers;
+        this.expiry = timers == null ? null : expiry;
+        if (timers == null) {
+            waitingTtlNanos = 0;
+            offerTimeoutNanos = 0;
+        }
+    }
+
+    /**
+     * Срок пребывания в списке ожидания для студентов, помещаемых в него после вызова.
+     * По истечении срока студент удаляется из списка ожидания
+     * с событием {@link EnrollmentEvent.Type#EXPIRED}.
+     *
+     * @param ttl  срок; 0 — без ограничения.
+     * @param unit единица измерения срока.
+     * @throws IllegalStateException если курсу не назначено колесо таймеров.
+     */
+    public void setWaitingTtl(long ttl, TimeUnit unit) {
+        waitingTtlNanos = deadlineNanos(ttl, unit);
+    }
+
+    /**
+     * Срок подтверждения перевода из списка ожидания. Переведённый студент сразу
+     * занимает место, но должен вызвать {@link #confirm(int)} в течение срока, иначе
+     * он удаляется с курса с событием {@link EnrollmentEvent.Type#EXPIRED},
+     * а место предлагается следующему ожидающему.
+     *
+     * @param timeout срок; 0 — перевод не требует подтверждения.
+     * @param unit    единица измерения срока.
+     * @throws IllegalStateException если курсу не назначено колесо таймеров.
+     */
+    public void setOfferTimeout(long timeout, TimeUnit unit) {
+        offerTimeoutNanos = deadlineNanos(timeout, unit);
+    }
+
+    /**
+     * Подтверждение предложенного места.
+     *
+     * @param studentId идентификатор переведённого студента.
+     * @return false, если студенту не предлагалось место или срок уже истёк.
+     */
+    public boolean confirm(int studentId) {
+        if (!isOffered(studentId)) {
+            return false;
+        }
+        cancelDeadline(studentId);
+        return true;
+    }
+
+    /**
+     * Проверка, что студенту предложено место, которое он ещё не подтвердил.
+     */
+    public boolean isOffered(int studentId) {
+        return deadlines != null && deadlines.containsKey(studentId) && enrollList.contains(studentId);
+    }
+
+    /**
+     * Проверка, что студент записан на курс.
+     *
+     * @param studentId идентификатор студента.
+     */
+    public boolean isEnrolled(int studentId) {
+        return enrollList.contains(studentId);
+    }
+
+    /**
+     * Проверка, что студент находится в списке ожидания.
+     *
+     * @param studentId идентификатор студента.
+     */
+    public boolean isWaiting(int studentId) {
+        return waitingList.contains(studentId);
+    }
+
+    /**
+     * Позиция студента в списке ожидания (с нуля) в порядке постановки в очередь,
+     * как в {@link #getWaitingList()}. Выполняется за O(log n) независимо от того,
+     * сколько студентов покинуло очередь перед ним. При политике перевода,
+     * отличной от {@link PromotionPolicy#FIFO}, порядок перевода может отличаться.
+     *
+     * @param studentId идентификатор студента.
+     * @return позиция или -1, если студента нет в списке ожидания.
+     */
+    public int waitingPosition(int studentId) {
+        return waitingList.indexOf(studentId);
+    }
+
+    /**
+     * Студент, находящийся на заданной позиции списка ожидания. Выполняется за O(log n).
+     *
+     * @param position позиция (с нуля).
+     * @return идентификатор студента.
+     * @throws IndexOutOfBoundsException если позиция вне списка ожидания.
+     */
+    public int waitingStudentAt(int position) {
+        return waitingList.get(position);
     }
 
     /**
      * Проверка, что на курс записалось максимально возможное количество студентов.
      */
     public boolean isFullyEnrolled() {
-        return enrollList.size() == maxStudents;
+        return enrollList.size() >= maxStudents;
     }
 
     /**
@@ -78,19 +489,313 @@ public class Course {
     }
 
     /**
-     * Получение списка записавшихся студентов.
+     * Количество записавшихся студентов.
+     */
+    public int getEnrolledCount() {
+        return enrollList.size();
+    }
+
+    /**
+     * Длина списка ожидания.
+     */
+    public int getWaitingCount() {
+        return waitingList.size();
+    }
+
+    /**
+     * Получение списка записавшихся студентов. Список является неизменяемым
+     * представлением: элементы упаковываются только при обращении к ним.
      */
     public List<Integer> getEnrollmentList() {
-        return Collections.unmodifiableList(enrollList);
+        return enrollList.asList();
     }
 
     /**
-     * Получение списка ожидания.
+     * Получение списка ожидания. Список является неизменяемым
+     * представлением: элементы упаковываются только при обращении к ним.
      */
     public List<Integer> getWaitingList() {
-        return Collections.unmodifiableList(waitingList);
+        return waitingList.asList();
+    }
+
+    /**
+     * Получение копии списка записавшихся студентов в виде массива.
+     */
+    public int[] getEnrollmentArray() {
+        return enrollList.toArray();
+    }
+
+    /**
+     * Получение копии списка ожидания в виде массива.
+     */
+    public int[] getWaitingArray() {
+        return waitingList.toArray();
+    }
+
+    /**
+     * Неизменяемый снимок обоих списков за O(1). Снимок разделяет с курсом
+     * внутренние массивы; курс копирует их только при изменениях, затрагивающих
+     * видимые снимку позиции. Сам вызов, как и остальные методы курса, не должен
+     * выполняться одновременно с его изменением, а чтение полученного снимка — может.
+     */
+    public RosterSnapshot snapshot() {
+        return new RosterSnapshot(maxStudents, version, enrollList.snapshot(), waitingList.snapshot());
+    }
+
+    /**
+     * Способ хранения списка записавшихся.
+     */
+    public RosterStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Неизменяемая битовая карта записавшихся студентов для пересечения и
+     * объединения составов курсов. При хранении {@link RosterStorage#BITMAP}
+     * это снимок внутренней карты (стоимость пропорциональна числу блоков),
+     * иначе карта строится за O(n).
+     */
+    public StudentBitmap getEnrollmentBitmap() {
+        if (enrollList instanceof StudentBitmap) {
+            return ((StudentBitmap) enrollList).snapshot();
+        }
+        StudentBitmap bitmap = new StudentBitmap();
+        enrollList.forEach(bitmap::add);
+        return bitmap.snapshot();
+    }
+
+    /**
+     * Обход записавшихся студентов в порядке записи (при хранении
+     * {@link RosterStorage#BITMAP} — по возрастанию идентификаторов) без упаковки и копирования.
+     * Курс нельзя изменять во время обхода.
+     */
+    public void forEachEnrolled(IntConsumer action) {
+        enrollList.forEach(action);
+    }
+
+    /**
+     * Обход списка ожидания по порядку без упаковки и копирования.
+     * Курс нельзя изменять во время обхода.
+     */
+    public void forEachWaiting(IntConsumer action) {
+        waitingList.forEach(action);
+    }
+
+    /**
+     * Копирование списка записавшихся студентов в готовый массив.
+     *
+     * @param dst    массив назначения.
+     * @param offset позиция в массиве, с которой начинается запись.
+     * @return количество скопированных идентификаторов.
+     * @throws IndexOutOfBoundsException если список не помещается в массив.
+     */
+    public int copyEnrolledTo(int[] dst, int offset) {
+        return enrollList.copyTo(dst, offset);
+    }
+
+    /**
+     * Копирование списка ожидания в готовый массив.
+     *
+     * @param dst    массив назначения.
+     * @param offset позиция в массиве, с которой начинается запись.
+     * @return количество скопированных идентификаторов.
+     * @throws IndexOutOfBoundsException если список не помещается в массив.
+     */
+    public int copyWaitingTo(int[] dst, int offset) {
+        return waitingList.copyTo(dst, offset);
+    }
+
+    /**
+     * Поток записавшихся студентов в порядке {@link #forEachEnrolled(IntConsumer)}. Поток делится для
+     * параллельной обработки по участкам внутреннего массива; курс нельзя
+     * изменять, пока поток не обработан.
+     */
+    public IntStream enrolledStream() {
+        return StreamSupport.intStream(enrollList.spliterator(), false);
+    }
+
+    /**
+     * Поток студентов из списка ожидания по порядку (см. {@link #enrolledStream()}).
+     */
+    public IntStream waitingStream() {
+        return StreamSupport.intStream(waitingList.spliterator(), false);
+    }
+
+
+    /**
+     * Перевод первого студента из списка ожидания в список записавшихся.
+     */
+    private int promote() {
+        int studentId;
+        if (promotionQueue != null) {
+            studentId = promotionQueue.poll();
+            waitingList.remove(studentId);
+        } else {
+            studentId = waitingList.removeFirst();
+        }
+        cancelDeadline(studentId);
+        enrollList.add(studentId);
+        scheduleDeadline(studentId, offerTimeoutNanos);
+        changed(EnrollmentEvent.Type.PROMOTED, studentId);
+        return studentId;
+    }
+
+    /**
+     * Перевод из списка ожидания на все свободные места.
+     *
+     * @return переведённые студенты в порядке перевода.
+     */
+    private int[] promoteToCapacity() {
+        int[] promoted = new int[Math.max(Math.min(maxStudents - enrollList.size(), waitingList.size()), 0)];
+        enrollList.ensureCapacity(promoted.length);
+        for (int i = 0; i < promoted.length; i++) {
+            promoted[i] = promote();
+        }
+        return promoted;
+    }
+
+    /**
+     * Студент, который будет переведён из списка ожидания следующим, за O(1):
+     * голова очереди или вершина кучи приоритетов.
+     *
+     * @throws java.util.NoSuchElementException если список ожидания пуст.
+     */
+    int peekPromotion() {
+        return promotionQueue != null ? promotionQueue.peek() : waitingList.first();
+    }
+
+    /**
+     * Следующие {@code count} студентов, которые будут переведены из списка ожидания.
+     */
+    int[] nextPromotions(int count) {
+        if (promotionQueue != null) {
+            return promotionQueue.top(count);
+        }
+        int[] result = new int[Math.min(count, waitingList.size())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = waitingList.get(i);
+        }
+        return result;
+    }
+
+    private void addWaiting(int studentId) {
+        waitingList.add(studentId);
+        if (promotionQueue != null) {
+            promotionQueue.add(studentId, promotionPolicy.priority(studentId), waitingSequence++);
+        }
+        scheduleDeadline(studentId, waitingTtlNanos);
+    }
+
+    private boolean removeWaiting(int studentId) {
+        if (!waitingList.remove(studentId)) {
+            return false;
+        }
+        if (promotionQueue != null) {
+            promotionQueue.remove(studentId);
+        }
+        cancelDeadline(studentId);
+        return true;
+    }
+
+    private long deadlineNanos(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Срок не может быть отрицательным: " + duration);
+        }
+        if (duration > 0 && timers == null) {
+            throw new IllegalStateException("Курсу не назначено колесо таймеров");
+        }
+        return unit.toNanos(duration);
+    }
+
+    private void scheduleDeadline(int studentId, long delayNanos) {
+        if (delayNanos == 0) {
+            return;
+        }
+        if (deadlines == null) {
+            deadlines = new IntIntHashMap();
+        }
+        deadlines.put(studentId, timers.schedule(expiry, studentId, delayNanos));
     }
 
+    private void cancelDeadline(int studentId) {
+        if (deadlines == null) {
+            return;
+        }
+        int timer = deadlines.remove(studentId);
+        if (timer >= 0) {
+            timers.cancel(timer);
+        }
+    }
+
+    private void expired(int studentId) {
+        expire(studentId, true);
+    }
+
+    /**
+     * Истечение срока: студент покидает список ожидания либо теряет
+     * неподтверждённое место, которое переходит к следующему ожидающему.
+     *
+     * @param fired истёк ли срок по таймеру (таймер уже освобождён колесом);
+     *              иначе срок истекает досрочно (например, при воспроизведении журнала)
+     *              и таймер, если он есть, отменяется.
+     * @return false, если студента нет ни в одном из списков.
+     */
+    boolean expire(int studentId, boolean fired) {
+        if (fired) {
+            deadlines.remove(studentId);
+        } else {
+            cancelDeadline(studentId);
+        }
+        if (removeWaiting(studentId)) {
+            changed(EnrollmentEvent.Type.EXPIRED, studentId);
+            return true;
+        }
+        if (enrollList.remove(studentId)) {
+            changed(EnrollmentEvent.Type.EXPIRED, studentId);
+            if (hasWaitingList() && enrollList.size() < maxStudents) {
+                promote();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Отмена всех неистёкших сроков курса, например перед его удалением из реестра.
+     */
+    void cancelDeadlines() {
+        if (deadlines == null || deadlines.size() == 0) {
+            return;
+        }
+        for (int studentId : enrollList.toArray()) {
+            cancelDeadline(studentId);
+        }
+        for (int studentId : waitingList.toArray()) {
+            cancelDeadline(studentId);
+        }
+    }
+
+    private void recordDuplicate() {
+        if (metrics != null) {
+            metrics.recordDuplicate();
+        }
+    }
+
+    /**
+     * Учёт изменения списков в метриках и показателях и публикация события.
+     */
+    private void changed(EnrollmentEvent.Type type, int studentId) {
+        version++;
+        if (metrics != null) {
+            metrics.recordChange(type);
+        }
+        if (gauges != null) {
+            gauges.update(this);
+        }
+        if (events != null) {
+            events.publish(new EnrollmentEvent(eventCourseId, type, studentId, ++eventSequence));
+        }
+    }
 
     /**
      * Получение максимально возможного кол-ва студентов в курсе
@@ -0,0 +1,85 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельный подсчёт сводных показателей {@link CourseStatistics} по набору
+ * снимков курсов. Набор делится пополам, пока части не станут меньше
+ * {@value #LEAF_SIZE} курсов; каждая часть считается в своей задаче fork-join
+ * со своим частичным итогом, а итоги объединяются при слиянии задач. Списки
+ * курсов не копируются: нужны лишь размеры, которые снимок хранит готовыми.
+ * Для курсов реестра см. {@link CourseRegistry#analyze(int)}.
+ */
+public final class CourseAnalytics {
+
+    static final int LEAF_SIZE = 1024;
+
+    private CourseAnalytics() {
+    }
+
+    /**
+     * Подсчёт в общем пуле fork-join.
+     *
+     * @param courses снимки курсов по идентификаторам.
+     * @param topN    сколько самых длинных списков ожидания вернуть.
+     */
+    public static CourseStatistics analyze(Map<Integer, RosterSnapshot> courses, int topN) {
+        return analyze(courses, topN, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Подсчёт в заданном пуле fork-join.
+     *
+     * @param courses снимки курсов по идентификаторам.
+     * @param topN    сколько самых длинных списков ожидания вернуть.
+     * @param pool    пул, в котором выполняются задачи.
+     */
+    public static CourseStatistics analyze(Map<Integer, RosterSnapshot> courses, int topN, ForkJoinPool pool) {
+        int[] ids = new int[courses.size()];
+        RosterSnapshot[] rosters = new RosterSnapshot[ids.length];
+        int i = 0;
+        for (Map.Entry<Integer, RosterSnapshot> entry : courses.entrySet()) {
+            ids[i] = entry.getKey();
+            rosters[i] = entry.getValue();
+            i++;
+        }
+        return pool.invoke(new Task(ids, rosters, 0, ids.length, topN)).toStatistics();
+    }
+
+    private static final class Task extends RecursiveTask<CourseStatistics.Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] ids;
+        private final RosterSnapshot[] rosters;
+        private final int from;
+        private final int to;
+        private final int topN;
+
+        Task(int[] ids, RosterSnapshot[] rosters, int from, int to, int topN) {
+            this.ids = ids;
+            this.rosters = rosters;
+            this.from = from;
+            this.to = to;
+            this.topN = topN;
+        }
+
+        @Override
+        protected CourseStatistics.Accumulator compute() {
+            if (to - from <= LEAF_SIZE) {
+                CourseStatistics.Accumulator accumulator = new CourseStatistics.Accumulator(topN);
+                for (int i = from; i < to; i++) {
+                    RosterSnapshot roster = rosters[i];
+                    accumulator.add(ids[i], roster.getMaxStudents(), roster.getEnrolledCount(), roster.getWaitingCount());
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            Task left = new Task(ids, rosters, from, middle, topN);
+            left.fork();
+            CourseStatistics.Accumulator right = new Task(ids, rosters, middle, to, topN).compute();
+            return left.join().merge(right);
+        }
+    }
+}
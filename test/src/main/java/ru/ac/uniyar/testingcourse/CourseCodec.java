@@ -0,0 +1,292 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Компактное двоичное представление курса для передачи между сервисами.
+ * <p>
+ * Формат: байт версии, максимальное количество студентов, затем раздел
+ * записавшихся — их количество и идентификаторы по возрастанию в виде разностей
+ * соседних значений (первое значение — целиком), затем раздел ожидающих — их
+ * количество и идентификаторы в порядке очереди в виде разностей с предыдущим.
+ * Все числа записываются как varint по 7 бит в байте; знаковые значения —
+ * в zigzag-кодировании. При плотных идентификаторах большинство разностей
+ * занимает один байт.
+ * <p>
+ * Порядок записи студентов на курс при кодировании не сохраняется: после
+ * декодирования записавшиеся перечисляются по возрастанию идентификаторов.
+ * Очередь ожидания восстанавливается в исходном порядке.
+ * <p>
+ * Количество студентов в каждом из списков ограничено {@value #MAX_STUDENTS}.
+ * Записавшихся может быть больше, чем мест, — так бывает после уменьшения
+ * числа мест с {@link CapacityReductionPolicy#BLOCK_NEW}; такой курс
+ * кодируется и восстанавливается как есть.
+ */
+public final class CourseCodec {
+
+    static final int VERSION = 1;
+    /**
+     * Наибольшее количество студентов в списке записавшихся или ожидающих.
+     */
+    public static final int MAX_STUDENTS = 1 << 24;
+    /**
+     * Сколько места в списках выделяется заранее при чтении из канала, где размер
+     * оставшихся данных неизвестен; дальше списки растут по мере чтения.
+     */
+    private static final int CHANNEL_RESERVE = 1 << 16;
+
+    private CourseCodec() {
+    }
+
+    /**
+     * Верхняя граница размера закодированного курса в байтах.
+     */
+    public static int maxEncodedSize(Course course) {
+        return 1 + 3 * 5 + 5 * (course.getEnrolledCount() + course.getWaitingCount());
+    }
+
+    /**
+     * Запись курса в буфер, начиная с его текущей позиции.
+     *
+     * @throws BufferOverflowException если курс не помещается в буфер
+     *                                 (см. {@link #maxEncodedSize(Course)}).
+     * @throws IllegalArgumentException если в списке больше {@value #MAX_STUDENTS} студентов.
+     */
+    public static void encode(Course course, ByteBuffer out) {
+        try {
+            encode(course, new Sink(out, null));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Запись курса в канал через буфер произвольного размера: буфер
+     * сбрасывается в канал по мере заполнения и по окончании записи.
+     *
+     * @param buffer промежуточный буфер; его прежнее содержимое не сохраняется.
+     * @throws IllegalArgumentException если курс нельзя закодировать (см. {@link #encode(Course, ByteBuffer)}).
+     */
+    public static void encode(Course course, WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        Sink sink = new Sink(buffer, out);
+        encode(course, sink);
+        sink.drain();
+    }
+
+    /**
+     * Чтение курса из буфера, начиная с его текущей позиции.
+     *
+     * @throws IOException если данные повреждены или обрываются.
+     */
+    public static Course decode(ByteBuffer in) throws IOException {
+        return decode(new Source(in, null));
+    }
+
+    /**
+     * Чтение курса из канала через буфер произвольного размера. Буфер должен
+     * быть в режиме чтения (изначально — пустым, например после {@code limit(0)});
+     * прочитанные из канала байты следующего курса остаются в нём, поэтому
+     * несколько курсов подряд читаются с одним и тем же буфером.
+     *
+     * @throws IOException если данные повреждены или канал закончился раньше курса.
+     */
+    public static Course decode(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        return decode(new Source(buffer, in));
+    }
+
+    private static void encode(Course course, Sink out) throws IOException {
+        int enrolledCount = course.getEnrolledCount();
+        int waitingCount = course.getWaitingCount();
+        if (enrolledCount > MAX_STUDENTS || waitingCount > MAX_STUDENTS) {
+            throw new IllegalArgumentException("Слишком много студентов для кодирования: " + Math.max(enrolledCount, waitingCount));
+        }
+        int[] ids = new int[Math.max(enrolledCount, waitingCount)];
+        out.put((byte) VERSION);
+        out.putVarLong(zigzag(course.getMaxStudents()));
+
+        course.copyEnrolledTo(ids, 0);
+        Arrays.sort(ids, 0, enrolledCount);
+        out.putVarLong(enrolledCount);
+        long previous = 0;
+        for (int i = 0; i < enrolledCount; i++) {
+            out.putVarLong(i == 0 ? zigzag(ids[0]) : ids[i] - previous - 1);
+            previous = ids[i];
+        }
+
+        course.copyWaitingTo(ids, 0);
+        out.putVarLong(waitingCount);
+        previous = 0;
+        for (int i = 0; i < waitingCount; i++) {
+            out.putVarLong(zigzag(ids[i] - previous));
+            previous = ids[i];
+        }
+    }
+
+    private static Course decode(Source in) throws IOException {
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IOException("Неизвестная версия формата курса: " + version);
+        }
+        int maxStudents = toInt(unzigzag(in.getVarLong()));
+        int enrolledCount = count(in);
+        Course course = new Course(maxStudents);
+        course.reserve(in.reservable(enrolledCount), 0);
+        long previous = 0;
+        for (int i = 0; i < enrolledCount; i++) {
+            long delta = in.getVarLong();
+            previous = i == 0 ? unzigzag(delta) : previous + delta + 1;
+            course.restoreEnrolled(toInt(previous));
+        }
+        int waitingCount = count(in);
+        if (waitingCount > 0 && enrolledCount < maxStudents) {
+            throw new IOException("Повреждённые данные курса: список ожидания при свободных местах");
+        }
+        course.reserve(0, in.reservable(waitingCount));
+        previous = 0;
+        for (int i = 0; i < waitingCount; i++) {
+            previous += unzigzag(in.getVarLong());
+            if (!course.restoreWaiting(toInt(previous))) {
+                throw new IOException("Повреждённые данные курса: повторяющийся студент " + previous);
+            }
+        }
+        return course;
+    }
+
+    /**
+     * Чтение количества студентов в списке. Каждый идентификатор занимает хотя бы
+     * один байт, поэтому количество в буфере не может превышать число оставшихся байтов.
+     */
+    private static int count(Source in) throws IOException {
+        long count = in.getVarLong();
+        if (count < 0 || count > MAX_STUDENTS) {
+            throw new IOException("Повреждённые данные курса: неверное количество студентов " + count);
+        }
+        if (count > in.available()) {
+            throw new EOFException("Неожиданный конец данных курса: не хватает данных на " + count + " студентов");
+        }
+        return (int) count;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int toInt(long value) throws IOException {
+        if (value != (int) value) {
+            throw new IOException("Повреждённые данные курса: значение вне диапазона " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Запись в буфер с выгрузкой в канал по заполнении.
+     */
+    private static final class Sink {
+        private final ByteBuffer buffer;
+        private final WritableByteChannel channel;
+
+        Sink(ByteBuffer buffer, WritableByteChannel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+        }
+
+        void put(byte value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (channel == null) {
+                    throw new BufferOverflowException();
+                }
+                drain();
+            }
+            buffer.put(value);
+        }
+
+        void putVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Чтение из буфера с дочитыванием из канала по исчерпании.
+     */
+    private static final class Source {
+        private final ByteBuffer buffer;
+        private final ReadableByteChannel channel;
+
+        Source(ByteBuffer buffer, ReadableByteChannel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+        }
+
+        byte get() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.get();
+        }
+
+        /**
+         * Верхняя граница количества оставшихся байтов: для буфера — точная,
+         * для канала она неизвестна.
+         */
+        long available() {
+            return channel == null ? buffer.remaining() : Long.MAX_VALUE;
+        }
+
+        /**
+         * Сколько элементов списка можно выделить заранее, не доверяя заявленному количеству.
+         */
+        int reservable(int count) {
+            return channel == null ? count : Math.min(count, CHANNEL_RESERVE);
+        }
+
+        long getVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Повреждённые данные курса: слишком длинное число");
+        }
+
+        private void fill() throws IOException {
+            if (channel == null) {
+                throw new EOFException("Неожиданный конец данных курса");
+            }
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                throw new EOFException("Неожиданный конец данных курса");
+            }
+        }
+    }
+}
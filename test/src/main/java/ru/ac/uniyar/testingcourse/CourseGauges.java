@@ -0,0 +1,58 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Текущие размеры списков одного курса, которые можно читать из любого потока.
+ * <p>
+ * {@link Course} не потокобезопасен, поэтому система мониторинга не читает его
+ * списки сама: курс, которому назначены показатели через
+ * {@link Course#setGauges(CourseGauges)}, обновляет их при каждом изменении
+ * списков и числа мест, а чтение обращается только к volatile-полям.
+ * Показатели курсов {@link CourseRegistry} назначаются по идентификатору курса
+ * через {@link CourseRegistry#setGauges(int, CourseGauges)}.
+ * Публикуются показатели через {@link MetricsSink}.
+ */
+public class CourseGauges {
+
+    private volatile int maxStudents;
+    private volatile int enrolled;
+    private volatile int waiting;
+
+    /**
+     * Максимальное количество студентов курса.
+     */
+    public int getMaxStudents() {
+        return maxStudents;
+    }
+
+    /**
+     * Количество записавшихся студентов.
+     */
+    public int getEnrolled() {
+        return enrolled;
+    }
+
+    /**
+     * Количество студентов в списке ожидания.
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * Обновление показателей; вызывается курсом в потоке, изменяющем его.
+     */
+    void update(Course course) {
+        maxStudents = course.getMaxStudents();
+        enrolled = course.getEnrolledCount();
+        waiting = course.getWaitingCount();
+    }
+
+    /**
+     * Обнуление показателей удалённого курса.
+     */
+    void clear() {
+        maxStudents = 0;
+        enrolled = 0;
+        waiting = 0;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * JMX-представление текущих размеров списков одного курса.
+ */
+public interface CourseGaugesMXBean {
+
+    int getMaxStudents();
+
+    int getEnrolled();
+
+    int getWaiting();
+}
@@ -0,0 +1,103 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики и гистограммы работы курсов. Один объект может быть назначен
+ * любому количеству курсов через {@link Course#setMetrics(CourseMetrics)};
+ * учёт не выделяет памяти и не блокирует вызывающий поток.
+ * Публикуются метрики через {@link MetricsSink}.
+ */
+public class CourseMetrics {
+
+    private final LongAdder enrolled = new LongAdder();
+    private final LongAdder waitlisted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unenrolled = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LatencyHistogram enrollLatency = new LatencyHistogram();
+    private final LatencyHistogram unenrollLatency = new LatencyHistogram();
+
+    /**
+     * Количество студентов, записанных на курс (без учёта переводов из списка ожидания).
+     */
+    public long getEnrolledCount() {
+        return enrolled.sum();
+    }
+
+    /**
+     * Количество студентов, помещённых в список ожидания.
+     */
+    public long getWaitlistedCount() {
+        return waitlisted.sum();
+    }
+
+    /**
+     * Количество отклонённых повторных записей.
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Количество удалений студентов из курсов и списков ожидания.
+     */
+    public long getUnenrolledCount() {
+        return unenrolled.sum();
+    }
+
+    /**
+     * Количество переводов из списка ожидания.
+     */
+    public long getPromotedCount() {
+        return promoted.sum();
+    }
+
+    /**
+     * Количество истёкших сроков ожидания и неподтверждённых переводов.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Длительности вызовов {@link Course#enroll(int)}.
+     */
+    public LatencyHistogram getEnrollLatency() {
+        return enrollLatency;
+    }
+
+    /**
+     * Длительности вызовов {@link Course#unenroll(int)}.
+     */
+    public LatencyHistogram getUnenrollLatency() {
+        return unenrollLatency;
+    }
+
+    void recordChange(EnrollmentEvent.Type type) {
+        switch (type) {
+            case ENROLLED:
+                enrolled.increment();
+                break;
+            case WAITLISTED:
+                waitlisted.increment();
+                break;
+            case UNENROLLED:
+                unenrolled.increment();
+                break;
+            case PROMOTED:
+                promoted.increment();
+                break;
+            case EXPIRED:
+                expired.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    void recordDuplicate() {
+        duplicates.increment();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * JMX-представление {@link CourseMetrics}. Длительности — в наносекундах.
+ */
+public interface CourseMetricsMXBean {
+
+    long getEnrolledCount();
+
+    long getWaitlistedCount();
+
+    long getDuplicateCount();
+
+    long getUnenrolledCount();
+
+    long getPromotedCount();
+
+    long getExpiredCount();
+
+    long getEnrollCount();
+
+    double getEnrollMeanNanos();
+
+    long getEnrollP50Nanos();
+
+    long getEnrollP99Nanos();
+
+    long getUnenrollCount();
+
+    double getUnenrollMeanNanos();
+
+    long getUnenrollP50Nanos();
+
+    long getUnenrollP99Nanos();
+}
@@ -0,0 +1,1103 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Реестр учебных курсов, доступных по целочисленному идентификатору курса.
+ * <p>
+ * Курсы распределены по сегментам, у каждого из которых своя блокировка:
+ * операции над курсами из разных сегментов выполняются параллельно, а число
+ * сегментов выбирается заметно большим числа потоков, чтобы совпадения были
+ * редкими. Сами объекты {@link Course} наружу не выдаются — все изменения
+ * проходят через реестр, что позволяет поддерживать обратный индекс
+ * «студент → курсы, на которые он записан / в списке ожидания которых находится».
+ * <p>
+ * Если реестру передан {@link EnrollmentLog}, каждое изменение дописывается
+ * в журнал под блокировкой сегмента курса, поэтому порядок записей одного курса
+ * в журнале совпадает с порядком их применения. {@link #checkpoint(Path)}
+ * сохраняет снимок всех курсов и начинает новый сегмент журнала, а
+ * {@link #recover(int, Path, EnrollmentLog)} восстанавливает реестр по последнему
+ * снимку и хвосту журнала.
+ * <p>
+ * Операции над несколькими курсами ({@link #swap(int, int, int)}) захватывают
+ * блокировки их сегментов в порядке номеров сегментов, поэтому не могут
+ * взаимно заблокироваться и выполняются параллельно, если не затрагивают
+ * общих сегментов. Квота {@link #setSeatQuota(int)} ограничивает число курсов
+ * одного студента и проверяется атомарно по обратному индексу.
+ * <p>
+ * Сроки пребывания в списке ожидания и подтверждения перевода (см.
+ * {@link #enableDeadlines(long, TimeUnit)}) отсчитываются колесом таймеров
+ * своего сегмента: колесо не потокобезопасно и изменяется только под
+ * блокировкой сегмента, как и его курсы.
+ */
+public class CourseRegistry {
+
+    static final int DEFAULT_STRIPES = 1024;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final ConcurrentHashMap<Integer, StudentCourses> students = new ConcurrentHashMap<>();
+    private final RosterStorage storage;
+    private volatile EnrollmentLog log;
+    private volatile int seatQuota;
+    private volatile long waitingTtlNanos;
+    private volatile long offerTimeoutNanos;
+    private volatile EnrollmentEventDispatcher events;
+    private final ConcurrentHashMap<Integer, CourseGauges> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор реестра с количеством сегментов по умолчанию.
+     */
+    public CourseRegistry() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Конструктор.
+     *
+     * @param stripes желаемое количество сегментов (округляется вверх до степени двойки).
+     */
+    public CourseRegistry(int stripes) {
+        this(stripes, null);
+    }
+
+    /**
+     * Конструктор реестра, записывающего изменения в журнал.
+     *
+     * @param stripes желаемое количество сегментов (округляется вверх до степени двойки).
+     * @param log     журнал изменений или null.
+     */
+    public CourseRegistry(int stripes, EnrollmentLog log) {
+        this(stripes, log, RosterStorage.ORDERED);
+    }
+
+    /**
+     * Конструктор реестра с заданным способом хранения списков записавшихся.
+     *
+     * @param stripes желаемое количество сегментов (округляется вверх до степени двойки).
+     * @param log     журнал изменений или null.
+     * @param storage способ хранения списков записавшихся всех курсов реестра.
+     */
+    public CourseRegistry(int stripes, EnrollmentLog log, RosterStorage storage) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество сегментов должно быть положительным: " + stripes);
+        }
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+        this.log = log;
+        this.storage = storage;
+    }
+
+    /**
+     * Восстановление реестра по снимку и журналу. Журнал должен быть только что
+     * открыт; восстановленный реестр продолжает записывать изменения в него.
+     *
+     * @param stripes      желаемое количество сегментов.
+     * @param snapshotFile файл снимка; если его нет, журнал воспроизводится целиком.
+     * @param log          журнал изменений.
+     */
+    public static CourseRegistry recover(int stripes, Path snapshotFile, EnrollmentLog log) throws IOException {
+        return recover(stripes, snapshotFile, log, RosterStorage.ORDERED);
+    }
+
+    /**
+     * Восстановление реестра с заданным способом хранения списков записавшихся
+     * (способ хранения не сохраняется ни в снимке, ни в журнале).
+     */
+    public static CourseRegistry recover(int stripes, Path snapshotFile, EnrollmentLog log,
+                                         RosterStorage storage) throws IOException {
+        CourseRegistry registry = new CourseRegistry(stripes, null, storage);
+        long fromSegment = 0;
+        if (Files.exists(snapshotFile)) {
+            fromSegment = CourseSnapshotFile.read(snapshotFile, registry::install);
+        }
+        log.replay(fromSegment, registry::apply);
+        registry.log = log;
+        return registry;
+    }
+
+    /**
+     * Сохранение снимка всех курсов. На время создания снимков курсов (O(1) на курс)
+     * блокируются все сегменты и в журнале начинается новый сегмент; копирование
+     * списков и запись снимка на диск идут уже без блокировок, после чего покрытые
+     * снимком сегменты журнала удаляются.
+     *
+     * @param snapshotFile файл снимка.
+     */
+    public void checkpoint(Path snapshotFile) throws IOException {
+        Map<Integer, RosterSnapshot> rosters = new HashMap<>();
+        long segment = 0;
+        lockAll();
+        try {
+            EnrollmentLog log = this.log;
+            if (log != null) {
+                segment = log.roll();
+            }
+            collectSnapshots(rosters);
+        } finally {
+            unlockAll();
+        }
+        Map<Integer, Course> copy = new HashMap<>(rosters.size() * 2);
+        for (Map.Entry<Integer, RosterSnapshot> entry : rosters.entrySet()) {
+            RosterSnapshot roster = entry.getValue();
+            copy.put(entry.getKey(), Course.restore(roster.getMaxStudents(),
+                    roster.getEnrollmentArray(), roster.getWaitingArray()));
+        }
+        CourseSnapshotFile.write(snapshotFile, segment, copy);
+        EnrollmentLog log = this.log;
+        if (log != null) {
+            log.deleteSegmentsBefore(segment);
+        }
+    }
+
+    /**
+     * Создание курса.
+     *
+     * @param courseId    идентификатор курса.
+     * @param maxStudents максимальное количество студентов.
+     * @return false, если курс с таким идентификатором уже существует.
+     */
+    public boolean createCourse(int courseId, int maxStudents) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            if (stripe.courses.containsKey(courseId)) {
+                return false;
+            }
+            Course course = new Course(maxStudents, storage);
+            stripe.courses.put(courseId, course);
+            attach(stripe, courseId, course);
+            log(EnrollmentLog.CREATE, courseId, maxStudents);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Удаление курса вместе со всеми записями на него.
+     *
+     * @param courseId идентификатор курса.
+     * @return false, если курса не существовало.
+     */
+    public boolean removeCourse(int courseId) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = stripe.courses.remove(courseId);
+            if (course == null) {
+                return false;
+            }
+            course.cancelDeadlines();
+            course.setEventDispatcher(null, courseId);
+            course.setGauges(null);
+            CourseGauges courseGauges = gauges.get(courseId);
+            if (courseGauges != null) {
+                courseGauges.clear();
+            }
+            for (int studentId : course.getEnrollmentArray()) {
+                unindex(studentId, courseId);
+            }
+            for (int studentId : course.getWaitingArray()) {
+                unindex(studentId, courseId);
+            }
+            log(EnrollmentLog.REMOVE, courseId, 0);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Проверка существования курса.
+     */
+    public boolean containsCourse(int courseId) {
+        return read(courseId, course -> Boolean.TRUE, Boolean.FALSE);
+    }
+
+    /**
+     * Количество курсов в реестре.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.courses.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Запись студента на курс (см. {@link Course#enroll(int)}).
+     *
+     * @return {@link EnrollmentOutcome#ENROLLED}, {@link EnrollmentOutcome#WAITLISTED},
+     * {@link EnrollmentOutcome#DUPLICATE}, если студент уже был в одном из списков,
+     * или {@link EnrollmentOutcome#QUOTA_EXCEEDED}, если студент исчерпал квоту.
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public EnrollmentOutcome enroll(int courseId, int studentId) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = existing(stripe, courseId);
+            if (course.isEnrolled(studentId) || course.isWaiting(studentId)) {
+                return EnrollmentOutcome.DUPLICATE;
+            }
+            int quota = seatQuota;
+            if (quota > 0 && !claim(studentId, quota)) {
+                return EnrollmentOutcome.QUOTA_EXCEEDED;
+            }
+            course.enroll(studentId);
+            boolean enrolled = course.isEnrolled(studentId);
+            index(studentId, courseId, enrolled, quota > 0);
+            log(EnrollmentLog.ENROLL, courseId, studentId);
+            return enrolled ? EnrollmentOutcome.ENROLLED : EnrollmentOutcome.WAITLISTED;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Удаление студента из курса (см. {@link Course#unenroll(int)}).
+     *
+     * @return {@link EnrollmentOutcome#UNENROLLED} или {@link EnrollmentOutcome#NOT_FOUND},
+     * если студента не было ни в одном из списков.
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public EnrollmentOutcome unenroll(int courseId, int studentId) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            return unenroll(existing(stripe, courseId), courseId, studentId, true);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Атомарный обмен: студент записывается на курс {@code toCourseId} и отчисляется
+     * с курса {@code fromCourseId} только если на новом курсе есть свободное место;
+     * иначе ни один из курсов не меняется. Освободившееся место на прежнем курсе,
+     * как и при {@link #unenroll(int, int)}, занимает первый ожидающий. Число курсов
+     * студента не меняется, поэтому квота при обмене не проверяется.
+     *
+     * @return {@link EnrollmentOutcome#ENROLLED} после обмена,
+     * {@link EnrollmentOutcome#NOT_FOUND}, если студент не записан на прежний курс,
+     * {@link EnrollmentOutcome#DUPLICATE}, если он уже записан на новый курс или ожидает его,
+     * {@link EnrollmentOutcome#COURSE_FULL}, если на новом курсе нет мест.
+     * @throws IllegalArgumentException если какого-либо курса не существует или курсы совпадают.
+     */
+    public EnrollmentOutcome swap(int studentId, int fromCourseId, int toCourseId) {
+        if (fromCourseId == toCourseId) {
+            throw new IllegalArgumentException("Курсы обмена совпадают: " + fromCourseId);
+        }
+        int fromIndex = stripeIndex(fromCourseId);
+        int toIndex = stripeIndex(toCourseId);
+        Stripe first = stripes[Math.min(fromIndex, toIndex)];
+        Stripe second = stripes[Math.max(fromIndex, toIndex)];
+        first.lock.lock();
+        second.lock.lock();
+        try {
+            Course from = existing(stripes[fromIndex], fromCourseId);
+            Course to = existing(stripes[toIndex], toCourseId);
+            if (!from.isEnrolled(studentId)) {
+                return EnrollmentOutcome.NOT_FOUND;
+            }
+            if (to.isEnrolled(studentId) || to.isWaiting(studentId)) {
+                return EnrollmentOutcome.DUPLICATE;
+            }
+            if (to.isFullyEnrolled()) {
+                return EnrollmentOutcome.COURSE_FULL;
+            }
+            EnrollmentLog log = this.log;
+            if (log != null) {
+                log.append(EnrollmentLog.SWAP, fromCourseId, new int[]{studentId, toCourseId});
+            }
+            to.enroll(studentId);
+            // новый курс индексируется раньше, чем снимается прежний, чтобы
+            // одновременная запись не заняла место студента в квоте между ними
+            index(studentId, toCourseId, true);
+            unenroll(from, fromCourseId, studentId, false);
+            return EnrollmentOutcome.ENROLLED;
+        } finally {
+            second.lock.unlock();
+            first.lock.unlock();
+        }
+    }
+
+    /**
+     * Назначение квоты: студент может быть записан или стоять в списке ожидания
+     * не более чем на {@code quota} курсах. В квоту входят и списки ожидания,
+     * потому что перевод из них происходит без участия студента и не может
+     * быть отклонён. Уменьшение квоты не отчисляет студентов, а лишь
+     * запрещает новые записи сверх неё. Квота не сохраняется в журнале и снимке.
+     *
+     * @param quota максимальное число курсов студента; 0 — без ограничения.
+     */
+    public void setSeatQuota(int quota) {
+        if (quota < 0) {
+            throw new IllegalArgumentException("Квота не может быть отрицательной: " + quota);
+        }
+        this.seatQuota = quota;
+    }
+
+    public int getSeatQuota() {
+        return seatQuota;
+    }
+
+    /**
+     * Включение сроков для всех курсов реестра. Каждый сегмент получает собственное
+     * {@link TimerWheel}, которое изменяется только под блокировкой сегмента, поэтому
+     * курсы разных сегментов по-прежнему не мешают друг другу. Время колёс продвигает
+     * {@link #advanceTime(long, TimeUnit)}. Истечение срока проходит через реестр:
+     * обновляются обратный индекс и квота, в журнал пишется запись
+     * {@link EnrollmentLog#EXPIRE}. Сами сроки не сохраняются ни в снимке, ни в журнале:
+     * после восстановления студенты остаются в списках без сроков.
+     *
+     * @param tickDuration длительность такта — точность сроков.
+     * @param unit         единица измерения длительности.
+     * @throws IllegalStateException если сроки уже включены.
+     */
+    public void enableDeadlines(long tickDuration, TimeUnit unit) {
+        TimerWheel first = new TimerWheel(tickDuration, unit);
+        lockAll();
+        try {
+            if (stripes[0].timers != null) {
+                throw new IllegalStateException("Сроки уже включены");
+            }
+            for (Stripe stripe : stripes) {
+                stripe.timers = stripe == stripes[0] ? first : new TimerWheel(tickDuration, unit);
+                for (Map.Entry<Integer, Course> entry : stripe.courses.entrySet()) {
+                    attach(stripe, entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Срок пребывания в списке ожидания для всех курсов (см. {@link Course#setWaitingTtl(long, TimeUnit)}).
+     *
+     * @param ttl  срок; 0 — без ограничения.
+     * @param unit единица измерения срока.
+     * @throws IllegalStateException если сроки не включены.
+     */
+    public void setWaitingTtl(long ttl, TimeUnit unit) {
+        long nanos = deadlineNanos(ttl, unit);
+        lockAll();
+        try {
+            waitingTtlNanos = nanos;
+            for (Stripe stripe : stripes) {
+                for (Course course : stripe.courses.values()) {
+                    course.setWaitingTtl(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Срок подтверждения перевода для всех курсов (см. {@link Course#setOfferTimeout(long, TimeUnit)}).
+     *
+     * @param timeout срок; 0 — перевод не требует подтверждения.
+     * @param unit    единица измерения срока.
+     * @throws IllegalStateException если сроки не включены.
+     */
+    public void setOfferTimeout(long timeout, TimeUnit unit) {
+        long nanos = deadlineNanos(timeout, unit);
+        lockAll();
+        try {
+            offerTimeoutNanos = nanos;
+            for (Stripe stripe : stripes) {
+                for (Course course : stripe.courses.values()) {
+                    course.setOfferTimeout(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Назначение диспетчера событий всем курсам реестра, в том числе созданным позже.
+     * События несут идентификатор курса в реестре (см. {@link EnrollmentEvent#getCourseId()}).
+     *
+     * @param events диспетчер или null, чтобы перестать публиковать события.
+     */
+    public void setEventDispatcher(EnrollmentEventDispatcher events) {
+        lockAll();
+        try {
+            this.events = events;
+            for (Stripe stripe : stripes) {
+                for (Map.Entry<Integer, Course> entry : stripe.courses.entrySet()) {
+                    entry.getValue().setEventDispatcher(events, entry.getKey());
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Назначение показателей курсу по идентификатору (см. {@link Course#setGauges(CourseGauges)}).
+     * Назначение не зависит от существования курса: показатели подключаются
+     * и к курсу, созданному или восстановленному позже под тем же идентификатором,
+     * а после удаления курса обнуляются.
+     *
+     * @param courseId идентификатор курса.
+     * @param gauges   показатели или null, чтобы снять назначение.
+     */
+    public void setGauges(int courseId, CourseGauges gauges) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            if (gauges == null) {
+                this.gauges.remove(courseId);
+            } else {
+                this.gauges.put(courseId, gauges);
+            }
+            Course course = stripe.courses.get(courseId);
+            if (course != null) {
+                course.setGauges(gauges);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Подтверждение предложенного места (см. {@link Course#confirm(int)}).
+     *
+     * @return false, если студенту не предлагалось место или срок уже истёк.
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public boolean confirm(int courseId, int studentId) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            return existing(stripe, courseId).confirm(studentId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Продвижение времени колёс всех сегментов. Сегменты обходятся по очереди,
+     * каждый под своей блокировкой, поэтому сроки разных сегментов истекают
+     * не в общем порядке, а в порядке сегментов.
+     *
+     * @return количество истёкших сроков.
+     */
+    public int advanceTime(long elapsed, TimeUnit unit) {
+        int fired = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (stripe.timers != null) {
+                    fired += stripe.timers.advance(elapsed, unit);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Групповая запись студентов на курс (см. {@link Course#enrollAll(int[])}).
+     * Студенты, исчерпавшие квоту, пропускаются.
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public void enrollAll(int courseId, int[] studentIds) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = existing(stripe, courseId);
+            int quota = seatQuota;
+            boolean[] claimed = new boolean[studentIds.length];
+            int[] accepted = studentIds;
+            if (quota > 0) {
+                accepted = new int[studentIds.length];
+                int count = 0;
+                for (int studentId : studentIds) {
+                    if (course.isEnrolled(studentId) || course.isWaiting(studentId)) {
+                        accepted[count++] = studentId;
+                    } else if (claim(studentId, quota)) {
+                        claimed[count] = true;
+                        accepted[count++] = studentId;
+                    }
+                }
+                accepted = Arrays.copyOf(accepted, count);
+            }
+            course.enrollAll(accepted);
+            for (int i = 0; i < accepted.length; i++) {
+                index(accepted[i], courseId, course.isEnrolled(accepted[i]), claimed[i]);
+            }
+            EnrollmentLog log = this.log;
+            if (log != null) {
+                log.append(EnrollmentLog.ENROLL_ALL, courseId, accepted);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Групповое удаление студентов из курса (см. {@link Course#unenrollAll(int[])}).
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public void unenrollAll(int courseId, int[] studentIds) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = existing(stripe, courseId);
+            // переведённые студенты находятся среди первых studentIds.length в очереди на перевод
+            int[] candidates = course.nextPromotions(studentIds.length);
+            course.unenrollAll(studentIds);
+            for (int studentId : studentIds) {
+                unindex(studentId, courseId);
+            }
+            EnrollmentLog log = this.log;
+            if (log != null) {
+                log.append(EnrollmentLog.UNENROLL_ALL, courseId, studentIds);
+            }
+            for (int candidate : candidates) {
+                if (course.isEnrolled(candidate)) {
+                    index(candidate, courseId, true);
+                    log(EnrollmentLog.PROMOTE, courseId, candidate);
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Изменение числа мест курса (см. {@link Course#setMaxStudents(int)}).
+     *
+     * @param courseId    идентификатор курса.
+     * @param maxStudents новое максимальное количество студентов.
+     * @param policy      поведение при уменьшении числа мест ниже числа записавшихся.
+     * @return студенты, переведённые между списками.
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public int[] setMaxStudents(int courseId, int maxStudents, CapacityReductionPolicy policy) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = existing(stripe, courseId);
+            boolean raising = maxStudents > course.getMaxStudents();
+            course.setCapacityReductionPolicy(policy);
+            int[] moved = course.setMaxStudents(maxStudents);
+            for (int studentId : moved) {
+                index(studentId, courseId, raising);
+            }
+            EnrollmentLog log = this.log;
+            if (log != null) {
+                log.append(EnrollmentLog.RESIZE, courseId, new int[]{maxStudents, policy.ordinal()});
+            }
+            return moved;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Курсы, на которые записан студент.
+     */
+    public int[] getEnrolledCourses(int studentId) {
+        StudentCourses courses = students.get(studentId);
+        if (courses == null) {
+            return new int[0];
+        }
+        synchronized (courses) {
+            return courses.enrolled.toArray();
+        }
+    }
+
+    /**
+     * Курсы, в списке ожидания которых находится студент.
+     */
+    public int[] getWaitingCourses(int studentId) {
+        StudentCourses courses = students.get(studentId);
+        if (courses == null) {
+            return new int[0];
+        }
+        synchronized (courses) {
+            return courses.waiting.toArray();
+        }
+    }
+
+    /**
+     * Получение копии списка записавшихся на курс студентов.
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public int[] getEnrollmentArray(int courseId) {
+        return read(courseId, Course::getEnrollmentArray);
+    }
+
+    /**
+     * Получение копии списка ожидания курса.
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public int[] getWaitingArray(int courseId) {
+        return read(courseId, Course::getWaitingArray);
+    }
+
+    /**
+     * Неизменяемый снимок списков курса (см. {@link Course#snapshot()}). Блокировка
+     * сегмента удерживается только на время O(1) создания снимка; дальнейшее
+     * чтение снимка не мешает изменениям курса.
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public RosterSnapshot snapshot(int courseId) {
+        return read(courseId, Course::snapshot);
+    }
+
+    /**
+     * Студенты, записанные на каждый из перечисленных курсов. Битовые карты
+     * курсов берутся по очереди под блокировками их сегментов, а пересекаются
+     * уже без блокировок, поэтому результат не обязан соответствовать
+     * одному моменту времени для всех курсов.
+     *
+     * @throws IllegalArgumentException если какого-либо курса не существует.
+     */
+    public StudentBitmap enrolledInAll(int... courseIds) {
+        return StudentBitmap.and(enrollmentBitmaps(courseIds));
+    }
+
+    /**
+     * Студенты, записанные хотя бы на один из перечисленных курсов
+     * (см. {@link #enrolledInAll(int...)}).
+     *
+     * @throws IllegalArgumentException если какого-либо курса не существует.
+     */
+    public StudentBitmap enrolledInAny(int... courseIds) {
+        return StudentBitmap.or(enrollmentBitmaps(courseIds));
+    }
+
+    /**
+     * Сводные показатели всех курсов реестра, подсчитанные в общем пуле fork-join.
+     * Задачи делят между собой сегменты; каждый сегмент блокируется только на
+     * время чтения размеров его курсов, поэтому показатели каждого курса
+     * согласованы, а изменения в других сегментах во время подсчёта не ждут.
+     *
+     * @param topN сколько самых длинных списков ожидания вернуть.
+     */
+    public CourseStatistics analyze(int topN) {
+        return ForkJoinPool.commonPool().invoke(new StripeAnalysis(0, stripes.length, topN)).toStatistics();
+    }
+
+    /**
+     * Чтение состояния курса под блокировкой его сегмента. Функция не должна
+     * изменять курс и сохранять ссылку на него.
+     *
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    public <R> R read(int courseId, Function<? super Course, R> reader) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            return reader.apply(existing(stripe, courseId));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Выполнение действия под блокировкой сегмента курса. Блокировка повторно
+     * входимая, поэтому операции реестра над этим курсом внутри действия не
+     * ждут её заново — так {@link EnrollmentEngine} применяет пакет запросов
+     * за один захват блокировки.
+     */
+    void runLocked(int courseId, Runnable action) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            action.run();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Согласованные снимки всех курсов: на время их создания (O(1) на курс)
+     * блокируются все сегменты.
+     */
+    Map<Integer, RosterSnapshot> snapshots() {
+        Map<Integer, RosterSnapshot> rosters = new HashMap<>();
+        lockAll();
+        try {
+            collectSnapshots(rosters);
+        } finally {
+            unlockAll();
+        }
+        return rosters;
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private void collectSnapshots(Map<Integer, RosterSnapshot> rosters) {
+        for (Stripe stripe : stripes) {
+            for (Map.Entry<Integer, Course> entry : stripe.courses.entrySet()) {
+                rosters.put(entry.getKey(), entry.getValue().snapshot());
+            }
+        }
+    }
+
+    private List<StudentBitmap> enrollmentBitmaps(int[] courseIds) {
+        List<StudentBitmap> bitmaps = new ArrayList<>(courseIds.length);
+        for (int courseId : courseIds) {
+            bitmaps.add(read(courseId, Course::getEnrollmentBitmap));
+        }
+        return bitmaps;
+    }
+
+    private <R> R read(int courseId, Function<? super Course, R> reader, R absent) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            Course course = stripe.courses.get(courseId);
+            return course == null ? absent : reader.apply(course);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Добавление восстановленного из снимка курса.
+     */
+    void install(int courseId, Course course) {
+        if (course.getStorage() != storage) {
+            course = Course.restore(course.getMaxStudents(), storage, course.getEnrollmentArray(), course.getWaitingArray());
+        }
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            stripe.courses.put(courseId, course);
+            attach(stripe, courseId, course);
+            for (int studentId : course.getEnrollmentArray()) {
+                index(studentId, courseId, true);
+            }
+            for (int studentId : course.getWaitingArray()) {
+                index(studentId, courseId, false);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Применение записи журнала при восстановлении или команды при репликации
+     * (см. {@link ReplicationLog}).
+     *
+     * @return результат соответствующего метода реестра или null, если метод ничего не возвращает.
+     * @throws IllegalArgumentException если курса не существует.
+     */
+    Object apply(int type, int courseId, int[] values, int count) {
+        switch (type) {
+            case EnrollmentLog.CREATE:
+                return createCourse(courseId, values[0]);
+            case EnrollmentLog.REMOVE:
+                return removeCourse(courseId);
+            case EnrollmentLog.ENROLL:
+                return enroll(courseId, values[0]);
+            case EnrollmentLog.UNENROLL:
+                return unenroll(courseId, values[0]);
+            case EnrollmentLog.ENROLL_ALL:
+                enrollAll(courseId, Arrays.copyOf(values, count));
+                return null;
+            case EnrollmentLog.UNENROLL_ALL:
+                unenrollAll(courseId, Arrays.copyOf(values, count));
+                return null;
+            case EnrollmentLog.RESIZE:
+                return setMaxStudents(courseId, values[0], CapacityReductionPolicy.values()[values[1]]);
+            case EnrollmentLog.SWAP:
+                return swap(values[0], courseId, values[1]);
+            case EnrollmentLog.EXPIRE:
+                return expire(courseId, values[0]);
+            default:
+                // перевод из списка ожидания детерминированно повторяется при отмене записи
+                return null;
+        }
+    }
+
+    /**
+     * Удаление студента из курса под блокировкой его сегмента.
+     *
+     * @param logged записать ли отмену записи в журнал (при обмене журнал получает запись обмена).
+     */
+    private EnrollmentOutcome unenroll(Course course, int courseId, int studentId, boolean logged) {
+        boolean enrolled = course.isEnrolled(studentId);
+        if (!enrolled && !course.isWaiting(studentId)) {
+            return EnrollmentOutcome.NOT_FOUND;
+        }
+        boolean promotes = enrolled && course.hasWaitingList()
+                && course.getEnrolledCount() <= course.getMaxStudents();
+        int promoted = promotes ? course.peekPromotion() : 0;
+        course.unenroll(studentId);
+        unindex(studentId, courseId);
+        if (logged) {
+            log(EnrollmentLog.UNENROLL, courseId, studentId);
+        }
+        if (promotes) {
+            index(promoted, courseId, true);
+            log(EnrollmentLog.PROMOTE, courseId, promoted);
+        }
+        return EnrollmentOutcome.UNENROLLED;
+    }
+
+    /**
+     * Истечение срока студента на курсе под блокировкой сегмента: вызывается
+     * колесом таймеров сегмента или при воспроизведении записи
+     * {@link EnrollmentLog#EXPIRE}.
+     *
+     * @param fired истёк ли срок по таймеру (см. {@link Course#expire(int, boolean)}).
+     */
+    private void expire(Course course, int courseId, int studentId, boolean fired) {
+        boolean enrolled = course.isEnrolled(studentId);
+        boolean promotes = enrolled && course.hasWaitingList()
+                && course.getEnrolledCount() <= course.getMaxStudents();
+        int promoted = promotes ? course.peekPromotion() : 0;
+        if (!course.expire(studentId, fired)) {
+            return;
+        }
+        unindex(studentId, courseId);
+        log(EnrollmentLog.EXPIRE, courseId, studentId);
+        if (promotes) {
+            index(promoted, courseId, true);
+            log(EnrollmentLog.PROMOTE, courseId, promoted);
+        }
+    }
+
+    private Object expire(int courseId, int studentId) {
+        Stripe stripe = stripe(courseId);
+        stripe.lock.lock();
+        try {
+            expire(existing(stripe, courseId), courseId, studentId, false);
+            return null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Подключение курса к диспетчеру событий, его показателям и колесу таймеров
+     * сегмента и назначение ему сроков реестра. Выполняется под блокировкой сегмента.
+     */
+    private void attach(Stripe stripe, int courseId, Course course) {
+        course.setEventDispatcher(events, courseId);
+        course.setGauges(gauges.get(courseId));
+        if (stripe.timers == null) {
+            return;
+        }
+        course.setTimerWheel(stripe.timers, studentId -> expire(course, courseId, studentId, true));
+        course.setWaitingTtl(waitingTtlNanos, TimeUnit.NANOSECONDS);
+        course.setOfferTimeout(offerTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private long deadlineNanos(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Срок не может быть отрицательным: " + duration);
+        }
+        if (duration > 0 && stripes[0].timers == null) {
+            throw new IllegalStateException("Сроки не включены");
+        }
+        return unit.toNanos(duration);
+    }
+
+    /**
+     * Резервирование места в квоте студента до его записи на курс. Резерв
+     * снимается при внесении курса в обратный индекс.
+     *
+     * @return false, если квота исчерпана.
+     */
+    private boolean claim(int studentId, int quota) {
+        boolean[] granted = new boolean[1];
+        students.compute(studentId, (id, courses) -> {
+            if (courses == null) {
+                courses = new StudentCourses();
+            }
+            synchronized (courses) {
+                if (courses.enrolled.size() + courses.waiting.size() + courses.reserved < quota) {
+                    courses.reserved++;
+                    granted[0] = true;
+                }
+            }
+            return courses;
+        });
+        return granted[0];
+    }
+
+    private void log(int type, int courseId, int value) {
+        EnrollmentLog log = this.log;
+        if (log != null) {
+            log.append(type, courseId, value);
+        }
+    }
+
+    /**
+     * Отражение в обратном индексе того, что студент записан на курс или ожидает его.
+     */
+    private void index(int studentId, int courseId, boolean enrolled) {
+        index(studentId, courseId, enrolled, false);
+    }
+
+    /**
+     * @param claimed снять ли резерв, сделанный {@link #claim(int, int)}.
+     */
+    private void index(int studentId, int courseId, boolean enrolled, boolean claimed) {
+        students.compute(studentId, (id, courses) -> {
+            if (courses == null) {
+                courses = new StudentCourses();
+            }
+            synchronized (courses) {
+                if (claimed) {
+                    courses.reserved--;
+                }
+                if (enrolled) {
+                    courses.waiting.remove(courseId);
+                    courses.enrolled.add(courseId);
+                } else {
+                    courses.enrolled.remove(courseId);
+                    courses.waiting.add(courseId);
+                }
+            }
+            return courses;
+        });
+    }
+
+    /**
+     * Удаление курса из обратного индекса студента.
+     */
+    private void unindex(int studentId, int courseId) {
+        students.computeIfPresent(studentId, (id, courses) -> {
+            synchronized (courses) {
+                courses.enrolled.remove(courseId);
+                courses.waiting.remove(courseId);
+                return courses.enrolled.isEmpty() && courses.waiting.isEmpty() && courses.reserved == 0 ? null : courses;
+            }
+        });
+    }
+
+    private Stripe stripe(int courseId) {
+        return stripes[stripeIndex(courseId)];
+    }
+
+    private int stripeIndex(int courseId) {
+        int h = courseId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static Course existing(Stripe stripe, int courseId) {
+        Course course = stripe.courses.get(courseId);
+        if (course == null) {
+            throw new IllegalArgumentException("Курс не найден: " + courseId);
+        }
+        return course;
+    }
+
+    private final class StripeAnalysis extends RecursiveTask<CourseStatistics.Accumulator> {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_STRIPES = 16;
+
+        private final int from;
+        private final int to;
+        private final int topN;
+
+        StripeAnalysis(int from, int to, int topN) {
+            this.from = from;
+            this.to = to;
+            this.topN = topN;
+        }
+
+        @Override
+        protected CourseStatistics.Accumulator compute() {
+            if (to - from <= LEAF_STRIPES) {
+                CourseStatistics.Accumulator accumulator = new CourseStatistics.Accumulator(topN);
+                for (int i = from; i < to; i++) {
+                    Stripe stripe = stripes[i];
+                    stripe.lock.lock();
+                    try {
+                        for (Map.Entry<Integer, Course> entry : stripe.courses.entrySet()) {
+                            Course course = entry.getValue();
+                            accumulator.add(entry.getKey(), course.getMaxStudents(),
+                                    course.getEnrolledCount(), course.getWaitingCount());
+                        }
+                    } finally {
+                        stripe.lock.unlock();
+                    }
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            StripeAnalysis left = new StripeAnalysis(from, middle, topN);
+            left.fork();
+            CourseStatistics.Accumulator right = new StripeAnalysis(middle, to, topN).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Integer, Course> courses = new HashMap<>();
+        /**
+         * Колесо таймеров курсов сегмента или null, если сроки не включены.
+         */
+        TimerWheel timers;
+    }
+
+    /**
+     * Курсы одного студента. Изменяется внутри {@link ConcurrentHashMap#compute},
+     * читается под монитором самого объекта.
+     */
+    private static final class StudentCourses {
+        final IntOrderedSet enrolled = new IntOrderedSet();
+        final IntOrderedSet waiting = new IntOrderedSet();
+        /**
+         * Места квоты, зарезервированные под записи, которые ещё не внесены в индекс.
+         */
+        int reserved;
+    }
+}
@@ -0,0 +1,374 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Реплика реестра курсов одного узла (см. {@link ReplicationLog}).
+ * <p>
+ * С журналом реплика связана только сеансом {@link ReplicationTransport}: журнал
+ * может находиться в том же процессе или на другом узле за {@link ReplicationServer}.
+ * <p>
+ * Чтение выполняется из локального {@link CourseRegistry} без обращения
+ * к журналу и поэтому масштабируется числом узлов; прочитанное состояние
+ * может отставать от журнала на ещё не применённые команды. Изменения
+ * отправляются в журнал, а возвращаемый {@link CompletableFuture} завершается,
+ * когда команда применена к этой реплике, — после этого локальное чтение
+ * видит её результат.
+ * <p>
+ * Команды применяются в исполнителе реплики по одной задаче за раз, строго
+ * в порядке номеров; повторно доставленные команды пропускаются.
+ * <p>
+ * Если сеанс сорвался (разрыв соединения, повреждённый кадр), реплика
+ * отключается, а незавершённые результаты её команд завершаются
+ * {@link IllegalStateException}: команда могла как получить номер, так и
+ * потеряться. Такая реплика помечается устаревшей и при {@link #reconnect()}
+ * запрашивает снимок состояния вместо пропущенных команд.
+ */
+public class CourseReplica implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final ReplicationTransport transport;
+    private final RosterStorage storage;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<ReplicatedCommand> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong lastRequest = new AtomicLong();
+    /**
+     * Результаты команд этой реплики, ещё не применённых к ней, по идентификаторам запросов.
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+    private volatile CourseRegistry registry;
+    private volatile long appliedSequence;
+    private volatile int id;
+    private volatile ReplicationTransport.Session session;
+    private volatile SessionReceiver receiver;
+    private volatile boolean stale;
+
+    /**
+     * Создание реплики и её подключение к журналу.
+     *
+     * @param transport связь с журналом.
+     * @param storage   способ хранения списков записавшихся.
+     * @param executor  исполнитель, в котором реплика применяет команды.
+     * @throws UncheckedIOException если не удалось открыть сеанс с журналом.
+     */
+    public CourseReplica(ReplicationTransport transport, RosterStorage storage, Executor executor) {
+        this.transport = transport;
+        this.storage = storage;
+        this.executor = executor;
+        this.registry = new CourseRegistry(CourseRegistry.DEFAULT_STRIPES, null, storage);
+        reconnect();
+    }
+
+    /**
+     * Создание курса (см. {@link CourseRegistry#createCourse(int, int)}).
+     */
+    public CompletableFuture<Boolean> createCourse(int courseId, int maxStudents) {
+        return submit(EnrollmentLog.CREATE, courseId, new int[]{maxStudents});
+    }
+
+    /**
+     * Удаление курса (см. {@link CourseRegistry#removeCourse(int)}).
+     */
+    public CompletableFuture<Boolean> removeCourse(int courseId) {
+        return submit(EnrollmentLog.REMOVE, courseId, new int[0]);
+    }
+
+    /**
+     * Запись студента на курс (см. {@link CourseRegistry#enroll(int, int)}).
+     * Если курса не существует, результат завершается {@link IllegalArgumentException}.
+     */
+    public CompletableFuture<EnrollmentOutcome> enroll(int courseId, int studentId) {
+        return submit(EnrollmentLog.ENROLL, courseId, new int[]{studentId});
+    }
+
+    /**
+     * Удаление студента из курса (см. {@link CourseRegistry#unenroll(int, int)}).
+     */
+    public CompletableFuture<EnrollmentOutcome> unenroll(int courseId, int studentId) {
+        return submit(EnrollmentLog.UNENROLL, courseId, new int[]{studentId});
+    }
+
+    /**
+     * Групповая запись студентов (см. {@link CourseRegistry#enrollAll(int, int[])}).
+     */
+    public CompletableFuture<Void> enrollAll(int courseId, int[] studentIds) {
+        return submit(EnrollmentLog.ENROLL_ALL, courseId, studentIds.clone());
+    }
+
+    /**
+     * Групповое удаление студентов (см. {@link CourseRegistry#unenrollAll(int, int[])}).
+     */
+    public CompletableFuture<Void> unenrollAll(int courseId, int[] studentIds) {
+        return submit(EnrollmentLog.UNENROLL_ALL, courseId, studentIds.clone());
+    }
+
+    /**
+     * Изменение числа мест (см. {@link CourseRegistry#setMaxStudents(int, int, CapacityReductionPolicy)}).
+     */
+    public CompletableFuture<int[]> setMaxStudents(int courseId, int maxStudents, CapacityReductionPolicy policy) {
+        return submit(EnrollmentLog.RESIZE, courseId, new int[]{maxStudents, policy.ordinal()});
+    }
+
+    /**
+     * Атомарный обмен курса студента (см. {@link CourseRegistry#swap(int, int, int)}).
+     */
+    public CompletableFuture<EnrollmentOutcome> swap(int studentId, int fromCourseId, int toCourseId) {
+        return submit(EnrollmentLog.SWAP, fromCourseId, new int[]{studentId, toCourseId});
+    }
+
+    public boolean containsCourse(int courseId) {
+        return registry.containsCourse(courseId);
+    }
+
+    /**
+     * @throws IllegalArgumentException если курса нет в реплике.
+     */
+    public int[] getEnrollmentArray(int courseId) {
+        return registry.getEnrollmentArray(courseId);
+    }
+
+    /**
+     * @throws IllegalArgumentException если курса нет в реплике.
+     */
+    public int[] getWaitingArray(int courseId) {
+        return registry.getWaitingArray(courseId);
+    }
+
+    /**
+     * @throws IllegalArgumentException если курса нет в реплике.
+     */
+    public RosterSnapshot snapshot(int courseId) {
+        return registry.snapshot(courseId);
+    }
+
+    public int[] getEnrolledCourses(int studentId) {
+        return registry.getEnrolledCourses(studentId);
+    }
+
+    public int[] getWaitingCourses(int studentId) {
+        return registry.getWaitingCourses(studentId);
+    }
+
+    /**
+     * Чтение состояния курса реплики (см. {@link CourseRegistry#read(int, Function)}).
+     */
+    public <R> R read(int courseId, Function<? super Course, R> reader) {
+        return registry.read(courseId, reader);
+    }
+
+    /**
+     * Идентификатор реплики в журнале.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Номер последней применённой к реплике команды.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Проверка, что реплика подключена к журналу.
+     */
+    public boolean isConnected() {
+        return session != null;
+    }
+
+    /**
+     * Отключение от журнала: реплика перестаёт получать новые команды,
+     * но продолжает отвечать на чтение; изменения через неё отклоняются
+     * с {@link IllegalStateException} до {@link #reconnect()}.
+     */
+    public void disconnect() {
+        ReplicationTransport.Session closed;
+        synchronized (this) {
+            closed = session;
+            session = null;
+            receiver = null;
+        }
+        if (closed != null) {
+            try {
+                closed.close();
+            } catch (IOException e) {
+                // сеанс уже разорван
+            }
+        }
+    }
+
+    /**
+     * Повторное подключение: реплика получает пропущенные команды или,
+     * если журнал их уже не хранит или реплика устарела после сбоя, снимок состояния.
+     *
+     * @throws UncheckedIOException если не удалось открыть сеанс с журналом.
+     */
+    public synchronized void reconnect() {
+        if (session != null) {
+            return;
+        }
+        SessionReceiver opening = new SessionReceiver();
+        receiver = opening;
+        try {
+            session = transport.connect(id, stale ? 0 : appliedSequence, opening);
+        } catch (IOException e) {
+            receiver = null;
+            throw new UncheckedIOException(e);
+        }
+        id = session.getReplicaId();
+    }
+
+    /**
+     * Отключение от журнала.
+     */
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> CompletableFuture<R> submit(int type, int courseId, int[] values) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        ReplicationTransport.Session session = this.session;
+        if (session == null) {
+            result.completeExceptionally(new IllegalStateException("Реплика отключена от журнала"));
+            return (CompletableFuture<R>) result;
+        }
+        long request = lastRequest.incrementAndGet();
+        pending.put(request, result);
+        try {
+            session.submit(request, type, courseId, values);
+        } catch (IOException e) {
+            pending.remove(request);
+            result.completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            pending.remove(request);
+            result.completeExceptionally(e);
+        }
+        return (CompletableFuture<R>) result;
+    }
+
+    /**
+     * Отключение после сбоя сеанса, если он ещё текущий.
+     */
+    private void failed(SessionReceiver failed, Exception cause) {
+        synchronized (this) {
+            if (receiver != failed) {
+                return;
+            }
+            session = null;
+            receiver = null;
+            stale = true;
+        }
+        IllegalStateException error = new IllegalStateException("Сеанс с журналом сорвался, результат команды неизвестен", cause);
+        for (Long request : pending.keySet()) {
+            CompletableFuture<Object> result = pending.remove(request);
+            if (result != null) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+        }
+    }
+
+    private void drain() {
+        ReplicatedCommand command;
+        for (int i = 0; i < BATCH_SIZE && (command = inbox.poll()) != null; i++) {
+            if (command.error != null) {
+                reject(command);
+            } else if (command.snapshot != null) {
+                install(command);
+            } else if (command.sequence == appliedSequence + 1) {
+                apply(command);
+            }
+        }
+        scheduled.set(false);
+        if (!inbox.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void apply(ReplicatedCommand command) {
+        Object outcome = null;
+        RuntimeException error = null;
+        try {
+            outcome = registry.apply(command.type, command.courseId, command.values, command.values.length);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        appliedSequence = command.sequence;
+        CompletableFuture<Object> result = command.origin == id ? pending.remove(command.request) : null;
+        if (result != null) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(outcome);
+            }
+        }
+    }
+
+    private void reject(ReplicatedCommand rejection) {
+        CompletableFuture<Object> result = rejection.origin == id ? pending.remove(rejection.request) : null;
+        if (result != null) {
+            result.completeExceptionally(rejection.error);
+        }
+    }
+
+    /**
+     * Замена состояния снимком, если он новее применённых команд или реплика
+     * устарела после сбоя. Чтение до замены обслуживается прежним реестром.
+     */
+    private void install(ReplicatedCommand snapshot) {
+        if (snapshot.sequence <= appliedSequence && !stale) {
+            return;
+        }
+        CourseRegistry restored = new CourseRegistry(CourseRegistry.DEFAULT_STRIPES, null, storage);
+        for (Map.Entry<Integer, RosterSnapshot> entry : snapshot.snapshot.entrySet()) {
+            RosterSnapshot roster = entry.getValue();
+            restored.install(entry.getKey(), Course.restore(roster.getMaxStudents(), storage,
+                    roster.getEnrollmentArray(), roster.getWaitingArray()));
+        }
+        registry = restored;
+        appliedSequence = snapshot.sequence;
+        stale = false;
+    }
+
+    /**
+     * Получатель элементов одного сеанса.
+     */
+    private final class SessionReceiver implements ReplicationTransport.Receiver {
+
+        @Override
+        public void deliver(ReplicatedCommand command) {
+            inbox.offer(command);
+            schedule();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            CourseReplica.this.failed(this, cause);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Компактный снимок состояния набора курсов на диске.
+ * <p>
+ * Формат (все числа — big-endian): заголовок из сигнатуры, версии формата,
+ * номера сегмента {@link EnrollmentLog}, с которого нужно продолжить
+ * воспроизведение, и количества курсов; затем для каждого курса —
+ * идентификатор, максимальное количество студентов, размеры списков
+ * записавшихся и ожидающих, сами идентификаторы студентов в порядке списков
+ * и те же списки, упорядоченные по возрастанию идентификаторов. Упорядоченные
+ * копии нужны {@link MappedCourseSnapshot}, который ищет студента двоичным
+ * поиском прямо в отображённом файле; {@link #read} их пропускает. Файлы
+ * первой версии, без упорядоченных копий, по-прежнему читаются через {@link #read}.
+ * Снимок сначала пишется во временный файл, синхронизируется с диском и лишь
+ * затем атомарно заменяет прежний.
+ */
+public final class CourseSnapshotFile {
+
+    static final int MAGIC = 0x43525353;
+    static final int VERSION = 2;
+    private static final int UNSORTED_VERSION = 1;
+    static final int HEADER_SIZE = 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CourseSnapshotFile() {
+    }
+
+    /**
+     * Запись снимка набора курсов, не связанного с журналом изменений.
+     * Такой снимок можно открыть через {@link MappedCourseSnapshot}.
+     *
+     * @param file    файл снимка.
+     * @param courses курсы по идентификаторам.
+     */
+    public static void write(Path file, Map<Integer, Course> courses) throws IOException {
+        write(file, 0, courses);
+    }
+
+    /**
+     * Запись снимка набора курсов.
+     *
+     * @param file       файл снимка.
+     * @param logSegment номер сегмента журнала, с которого продолжается воспроизведение.
+     * @param courses    курсы по идентификаторам.
+     */
+    public static void write(Path file, long logSegment, Map<Integer, Course> courses) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(logSegment).putInt(courses.size());
+            for (Map.Entry<Integer, Course> entry : courses.entrySet()) {
+                Course course = entry.getValue();
+                int[] enrolled = course.getEnrollmentArray();
+                int[] waiting = course.getWaitingArray();
+                ensure(out, buffer, 16);
+                buffer.putInt(entry.getKey()).putInt(course.getMaxStudents())
+                        .putInt(enrolled.length).putInt(waiting.length);
+                putAll(out, buffer, enrolled);
+                putAll(out, buffer, waiting);
+                Arrays.sort(enrolled);
+                Arrays.sort(waiting);
+                putAll(out, buffer, enrolled);
+                putAll(out, buffer, waiting);
+            }
+            drain(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Чтение снимка.
+     *
+     * @param file     файл снимка.
+     * @param consumer получатель восстановленных курсов.
+     * @return номер сегмента журнала, с которого нужно продолжить воспроизведение.
+     */
+    public static long read(Path file, CourseConsumer consumer) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            fill(in, buffer, HEADER_SIZE);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version != VERSION && version != UNSORTED_VERSION) {
+                throw new IOException("Неизвестный формат снимка: " + file);
+            }
+            long logSegment = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                fill(in, buffer, 16);
+                int courseId = buffer.getInt();
+                int maxStudents = buffer.getInt();
+                int[] enrolled = new int[buffer.getInt()];
+                int[] waiting = new int[buffer.getInt()];
+                getAll(in, buffer, enrolled);
+                getAll(in, buffer, waiting);
+                if (version == VERSION) {
+                    skip(in, buffer, 4L * (enrolled.length + waiting.length));
+                }
+                consumer.course(courseId, Course.restore(maxStudents, enrolled, waiting));
+            }
+            return logSegment;
+        }
+    }
+
+    /**
+     * Получатель курсов, прочитанных из снимка.
+     */
+    public interface CourseConsumer {
+        void course(int courseId, Course course);
+    }
+
+    private static void putAll(FileChannel out, ByteBuffer buffer, int[] values) throws IOException {
+        for (int value : values) {
+            if (buffer.remaining() < 4) {
+                drain(out, buffer);
+            }
+            buffer.putInt(value);
+        }
+    }
+
+    private static void ensure(FileChannel out, ByteBuffer buffer, int length) throws IOException {
+        if (buffer.remaining() < length) {
+            drain(out, buffer);
+        }
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void getAll(FileChannel in, ByteBuffer buffer, int[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (buffer.remaining() < 4) {
+                fill(in, buffer, 4);
+            }
+            values[i] = buffer.getInt();
+        }
+    }
+
+    private static void skip(FileChannel in, ByteBuffer buffer, long length) throws IOException {
+        long left = length;
+        while (left > buffer.remaining()) {
+            left -= buffer.remaining();
+            buffer.position(buffer.limit());
+            fill(in, buffer, 1);
+        }
+        buffer.position(buffer.position() + (int) left);
+    }
+
+    /**
+     * Дочитывание в буфер, пока в нём не окажется хотя бы {@code length} байт.
+     */
+    private static void fill(FileChannel in, ByteBuffer buffer, int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < length) {
+            if (in.read(buffer) < 0) {
+                throw new IOException("Неожиданный конец файла снимка");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,164 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Arrays;
+
+/**
+ * Сводные показатели набора курсов, вычисленные {@link CourseAnalytics}
+ * или {@link CourseRegistry#analyze(int)}.
+ */
+public final class CourseStatistics {
+
+    private final int courseCount;
+    private final long totalSeats;
+    private final long totalEnrolled;
+    private final long totalWaitlisted;
+    private final int fullyEnrolledCount;
+    private final int[] longestWaitingCourses;
+    private final int[] longestWaitingSizes;
+
+    private CourseStatistics(Accumulator accumulator) {
+        this.courseCount = accumulator.courseCount;
+        this.totalSeats = accumulator.totalSeats;
+        this.totalEnrolled = accumulator.totalEnrolled;
+        this.totalWaitlisted = accumulator.totalWaitlisted;
+        this.fullyEnrolledCount = accumulator.fullyEnrolledCount;
+        long[] top = Arrays.copyOf(accumulator.top, accumulator.topSize);
+        Arrays.sort(top);
+        this.longestWaitingCourses = new int[top.length];
+        this.longestWaitingSizes = new int[top.length];
+        for (int i = 0; i < top.length; i++) {
+            long key = top[top.length - 1 - i];
+            longestWaitingSizes[i] = (int) (key >>> 32);
+            longestWaitingCourses[i] = (int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL)) ^ Integer.MIN_VALUE;
+        }
+    }
+
+    public int getCourseCount() {
+        return courseCount;
+    }
+
+    /**
+     * Суммарное количество мест во всех курсах.
+     */
+    public long getTotalSeats() {
+        return totalSeats;
+    }
+
+    public long getTotalEnrolled() {
+        return totalEnrolled;
+    }
+
+    /**
+     * Доля занятых мест по всем курсам вместе; 0, если мест нет.
+     */
+    public double getFillRatio() {
+        return totalSeats == 0 ? 0 : (double) totalEnrolled / totalSeats;
+    }
+
+    public long getTotalWaitlisted() {
+        return totalWaitlisted;
+    }
+
+    /**
+     * Количество полностью заполненных курсов (см. {@link Course#isFullyEnrolled()}).
+     */
+    public int getFullyEnrolledCount() {
+        return fullyEnrolledCount;
+    }
+
+    /**
+     * Идентификаторы курсов с самыми длинными непустыми списками ожидания
+     * по убыванию длины; при равной длине — по возрастанию идентификатора.
+     */
+    public int[] getLongestWaitingCourses() {
+        return longestWaitingCourses.clone();
+    }
+
+    /**
+     * Длины списков ожидания курсов из {@link #getLongestWaitingCourses()}.
+     */
+    public int[] getLongestWaitingSizes() {
+        return longestWaitingSizes.clone();
+    }
+
+    /**
+     * Частичный итог по части курсов. Каждая задача параллельного обхода ведёт
+     * свой экземпляр, итоги задач объединяются через {@link #merge(Accumulator)}.
+     * Лучшие списки ожидания хранятся в куче минимумов из не более чем
+     * {@code topN} ключей вида «длина в старших 32 битах, обратный порядок
+     * идентификатора курса — в младших».
+     */
+    static final class Accumulator {
+        private final long[] top;
+        private int topSize;
+        private int courseCount;
+        private long totalSeats;
+        private long totalEnrolled;
+        private long totalWaitlisted;
+        private int fullyEnrolledCount;
+
+        Accumulator(int topN) {
+            if (topN < 0) {
+                throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + topN);
+            }
+            this.top = new long[topN];
+        }
+
+        void add(int courseId, int maxStudents, int enrolled, int waiting) {
+            courseCount++;
+            totalSeats += maxStudents;
+            totalEnrolled += enrolled;
+            totalWaitlisted += waiting;
+            if (enrolled >= maxStudents) {
+                fullyEnrolledCount++;
+            }
+            if (waiting > 0) {
+                offer(((long) waiting << 32) | (0xFFFFFFFFL - ((courseId ^ Integer.MIN_VALUE) & 0xFFFFFFFFL)));
+            }
+        }
+
+        Accumulator merge(Accumulator other) {
+            courseCount += other.courseCount;
+            totalSeats += other.totalSeats;
+            totalEnrolled += other.totalEnrolled;
+            totalWaitlisted += other.totalWaitlisted;
+            fullyEnrolledCount += other.fullyEnrolledCount;
+            for (int i = 0; i < other.topSize; i++) {
+                offer(other.top[i]);
+            }
+            return this;
+        }
+
+        CourseStatistics toStatistics() {
+            return new CourseStatistics(this);
+        }
+
+        private void offer(long key) {
+            if (topSize < top.length) {
+                int i = topSize++;
+                while (i > 0 && top[(i - 1) >>> 1] > key) {
+                    top[i] = top[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                top[i] = key;
+            } else if (top.length > 0 && key > top[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= topSize) {
+                        break;
+                    }
+                    if (child + 1 < topSize && top[child + 1] < top[child]) {
+                        child++;
+                    }
+                    if (top[child] >= key) {
+                        break;
+                    }
+                    top[i] = top[child];
+                    i = child;
+                }
+                top[i] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная обработка запросов на запись и удаление студентов.
+ * <p>
+ * Запросы к одному курсу складываются в его очередь, которую в каждый момент
+ * разбирает не более одной задачи, поэтому потоки, принимающие запросы, не
+ * соревнуются за блокировку популярного курса. Задача забирает из очереди
+ * пачку запросов, применяет их к {@link CourseRegistry} за один захват
+ * блокировки сегмента курса и уже после её освобождения завершает
+ * {@link CompletableFuture} каждого запроса. Если очередь после пачки не пуста,
+ * задача ставится в исполнитель заново, чтобы не занимать поток в ущерб другим курсам.
+ * <p>
+ * Запросы одного курса применяются в порядке поступления в очередь.
+ * <p>
+ * Очередь создаётся только для существующего курса (запрос к неизвестному курсу
+ * сразу завершается {@link EnrollmentOutcome#NOT_FOUND}) и удаляется, как только
+ * опустеет, поэтому число очередей не превышает числа курсов с запросами в работе.
+ * Запросы добавляются в очередь и очередь удаляется атомарно относительно
+ * друг друга (через {@link ConcurrentHashMap#compute}), так что запрос не может
+ * попасть в уже удалённую очередь.
+ */
+public class EnrollmentEngine implements AutoCloseable {
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final CourseRegistry registry;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final int batchSize;
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Конструктор движка с собственным исполнителем (см. {@link #defaultExecutor()}),
+     * который останавливается в {@link #close()}.
+     *
+     * @param registry реестр курсов.
+     */
+    public EnrollmentEngine(CourseRegistry registry) {
+        this(registry, defaultExecutor(), DEFAULT_BATCH_SIZE, true);
+    }
+
+    /**
+     * Конструктор.
+     *
+     * @param registry  реестр курсов.
+     * @param executor  исполнитель, в котором разбираются очереди курсов;
+     *                  движок его не останавливает.
+     * @param batchSize максимальное количество запросов, применяемых за один захват блокировки.
+     */
+    public EnrollmentEngine(CourseRegistry registry, Executor executor, int batchSize) {
+        this(registry, executor, batchSize, false);
+    }
+
+    private EnrollmentEngine(CourseRegistry registry, Executor executor, int batchSize, boolean own) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным: " + batchSize);
+        }
+        this.registry = registry;
+        this.executor = executor;
+        this.ownExecutor = own ? (ExecutorService) executor : null;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Исполнитель по умолчанию: виртуальный поток на задачу, если среда
+     * выполнения их поддерживает, иначе пул из потоков-демонов по числу процессоров.
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "enrollment-engine");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Запрос на запись студента на курс.
+     *
+     * @return результат: {@link EnrollmentOutcome#ENROLLED}, {@link EnrollmentOutcome#WAITLISTED},
+     * {@link EnrollmentOutcome#DUPLICATE} или {@link EnrollmentOutcome#NOT_FOUND}, если курса нет.
+     */
+    public CompletableFuture<EnrollmentOutcome> enroll(int courseId, int studentId) {
+        return submit(courseId, new Request(true, studentId));
+    }
+
+    /**
+     * Запрос на удаление студента из курса.
+     *
+     * @return результат: {@link EnrollmentOutcome#UNENROLLED} или {@link EnrollmentOutcome#NOT_FOUND},
+     * если нет курса или студента в нём.
+     */
+    public CompletableFuture<EnrollmentOutcome> unenroll(int courseId, int studentId) {
+        return submit(courseId, new Request(false, studentId));
+    }
+
+    /**
+     * Остановка движка: новые запросы отклоняются, уже принятые обрабатываются
+     * до конца. Собственный исполнитель движка останавливается.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Mailbox mailbox : mailboxes.values()) {
+            while (mailbox.scheduled.get() || !mailbox.queue.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            try {
+                ownExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private CompletableFuture<EnrollmentOutcome> submit(int courseId, Request request) {
+        if (closed) {
+            request.future.completeExceptionally(new IllegalStateException("Движок остановлен"));
+            return request.future;
+        }
+        Mailbox mailbox = mailboxes.compute(courseId, (id, current) -> {
+            if (current == null) {
+                if (!registry.containsCourse(id)) {
+                    return null;
+                }
+                current = new Mailbox(id);
+            }
+            current.queue.offer(request);
+            return current;
+        });
+        if (mailbox == null) {
+            request.future.complete(EnrollmentOutcome.NOT_FOUND);
+            return request.future;
+        }
+        mailbox.schedule();
+        return request.future;
+    }
+
+    /**
+     * Количество очередей курсов, ожидающих разбора.
+     */
+    int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    private static final class Request {
+        final boolean enroll;
+        final int studentId;
+        final CompletableFuture<EnrollmentOutcome> future = new CompletableFuture<>();
+        EnrollmentOutcome outcome;
+        RuntimeException error;
+
+        Request(boolean enroll, int studentId) {
+            this.enroll = enroll;
+            this.studentId = studentId;
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(outcome);
+            }
+        }
+    }
+
+    /**
+     * Очередь запросов одного курса. Флаг {@code scheduled} гарантирует, что
+     * очередь разбирает не более одной задачи, поэтому массив {@code batch}
+     * используется без синхронизации.
+     */
+    private final class Mailbox implements Runnable {
+        final int courseId;
+        final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final Request[] batch = new Request[batchSize];
+
+        Mailbox(int courseId) {
+            this.courseId = courseId;
+        }
+
+        void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                Request request;
+                while ((request = queue.poll()) != null) {
+                    request.future.completeExceptionally(e);
+                }
+                retireIfEmpty();
+                scheduled.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            int count = 0;
+            Request request;
+            while (count < batch.length && (request = queue.poll()) != null) {
+                batch[count++] = request;
+            }
+            if (count > 0) {
+                int size = count;
+                try {
+                    registry.runLocked(courseId, () -> apply(size));
+                } catch (RuntimeException e) {
+                    for (int i = 0; i < size; i++) {
+                        if (batch[i].outcome == null) {
+                            batch[i].error = e;
+                        }
+                    }
+                }
+                for (int i = 0; i < size; i++) {
+                    batch[i].complete();
+                }
+                Arrays.fill(batch, 0, size, null);
+            }
+            retireIfEmpty();
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Удаление опустевшей очереди из таблицы. Пустота проверяется под той же
+         * блокировкой ячейки таблицы, под которой добавляются запросы, поэтому
+         * после удаления в эту очередь ничего не попадёт.
+         */
+        private void retireIfEmpty() {
+            if (queue.isEmpty()) {
+                mailboxes.computeIfPresent(courseId, (id, current) -> current == this && queue.isEmpty() ? null : current);
+            }
+        }
+
+        private void apply(int count) {
+            if (!registry.containsCourse(courseId)) {
+                for (int i = 0; i < count; i++) {
+                    batch[i].outcome = EnrollmentOutcome.NOT_FOUND;
+                }
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                Request request = batch[i];
+                try {
+                    request.outcome = request.enroll
+                            ? registry.enroll(courseId, request.studentId)
+                            : registry.unenroll(courseId, request.studentId);
+                } catch (RuntimeException e) {
+                    request.error = e;
+                }
+            }
+        }
+    }
+}
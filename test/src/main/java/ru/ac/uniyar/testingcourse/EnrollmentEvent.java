@@ -0,0 +1,70 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Событие изменения состава курса.
+ * <p>
+ * Событие не ссылается на сам курс: подписчик получает его в потоке диспетчера,
+ * когда курс уже мог измениться, а {@link Course} не потокобезопасен. Курс
+ * определяется по идентификатору, который назначил его владелец
+ * (см. {@link Course#setEventDispatcher(EnrollmentEventDispatcher, int)}).
+ */
+public final class EnrollmentEvent {
+
+    /**
+     * Вид изменения.
+     */
+    public enum Type {
+        /** Студент записан на курс. */
+        ENROLLED,
+        /** Студент помещён в список ожидания. */
+        WAITLISTED,
+        /** Студент удалён из числа записавшихся или из списка ожидания. */
+        UNENROLLED,
+        /** Студент переведён из списка ожидания в список записавшихся. */
+        PROMOTED,
+        /** Студент переведён из списка записавшихся в начало списка ожидания при сокращении числа мест. */
+        DEMOTED,
+        /** Студент удалён из списка ожидания или лишён неподтверждённого места по истечении срока. */
+        EXPIRED
+    }
+
+    private final int courseId;
+    private final Type type;
+    private final int studentId;
+    private final long sequence;
+
+    EnrollmentEvent(int courseId, Type type, int studentId, long sequence) {
+        this.courseId = courseId;
+        this.type = type;
+        this.studentId = studentId;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Идентификатор курса, в котором произошло изменение.
+     */
+    public int getCourseId() {
+        return courseId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    /**
+     * Порядковый номер события в пределах курса. Номера возрастают на единицу,
+     * поэтому пропуск номера означает, что событие было отброшено диспетчером.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + courseId + ", " + studentId + ", #" + sequence + ")";
+    }
+}
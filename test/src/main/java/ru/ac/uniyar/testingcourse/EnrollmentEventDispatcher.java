@@ -0,0 +1,106 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Доставка событий {@link EnrollmentEvent} подписчикам.
+ * <p>
+ * События складываются в ограниченную очередь и отдаются подписчикам пачками
+ * из отдельного потока, поэтому медленный подписчик не задерживает запись на курс.
+ * Если очередь переполнена, новое событие отбрасывается и учитывается в
+ * {@link #getDroppedCount()}; подписчик обнаруживает потерю по пропуску
+ * в номерах событий курса и может заново прочитать его списки.
+ * Один диспетчер может обслуживать любое количество курсов.
+ */
+public class EnrollmentEventDispatcher implements AutoCloseable {
+
+    private final ArrayBlockingQueue<EnrollmentEvent> queue;
+    private final int batchSize;
+    private final CopyOnWriteArrayList<EnrollmentListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Конструктор.
+     *
+     * @param capacity  максимальное количество недоставленных событий.
+     * @param batchSize максимальный размер пачки, передаваемой подписчикам.
+     */
+    public EnrollmentEventDispatcher(int capacity, int batchSize) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.thread = new Thread(this::dispatchLoop, "enrollment-event-dispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void addListener(EnrollmentListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(EnrollmentListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Количество событий, отброшенных из-за переполнения очереди.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Постановка события в очередь без ожидания.
+     */
+    void publish(EnrollmentEvent event) {
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Остановка диспетчера; события, уже стоящие в очереди, доставляются.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        List<EnrollmentEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EnrollmentEvent first = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            List<EnrollmentEvent> events = Collections.unmodifiableList(new ArrayList<>(batch));
+            batch.clear();
+            for (EnrollmentListener listener : listeners) {
+                try {
+                    listener.onEvents(events);
+                } catch (RuntimeException e) {
+                    // ошибка одного подписчика не должна останавливать доставку остальным
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.List;
+
+/**
+ * Получатель событий изменения состава курсов.
+ */
+public interface EnrollmentListener {
+
+    /**
+     * Обработка очередной пачки событий. Вызывается из потока диспетчера;
+     * события одного курса приходят в порядке их номеров.
+     *
+     * @param events неизменяемый список событий.
+     */
+    void onEvents(List<EnrollmentEvent> events);
+}
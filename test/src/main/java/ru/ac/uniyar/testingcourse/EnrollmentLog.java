@@ -0,0 +1,464 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (write-ahead log) операций над курсами.
+ * <p>
+ * Журнал хранится в каталоге в виде последовательности сегментов
+ * {@code segment-NNNNNNNNNN.log}, дописываемых только в конец через
+ * {@link FileChannel}. Операции добавляются в буфер в памяти, а отдельный
+ * поток записывает накопленное одним пакетом и вызывает {@code force}
+ * (групповая фиксация): пока идёт синхронизация с диском, новые записи
+ * копятся в другом буфере и попадут в следующий пакет. Поэтому вызывающий
+ * поток не ждёт fsync; если подтверждение долговечности нужно, следует
+ * вызвать {@link #sync()}.
+ * <p>
+ * Пакет на диске: длина полезной части, её CRC32 и сами записи. При открытии
+ * журнала недописанный последний пакет отбрасывается. Запись состоит из
+ * типа (байт), идентификатора курса и либо одного целого значения, либо
+ * количества и списка значений для групповых операций, изменения числа мест и обмена курсов.
+ */
+public class EnrollmentLog implements Closeable {
+
+    /** Создание курса, значение — максимальное количество студентов. */
+    public static final int CREATE = 1;
+    /** Удаление курса. */
+    public static final int REMOVE = 2;
+    /** Запись студента. */
+    public static final int ENROLL = 3;
+    /** Отмена записи студента. */
+    public static final int UNENROLL = 4;
+    /** Перевод студента из списка ожидания; при восстановлении не применяется. */
+    public static final int PROMOTE = 5;
+    /** Групповая запись студентов. */
+    public static final int ENROLL_ALL = 6;
+    /** Групповая отмена записи студентов. */
+    public static final int UNENROLL_ALL = 7;
+    /**
+     * Изменение числа мест, значения — новый максимум и порядковый номер
+     * {@link CapacityReductionPolicy}.
+     */
+    public static final int RESIZE = 8;
+    /**
+     * Атомарный обмен курса, идентификатор курса — прежний курс, значения —
+     * студент и новый курс.
+     */
+    public static final int SWAP = 9;
+    /**
+     * Истечение срока студента в списке ожидания или срока подтверждения перевода
+     * (см. {@link CourseRegistry#enableDeadlines(long, java.util.concurrent.TimeUnit)}),
+     * значение — студент.
+     */
+    public static final int EXPIRE = 10;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BATCH_HEADER = 8;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final Thread writer;
+    private FileChannel channel;
+    private long segment;
+
+    private ByteBuffer current = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    private EnrollmentLog(Path directory, long segment, FileChannel channel) {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = channel;
+        this.writer = new Thread(this::writeLoop, "enrollment-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Открытие журнала в каталоге. Недописанный хвост последнего сегмента
+     * обрезается, новые записи дописываются в его конец.
+     *
+     * @param directory каталог журнала; создаётся при необходимости.
+     */
+    public static EnrollmentLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = segments(directory);
+        long last = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        FileChannel channel = FileChannel.open(segmentFile(directory, last),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long valid = scan(channel, null);
+        channel.truncate(valid);
+        channel.position(valid);
+        return new EnrollmentLog(directory, last, channel);
+    }
+
+    /**
+     * Добавление записи с одним значением.
+     *
+     * @throws UncheckedIOException если фоновая запись завершилась ошибкой.
+     */
+    public synchronized void append(int type, int courseId, int value) {
+        ByteBuffer buffer = reserve(9);
+        buffer.put((byte) type).putInt(courseId).putInt(value);
+        appended += 9;
+    }
+
+    /**
+     * Добавление записи групповой операции.
+     *
+     * @throws UncheckedIOException если фоновая запись завершилась ошибкой.
+     */
+    public synchronized void append(int type, int courseId, int[] values) {
+        int length = recordSize(type, values.length);
+        putRecord(reserve(length), type, courseId, values, values.length);
+        appended += length;
+    }
+
+    /**
+     * Ожидание, пока все добавленные к этому моменту записи не будут сохранены на диск.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = appended;
+            while (durable < target) {
+                if (failure != null) {
+                    throw new IOException("Ошибка записи журнала", failure);
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Ожидание записи журнала прервано", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Начало нового сегмента. Всё добавленное ранее записывается и
+     * синхронизируется с диском в текущем сегменте.
+     *
+     * @return номер нового сегмента; воспроизведение с него не затрагивает прежние записи.
+     */
+    public long roll() throws IOException {
+        ioLock.lock();
+        try {
+            flush();
+            channel.close();
+            segment++;
+            channel = FileChannel.open(segmentFile(directory, segment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return segment;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Удаление сегментов с номерами меньше заданного (например, уже покрытых снимком).
+     */
+    public void deleteSegmentsBefore(long first) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < first) {
+                Files.deleteIfExists(segmentFile(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Воспроизведение записей начиная с заданного сегмента.
+     * Вызывается до добавления новых записей.
+     *
+     * @param fromSegment номер первого воспроизводимого сегмента.
+     * @param visitor     получатель записей.
+     */
+    public void replay(long fromSegment, Visitor visitor) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < fromSegment) {
+                continue;
+            }
+            try (FileChannel in = FileChannel.open(segmentFile(directory, number), StandardOpenOption.READ)) {
+                long valid = scan(in, visitor);
+                if (valid != in.size() && number != segment) {
+                    throw new IOException("Повреждён сегмент журнала " + number);
+                }
+            }
+        }
+    }
+
+    /**
+     * Завершение работы: оставшиеся записи сохраняются на диск.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioLock.lock();
+        try {
+            flush();
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Получатель записей при воспроизведении журнала.
+     */
+    public interface Visitor {
+        /**
+         * @param type     тип записи.
+         * @param courseId идентификатор курса.
+         * @param values   значения; массив переиспользуется между вызовами.
+         * @param count    количество значений.
+         */
+        void record(int type, int courseId, int[] values, int count);
+    }
+
+    /**
+     * Проверка, что запись данного типа хранит список значений с их количеством,
+     * а не одно значение.
+     */
+    static boolean hasValueList(int type) {
+        return type == ENROLL_ALL || type == UNENROLL_ALL || type == RESIZE || type == SWAP;
+    }
+
+    /**
+     * Размер записи в байтах.
+     */
+    static int recordSize(int type, int count) {
+        return hasValueList(type) ? 9 + 4 * count : 9;
+    }
+
+    /**
+     * Запись в буфер в формате журнала: байт типа, курс, затем либо одно значение
+     * (0, если значений нет), либо количество значений и сами значения.
+     */
+    static void putRecord(ByteBuffer buffer, int type, int courseId, int[] values, int count) {
+        buffer.put((byte) type).putInt(courseId);
+        if (hasValueList(type)) {
+            buffer.putInt(count);
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(values[i]);
+            }
+        } else {
+            buffer.putInt(count > 0 ? values[0] : 0);
+        }
+    }
+
+    /**
+     * Чтение одной записи из буфера и передача её обработчику.
+     *
+     * @param values массив для значений; переиспользуется, если в нём хватает места.
+     * @return массив, в который прочитаны значения.
+     * @throws IOException если количество значений не соответствует длине буфера.
+     */
+    static int[] readRecord(ByteBuffer buffer, int[] values, Visitor visitor) throws IOException {
+        if (buffer.remaining() < 9) {
+            throw new IOException("Неполная запись журнала");
+        }
+        int type = buffer.get();
+        int courseId = buffer.getInt();
+        int count = 1;
+        if (hasValueList(type)) {
+            count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 4) {
+                throw new IOException("Неверное количество значений в записи журнала: " + count);
+            }
+            if (values.length < count) {
+                values = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                values[i] = buffer.getInt();
+            }
+        } else {
+            values[0] = buffer.getInt();
+        }
+        visitor.record(type, courseId, values, count);
+        return values;
+    }
+
+    private ByteBuffer reserve(int length) {
+        checkOpen();
+        while (current.remaining() < length) {
+            if (current.position() == 0) {
+                current = ByteBuffer.allocate(length);
+                break;
+            }
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание места в буфере журнала прервано", e);
+            }
+            checkOpen();
+        }
+        if (current.position() == 0) {
+            notifyAll();
+        }
+        return current;
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            synchronized (this) {
+                while (current.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (current.position() == 0) {
+                    return;
+                }
+            }
+            ioLock.lock();
+            try {
+                flush();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Запись накопленного буфера одним пакетом. Вызывается под {@link #ioLock}.
+     */
+    private void flush() throws IOException {
+        ByteBuffer batch;
+        long end;
+        synchronized (this) {
+            if (current.position() == 0) {
+                return;
+            }
+            batch = current;
+            current = spare;
+            spare = null;
+            end = appended;
+            notifyAll();
+        }
+        batch.flip();
+        CRC32 crc = new CRC32();
+        crc.update(batch.array(), 0, batch.limit());
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER);
+        header.putInt(batch.limit()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] buffers = {header, batch};
+        while (header.hasRemaining() || batch.hasRemaining()) {
+            channel.write(buffers);
+        }
+        channel.force(false);
+        batch.clear();
+        synchronized (this) {
+            spare = batch.capacity() == BUFFER_SIZE ? batch : ByteBuffer.allocate(BUFFER_SIZE);
+            durable = end;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Чтение пакетов сегмента с проверкой контрольных сумм.
+     *
+     * @return длина корректной части сегмента.
+     */
+    private static long scan(FileChannel in, Visitor visitor) throws IOException {
+        long size = in.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER);
+        int[] values = new int[16];
+        while (position + BATCH_HEADER <= size) {
+            header.clear();
+            readFully(in, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + BATCH_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer batch = ByteBuffer.allocate(length);
+            readFully(in, batch, position + BATCH_HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(batch.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (visitor != null) {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    values = readRecord(batch, values, visitor);
+                }
+            }
+            position += BATCH_HEADER + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Неожиданный конец сегмента журнала");
+            }
+        }
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                result.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("%s%010d%s", PREFIX, segment, SUFFIX));
+    }
+}
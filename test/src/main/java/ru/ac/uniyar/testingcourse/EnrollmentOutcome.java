@@ -0,0 +1,21 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Результат обработки запроса на запись, удаление или обмен курса студента.
+ */
+public enum EnrollmentOutcome {
+    /** Студент записан на курс. */
+    ENROLLED,
+    /** Студент помещён в список ожидания. */
+    WAITLISTED,
+    /** Студент уже был записан на курс или стоял в списке ожидания. */
+    DUPLICATE,
+    /** Студент удалён из курса. */
+    UNENROLLED,
+    /** Курса не существует или удаляемого студента не было ни в одном из списков. */
+    NOT_FOUND,
+    /** Студент исчерпал квоту курсов (см. {@link CourseRegistry#setSeatQuota(int)}). */
+    QUOTA_EXCEEDED,
+    /** На курсе, куда студент переходит при обмене, нет свободных мест. */
+    COURSE_FULL
+}
@@ -0,0 +1,74 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Дерево Фенвика над массивом счётчиков: изменение элемента, сумма на префиксе
+ * и поиск позиции по номеру единицы выполняются за O(log n).
+ */
+final class FenwickTree {
+
+    private final int[] tree;
+
+    /**
+     * Дерево, в котором первые {@code ones} позиций содержат единицы, а остальные — нули.
+     * Строится за O(n).
+     *
+     * @param size размер; для {@link #select(int)} должен быть степенью двойки.
+     */
+    FenwickTree(int size, int ones) {
+        this(size, 0, ones);
+    }
+
+    /**
+     * Дерево, в котором единицы содержат позиции с {@code from} до {@code to}
+     * (не включая), а остальные — нули. Строится за O(n).
+     *
+     * @param size размер; для {@link #select(int)} должен быть степенью двойки.
+     */
+    FenwickTree(int size, int from, int to) {
+        tree = new int[size + 1];
+        for (int i = 1; i <= size; i++) {
+            int low = i - (i & -i);
+            tree[i] = Math.max(0, Math.min(i, to) - Math.max(low, from));
+        }
+    }
+
+    int size() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Прибавление {@code delta} к элементу с индексом {@code index} (с нуля).
+     */
+    void add(int index, int delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Сумма элементов с индексами от 0 до {@code index} включительно.
+     */
+    int prefixSum(int index) {
+        int sum = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Индекс элемента, на котором префиксная сумма впервые превышает {@code k}
+     * (то есть позиция (k+1)-й единицы, если элементы — нули и единицы).
+     */
+    int select(int k) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(size()); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= k) {
+                position = next;
+                k -= tree[next];
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,177 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Двоичная куча идентификаторов с приоритетами и индексом
+ * «идентификатор → позиция в куче». Минимальным считается элемент
+ * с наименьшим приоритетом, а при равенстве — с наименьшим порядковым
+ * номером, поэтому порядок извлечения детерминирован и устойчив.
+ * Добавление, извлечение минимума и удаление произвольного элемента — O(log n).
+ */
+final class IndexedIntHeap {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] ids = new int[MIN_CAPACITY];
+    private int[] priorities = new int[MIN_CAPACITY];
+    private long[] sequences = new long[MIN_CAPACITY];
+    private final IntIntHashMap index = new IntIntHashMap();
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Добавление элемента.
+     *
+     * @return false, если элемент уже содержится в куче.
+     */
+    boolean add(int id, int priority, long sequence) {
+        if (index.containsKey(id)) {
+            return false;
+        }
+        if (size == ids.length) {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+        }
+        ids[size] = id;
+        priorities[size] = priority;
+        sequences[size] = sequence;
+        index.put(id, size);
+        siftUp(size++);
+        return true;
+    }
+
+    /**
+     * Минимальный элемент.
+     *
+     * @throws NoSuchElementException если куча пуста.
+     */
+    int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return ids[0];
+    }
+
+    /**
+     * Извлечение минимального элемента.
+     *
+     * @throws NoSuchElementException если куча пуста.
+     */
+    int poll() {
+        int id = peek();
+        removeAt(0);
+        return id;
+    }
+
+    /**
+     * Удаление произвольного элемента.
+     *
+     * @return false, если элемента в куче не было.
+     */
+    boolean remove(int id) {
+        int position = index.get(id);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Первые {@code count} элементов в порядке извлечения; куча не изменяется.
+     * Выполняется за O(count * log count).
+     */
+    int[] top(int count) {
+        count = Math.min(count, size);
+        int[] result = new int[count];
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> less(a, b) ? -1 : less(b, a) ? 1 : 0);
+        if (count > 0) {
+            frontier.add(0);
+        }
+        for (int i = 0; i < count; i++) {
+            int position = frontier.poll();
+            result[i] = ids[position];
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                frontier.add(child);
+            }
+        }
+        return result;
+    }
+
+    private void removeAt(int position) {
+        index.remove(ids[position]);
+        int last = --size;
+        if (position != last) {
+            move(last, position);
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!less(position, parent)) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && less(left, smallest)) {
+                smallest = left;
+            }
+            if (right < size && less(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private boolean less(int a, int b) {
+        if (priorities[a] != priorities[b]) {
+            return priorities[a] < priorities[b];
+        }
+        return sequences[a] < sequences[b];
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        priorities[to] = priorities[from];
+        sequences[to] = sequences[from];
+        index.put(ids[to], to);
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        int priority = priorities[a];
+        long sequence = sequences[a];
+        move(b, a);
+        ids[b] = id;
+        priorities[b] = priority;
+        sequences[b] = sequence;
+        index.put(id, b);
+    }
+}
@@ -0,0 +1,176 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица с открытой адресацией (линейное пробирование), отображающая
+ * целочисленные ключи в неотрицательные целочисленные значения без упаковки
+ * в {@link Integer}. Ключом может быть любое число, признаком пустой ячейки
+ * служит нулевое значение во внутреннем массиве (значения хранятся со сдвигом
+ * на единицу). Удаление выполняется обратным сдвигом, поэтому «надгробий»
+ * в таблице не остаётся.
+ */
+final class IntIntHashMap {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    IntIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize ожидаемое количество ключей.
+     */
+    IntIntHashMap(int expectedSize) {
+        int capacity = tableSize(MIN_CAPACITY, expectedSize);
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Получение значения по ключу.
+     *
+     * @return значение или -1, если ключ отсутствует.
+     */
+    int get(int key) {
+        int[] keys = this.keys;
+        int[] values = this.values;
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask, probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+            int stored = values[slot];
+            if (stored == 0) {
+                return -1;
+            }
+            if (keys[slot] == key) {
+                return stored - 1;
+            }
+        }
+        return -1;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) >= 0;
+    }
+
+    /**
+     * Запись значения по ключу.
+     *
+     * @param value неотрицательное значение.
+     * @return предыдущее значение или -1, если ключа не было.
+     */
+    int put(int key, int value) {
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int stored = values[slot];
+            if (stored == 0) {
+                keys[slot] = key;
+                values[slot] = value + 1;
+                if (++size * 3 > keys.length * 2) {
+                    rehash(keys.length << 1);
+                }
+                return -1;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Удаление ключа.
+     *
+     * @return удалённое значение или -1, если ключа не было.
+     */
+    int remove(int key) {
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int stored = values[slot];
+            if (stored == 0) {
+                return -1;
+            }
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Расширение таблицы заранее, чтобы вместить {@code expectedSize} ключей.
+     */
+    void ensureCapacity(int expectedSize) {
+        int capacity = tableSize(keys.length, expectedSize);
+        if (capacity != keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Закрывает освободившуюся ячейку, сдвигая назад элементы той же цепочки.
+     */
+    private void shiftBack(int gap) {
+        for (int slot = (gap + 1) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+            int home = hash(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = 0;
+    }
+
+    /**
+     * Размер таблицы, при котором {@code expectedSize} ключей заполняют её не более чем на 2/3.
+     *
+     * @throws IllegalStateException если такая таблица не помещается в массив.
+     */
+    private static int tableSize(int capacity, int expectedSize) {
+        while ((long) capacity * 2 < (long) expectedSize * 3) {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Превышена максимальная ёмкость таблицы: " + expectedSize);
+            }
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,593 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Упорядоченное множество целых чисел без упаковки в {@link Integer}.
+ * <p>
+ * Элементы лежат в массиве в порядке добавления, признаки «живых» позиций —
+ * в битовой маске, а позиция каждого элемента — в {@link IntIntHashMap}.
+ * Добавление в конец, проверка принадлежности, удаление из любого места
+ * и извлечение первого элемента выполняются за O(1) (амортизированно):
+ * удаление лишь снимает бит, а освободившиеся позиции переиспользуются при
+ * уплотнении массива, когда он заполняется до конца.
+ * <p>
+ * Множество с индексом порядка ({@code ranked}) дополнительно хранит дерево
+ * Фенвика над признаками живых позиций, поэтому порядковый номер элемента
+ * и элемент по номеру находятся за O(log n) при любом числе удалений из середины.
+ * <p>
+ * {@link #snapshot()} за O(1) создаёт неизменяемую копию множества, которая
+ * разделяет с ним массивы элементов и признаков. Добавление в конец не затрагивает
+ * позиции, видимые копии, поэтому выполняется без копирования; первое после
+ * снимка удаление копирует только маску признаков (n / 64 слов), а уплотнение
+ * выполняется в новый массив вместо переноса на месте.
+ */
+final class IntOrderedSet implements IntRoster {
+
+    private static final int[] EMPTY = new int[0];
+    private static final long[] EMPTY_BITS = new long[0];
+    private static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] elements = EMPTY;
+    private long[] live = EMPTY_BITS;
+    private final IntIntHashMap positions;
+    private final boolean ranked;
+    private FenwickTree ranks;
+    private int head;
+    private int tail;
+    private int size;
+    private boolean elementsShared;
+    private boolean liveShared;
+    private volatile IntIntHashMap snapshotPositions;
+
+    IntOrderedSet() {
+        this(false);
+    }
+
+    /**
+     * @param ranked поддерживать ли индекс порядка для {@link #get(int)} и {@link #indexOf(int)}.
+     */
+    IntOrderedSet(boolean ranked) {
+        this.ranked = ranked;
+        this.positions = new IntIntHashMap();
+    }
+
+    /**
+     * Конструктор неизменяемого снимка. Позиции элементов снимка
+     * индексируются при первой проверке принадлежности.
+     */
+    private IntOrderedSet(int[] elements, long[] live, int head, int tail, int size) {
+        this.ranked = false;
+        this.positions = null;
+        this.elements = elements;
+        this.live = live;
+        this.head = head;
+        this.tail = tail;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        return positions().containsKey(value);
+    }
+
+    /**
+     * Неизменяемый снимок текущего состояния за O(1). Снимок можно читать из
+     * других потоков одновременно с изменением исходного множества.
+     */
+    @Override
+    public IntOrderedSet snapshot() {
+        if (positions == null) {
+            return this;
+        }
+        elementsShared = true;
+        liveShared = true;
+        return new IntOrderedSet(elements, live, head, tail, size);
+    }
+
+    /**
+     * Добавление элемента в конец.
+     *
+     * @return false, если элемент уже содержится в множестве.
+     */
+    @Override
+    public boolean add(int value) {
+        checkMutable();
+        if (positions.containsKey(value)) {
+            return false;
+        }
+        if (tail == elements.length) {
+            makeRoom();
+        }
+        elements[tail] = value;
+        live[tail >>> 6] |= 1L << tail;
+        if (ranks != null) {
+            ranks.add(tail, 1);
+        }
+        positions.put(value, tail);
+        tail++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Подготовка места для добавления ещё {@code count} элементов без
+     * промежуточных расширений массива.
+     */
+    @Override
+    public void ensureCapacity(int count) {
+        checkMutable();
+        if (count <= 0 || (long) tail + count <= elements.length) {
+            return;
+        }
+        int capacity = grow(Math.max(elements.length, MIN_CAPACITY), (long) size + count);
+        relocate(capacity, 0);
+        positions.ensureCapacity(size + count);
+    }
+
+    /**
+     * Удаление элемента из любого места.
+     *
+     * @return false, если элемента в множестве не было.
+     */
+    @Override
+    public boolean remove(int value) {
+        checkMutable();
+        int position = positions.remove(value);
+        if (position < 0) {
+            return false;
+        }
+        if (liveShared) {
+            live = live.clone();
+            liveShared = false;
+        }
+        live[position >>> 6] &= ~(1L << position);
+        if (ranks != null) {
+            ranks.add(position, -1);
+        }
+        size--;
+        if (size == 0) {
+            if (elementsShared) {
+                elements = new int[elements.length];
+                elementsShared = false;
+            }
+            head = 0;
+            tail = 0;
+        } else if (position == head) {
+            head = nextLive(head + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Первый элемент множества.
+     *
+     * @throws NoSuchElementException если множество пусто.
+     */
+    int first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    /**
+     * Извлечение первого элемента.
+     *
+     * @throws NoSuchElementException если множество пусто.
+     */
+    int removeFirst() {
+        int value = first();
+        remove(value);
+        return value;
+    }
+
+    /**
+     * Добавление элемента в начало. Место перед первым элементом
+     * резервируется через {@link #ensureFrontCapacity(int)}; без резерва
+     * множество переносится в новый массив с запасом в начале.
+     *
+     * @return false, если элемент уже содержится в множестве.
+     */
+    boolean addFirst(int value) {
+        checkMutable();
+        if (positions.containsKey(value)) {
+            return false;
+        }
+        if (size == 0) {
+            return add(value);
+        }
+        ensureFrontCapacity(1);
+        int position = --head;
+        elements[position] = value;
+        live[position >>> 6] |= 1L << position;
+        if (ranks != null) {
+            ranks.add(position, 1);
+        }
+        positions.put(value, position);
+        size++;
+        return true;
+    }
+
+    /**
+     * Подготовка места для добавления в начало ещё {@code count} элементов.
+     * При нехватке места элементы переносятся в новый массив с запасом в начале
+     * не меньше половины размера, поэтому серия добавлений в начало стоит
+     * O(1) на элемент (амортизированно).
+     */
+    void ensureFrontCapacity(int count) {
+        checkMutable();
+        if (count <= 0 || size == 0 || head >= count && !elementsShared) {
+            return;
+        }
+        int front = Math.max(count, size >>> 1);
+        relocate(grow(Math.max(elements.length, MIN_CAPACITY), (long) front + size), front);
+    }
+
+    /**
+     * Удаление последних {@code count} элементов (или всех, если их меньше).
+     * Занятая часть массива при этом укорачивается, если её не разделяет снимок.
+     *
+     * @return удалённые элементы, начиная с последнего.
+     */
+    @Override
+    public int[] removeLast(int count) {
+        checkMutable();
+        int[] result = new int[Math.min(count, size)];
+        int position = tail;
+        for (int i = 0; i < result.length; i++) {
+            position = prevLive(position - 1);
+            result[i] = elements[position];
+        }
+        for (int value : result) {
+            remove(value);
+        }
+        if (size > 0 && !elementsShared) {
+            tail = prevLive(tail - 1) + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Элемент по порядковому номеру. Если в занятой части массива нет
+     * удалённых позиций, доступ прямой, иначе — через индекс порядка
+     * либо, если его нет, последовательным обходом.
+     */
+    int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (tail - head == size) {
+            return elements[head + index];
+        }
+        if (ranks != null) {
+            return elements[ranks.select(index)];
+        }
+        int position = head;
+        for (int i = 0; i < index; i++) {
+            position = nextLive(position + 1);
+        }
+        return elements[position];
+    }
+
+    /**
+     * Порядковый номер элемента или -1, если его нет в множестве.
+     */
+    int indexOf(int value) {
+        int position = positions().get(value);
+        if (position < 0) {
+            return -1;
+        }
+        if (tail - head == size) {
+            return position - head;
+        }
+        if (ranks != null) {
+            return ranks.prefixSum(position) - 1;
+        }
+        int index = 0;
+        for (int i = head; i < position; i = nextLive(i + 1)) {
+            index++;
+        }
+        return index;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] result = new int[size];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /**
+     * Обход элементов по порядку без упаковки.
+     */
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int position = head; position < tail; position = nextLive(position + 1)) {
+            action.accept(elements[position]);
+        }
+    }
+
+    /**
+     * Копирование элементов по порядку в массив, начиная с позиции {@code offset}.
+     * Если удалённых позиций нет, копирование выполняется одним
+     * {@link System#arraycopy}.
+     *
+     * @return количество скопированных элементов.
+     * @throws IndexOutOfBoundsException если элементы не помещаются в массив.
+     */
+    @Override
+    public int copyTo(int[] dst, int offset) {
+        if (offset < 0 || offset > dst.length - size) {
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Size: " + size + ", Length: " + dst.length);
+        }
+        if (tail - head == size) {
+            System.arraycopy(elements, head, dst, offset, size);
+            return size;
+        }
+        int i = offset;
+        for (int position = head; position < tail; position = nextLive(position + 1)) {
+            dst[i++] = elements[position];
+        }
+        return size;
+    }
+
+    /**
+     * Делимый пополам по позициям массива обходчик элементов для
+     * {@link java.util.stream.IntStream}. Множество нельзя изменять, пока обход не завершён.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new RangeSpliterator(head, tail, tail - head == size);
+    }
+
+    /**
+     * Неизменяемое представление множества в виде списка. Элементы
+     * упаковываются в {@link Integer} только в момент обращения к ним.
+     */
+    @Override
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    private void checkMutable() {
+        if (positions == null) {
+            throw new UnsupportedOperationException("Снимок нельзя изменять");
+        }
+    }
+
+    /**
+     * Позиции элементов: для снимка индекс строится при первом обращении.
+     * Одновременное построение несколькими читателями безопасно, так как
+     * каждый публикует полностью заполненный индекс.
+     */
+    private IntIntHashMap positions() {
+        if (positions != null) {
+            return positions;
+        }
+        IntIntHashMap index = snapshotPositions;
+        if (index == null) {
+            index = new IntIntHashMap();
+            index.ensureCapacity(size);
+            for (int position = head; position < tail; position = nextLive(position + 1)) {
+                index.put(elements[position], position);
+            }
+            snapshotPositions = index;
+        }
+        return index;
+    }
+
+    /**
+     * Номер последней занятой позиции, не большей {@code from}; такая позиция должна существовать.
+     */
+    private int prevLive(int from) {
+        int word = from >>> 6;
+        long bits = live[word] & (-1L >>> (63 - (from & 63)));
+        while (bits == 0) {
+            bits = live[--word];
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    /**
+     * Номер первой занятой позиции, начиная с {@code from}, либо {@code tail}.
+     */
+    private int nextLive(int from) {
+        if (from >= tail) {
+            return tail;
+        }
+        int word = from >>> 6;
+        long bits = live[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word << 6 >= tail) {
+                return tail;
+            }
+            bits = live[word];
+        }
+        return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), tail);
+    }
+
+    /**
+     * Освобождение места в конце массива: если удалённых позиций
+     * не меньше половины, массив уплотняется на месте, иначе увеличивается вдвое.
+     */
+    private void makeRoom() {
+        int capacity = elements.length;
+        if (capacity == 0) {
+            capacity = MIN_CAPACITY;
+        } else if (size > capacity / 2) {
+            capacity = grow(capacity, capacity + 1L);
+        }
+        relocate(capacity, 0);
+    }
+
+    /**
+     * Наименьшая ёмкость вида {@code capacity * 2^k}, вмещающая {@code required} элементов.
+     *
+     * @throws IllegalStateException если требуется больше {@value #MAX_CAPACITY} элементов.
+     */
+    private static int grow(int capacity, long required) {
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("Превышена максимальная ёмкость множества: " + required);
+        }
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Перенос живых элементов в массив заданной ёмкости, начиная с позиции
+     * {@code offset}. Перенос на место возможен только к началу массива.
+     */
+    private void relocate(int capacity, int offset) {
+        boolean inPlace = capacity == elements.length && offset == 0 && !elementsShared;
+        int[] target = inPlace ? elements : new int[capacity];
+        int position = offset;
+        for (int i = head; i < tail; i = nextLive(i + 1)) {
+            int value = elements[i];
+            target[position] = value;
+            positions.put(value, position);
+            position++;
+        }
+        elements = target;
+        elementsShared = false;
+        liveShared = false;
+        live = new long[(capacity + 63) >>> 6];
+        for (int i = offset; i < position; i++) {
+            live[i >>> 6] |= 1L << i;
+        }
+        if (ranked) {
+            ranks = new FenwickTree(capacity, offset, position);
+        }
+        head = offset;
+        tail = position;
+    }
+
+    private final class RangeSpliterator implements Spliterator.OfInt {
+
+        private static final int MIN_SPLIT = 1024;
+
+        private int position;
+        private final int end;
+        private final boolean dense;
+
+        RangeSpliterator(int from, int end, boolean dense) {
+            this.position = from;
+            this.end = end;
+            this.dense = dense;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            position = nextLive(position);
+            if (position >= end) {
+                return false;
+            }
+            action.accept(elements[position++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (int p = nextLive(position); p < end; p = nextLive(p + 1)) {
+                action.accept(elements[p]);
+            }
+            position = end;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            if (end - position < MIN_SPLIT) {
+                return null;
+            }
+            int middle = (position + end) >>> 1;
+            RangeSpliterator prefix = new RangeSpliterator(position, middle, dense);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Math.max(end - position, 0);
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = ORDERED | DISTINCT | NONNULL;
+            return dense ? characteristics | SIZED | SUBSIZED : characteristics;
+        }
+    }
+
+    private final class ListView extends AbstractList<Integer> {
+
+        @Override
+        public Integer get(int index) {
+            return IntOrderedSet.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && IntOrderedSet.this.contains((Integer) o);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof Integer ? IntOrderedSet.this.indexOf((Integer) o) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.stream(IntOrderedSet.this.toArray()).boxed().toArray();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                private int position = head;
+
+                @Override
+                public boolean hasNext() {
+                    return position < tail;
+                }
+
+                @Override
+                public Integer next() {
+                    if (position >= tail) {
+                        throw new NoSuchElementException();
+                    }
+                    int value = elements[position];
+                    position = nextLive(position + 1);
+                    return value;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Множество идентификаторов студентов, в котором {@link Course} хранит
+ * записавшихся. Реализации: {@link IntOrderedSet} (порядок записи) и
+ * {@link StudentBitmap} (порядок возрастания идентификаторов).
+ */
+interface IntRoster {
+
+    int size();
+
+    boolean isEmpty();
+
+    boolean contains(int value);
+
+    /**
+     * @return false, если элемент уже содержится в множестве.
+     */
+    boolean add(int value);
+
+    /**
+     * @return false, если элемента в множестве не было.
+     */
+    boolean remove(int value);
+
+    /**
+     * Удаление последних {@code count} элементов в порядке перечисления
+     * (или всех, если их меньше).
+     *
+     * @return удалённые элементы, начиная с последнего.
+     */
+    int[] removeLast(int count);
+
+    /**
+     * Подготовка места для добавления ещё {@code count} элементов.
+     */
+    void ensureCapacity(int count);
+
+    int[] toArray();
+
+    void forEach(IntConsumer action);
+
+    /**
+     * @return количество скопированных элементов.
+     * @throws IndexOutOfBoundsException если элементы не помещаются в массив.
+     */
+    int copyTo(int[] dst, int offset);
+
+    Spliterator.OfInt spliterator();
+
+    /**
+     * Неизменяемое представление в виде списка.
+     */
+    List<Integer> asList();
+
+    /**
+     * Неизменяемый снимок, который можно читать одновременно с изменением множества.
+     */
+    IntRoster snapshot();
+}
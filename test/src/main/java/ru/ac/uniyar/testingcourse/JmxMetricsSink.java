@@ -0,0 +1,176 @@
+package ru.ac.uniyar.testingcourse;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Публикация метрик курсов через платформенный {@link MBeanServer}
+ * в домене {@code ru.ac.uniyar.testingcourse}. Повторная регистрация под тем же
+ * именем заменяет прежний объект.
+ */
+public class JmxMetricsSink implements MetricsSink {
+
+    private static final String DOMAIN = "ru.ac.uniyar.testingcourse";
+
+    private final MBeanServer server;
+
+    public JmxMetricsSink() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsSink(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void register(String name, CourseMetrics metrics) {
+        register(objectName("CourseMetrics", name), new MetricsBean(metrics));
+    }
+
+    @Override
+    public void registerCourse(String name, CourseGauges gauges) {
+        register(objectName("Course", name), new GaugesBean(gauges));
+    }
+
+    @Override
+    public void unregisterCourse(String name) {
+        try {
+            server.unregisterMBean(objectName("Course", name));
+        } catch (InstanceNotFoundException e) {
+            // курс не был зарегистрирован
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось снять публикацию курса " + name, e);
+        }
+    }
+
+    /**
+     * Имя объекта JMX.
+     */
+    public static ObjectName objectName(String type, String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Недопустимое имя метрики: " + name, e);
+        }
+    }
+
+    private void register(ObjectName objectName, Object bean) {
+        try {
+            try {
+                server.registerMBean(bean, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось опубликовать метрики " + objectName, e);
+        }
+    }
+
+    private static final class MetricsBean implements CourseMetricsMXBean {
+
+        private final CourseMetrics metrics;
+
+        MetricsBean(CourseMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long getEnrolledCount() {
+            return metrics.getEnrolledCount();
+        }
+
+        @Override
+        public long getWaitlistedCount() {
+            return metrics.getWaitlistedCount();
+        }
+
+        @Override
+        public long getDuplicateCount() {
+            return metrics.getDuplicateCount();
+        }
+
+        @Override
+        public long getUnenrolledCount() {
+            return metrics.getUnenrolledCount();
+        }
+
+        @Override
+        public long getPromotedCount() {
+            return metrics.getPromotedCount();
+        }
+
+        @Override
+        public long getExpiredCount() {
+            return metrics.getExpiredCount();
+        }
+
+        @Override
+        public long getEnrollCount() {
+            return metrics.getEnrollLatency().getCount();
+        }
+
+        @Override
+        public double getEnrollMeanNanos() {
+            return metrics.getEnrollLatency().getMean();
+        }
+
+        @Override
+        public long getEnrollP50Nanos() {
+            return metrics.getEnrollLatency().getPercentile(0.5);
+        }
+
+        @Override
+        public long getEnrollP99Nanos() {
+            return metrics.getEnrollLatency().getPercentile(0.99);
+        }
+
+        @Override
+        public long getUnenrollCount() {
+            return metrics.getUnenrollLatency().getCount();
+        }
+
+        @Override
+        public double getUnenrollMeanNanos() {
+            return metrics.getUnenrollLatency().getMean();
+        }
+
+        @Override
+        public long getUnenrollP50Nanos() {
+            return metrics.getUnenrollLatency().getPercentile(0.5);
+        }
+
+        @Override
+        public long getUnenrollP99Nanos() {
+            return metrics.getUnenrollLatency().getPercentile(0.99);
+        }
+    }
+
+    private static final class GaugesBean implements CourseGaugesMXBean {
+
+        private final CourseGauges gauges;
+
+        GaugesBean(CourseGauges gauges) {
+            this.gauges = gauges;
+        }
+
+        @Override
+        public int getMaxStudents() {
+            return gauges.getMaxStudents();
+        }
+
+        @Override
+        public int getEnrolled() {
+            return gauges.getEnrolled();
+        }
+
+        @Override
+        public int getWaiting() {
+            return gauges.getWaiting();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей с фиксированными интервалами-степенями двойки
+ * (в наносекундах). Запись значения — одно увеличение {@link LongAdder} без
+ * выделения памяти, поэтому гистограмму можно держать включённой постоянно.
+ * Точность перцентилей — до ближайшей сверху степени двойки.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Учёт одного замера.
+     *
+     * @param nanos длительность в наносекундах.
+     */
+    public void record(long nanos) {
+        int bucket = nanos <= 0 ? 0 : Math.min(BUCKETS - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+        buckets[bucket].increment();
+        total.add(Math.max(nanos, 0));
+    }
+
+    /**
+     * Количество замеров.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Средняя длительность в наносекундах.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    /**
+     * Оценка перцентиля сверху: граница интервала, в который он попадает.
+     *
+     * @param quantile доля от 0 до 1, например 0.99.
+     * @return длительность в наносекундах.
+     */
+    public long getPercentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
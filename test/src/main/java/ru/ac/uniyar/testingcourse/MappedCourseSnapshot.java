@@ -0,0 +1,347 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Снимок курсов ({@link CourseSnapshotFile}), отображённый в память только
+ * для чтения.
+ * <p>
+ * При открытии файл не десериализуется: читаются лишь заголовки курсов,
+ * чтобы построить индекс «идентификатор курса → смещение в файле». Списки
+ * студентов отдаются как представления над отображённым буфером, и данные
+ * подгружаются операционной системой по мере обращения к ним. Проверка
+ * принадлежности студента ищет его двоичным поиском в упорядоченных копиях
+ * списков, которые хранятся в том же файле. Состояние курса копируется в кучу
+ * только при первом изменении (копирование при записи).
+ * Размер файла ограничен 2 ГБ — пределом одного отображения {@link FileChannel#map}.
+ */
+public final class MappedCourseSnapshot {
+
+    private final ByteBuffer buffer;
+    private final long logSegment;
+    private final int[] courseIds;
+    private final IntIntHashMap offsets;
+    private final ConcurrentHashMap<Integer, MappedCourse> opened = new ConcurrentHashMap<>();
+
+    private MappedCourseSnapshot(ByteBuffer buffer, long logSegment, int[] courseIds, IntIntHashMap offsets) {
+        this.buffer = buffer;
+        this.logSegment = logSegment;
+        this.courseIds = courseIds;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Отображение файла снимка в память.
+     *
+     * @param file файл, записанный {@link CourseSnapshotFile}.
+     */
+    public static MappedCourseSnapshot open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не может быть отображён целиком: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < CourseSnapshotFile.HEADER_SIZE
+                || buffer.getInt(0) != CourseSnapshotFile.MAGIC
+                || buffer.getInt(4) != CourseSnapshotFile.VERSION) {
+            throw new IOException("Неизвестный формат снимка: " + file);
+        }
+        long logSegment = buffer.getLong(8);
+        int count = buffer.getInt(16);
+        int[] courseIds = new int[count];
+        IntIntHashMap offsets = new IntIntHashMap(count);
+        long offset = CourseSnapshotFile.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (offset + 16 > buffer.limit()) {
+                throw new IOException("Неожиданный конец файла снимка: " + file);
+            }
+            courseIds[i] = buffer.getInt((int) offset);
+            offsets.put(courseIds[i], (int) offset);
+            offset += 16 + 8L * buffer.getInt((int) offset + 8) + 8L * buffer.getInt((int) offset + 12);
+        }
+        if (offset > buffer.limit()) {
+            throw new IOException("Неожиданный конец файла снимка: " + file);
+        }
+        return new MappedCourseSnapshot(buffer, logSegment, courseIds, offsets);
+    }
+
+    /**
+     * Количество курсов в снимке.
+     */
+    public int size() {
+        return courseIds.length;
+    }
+
+    /**
+     * Идентификаторы курсов в порядке их следования в файле.
+     */
+    public int[] getCourseIds() {
+        return courseIds.clone();
+    }
+
+    /**
+     * Номер сегмента журнала, с которого продолжается воспроизведение после этого снимка.
+     */
+    public long getLogSegment() {
+        return logSegment;
+    }
+
+    /**
+     * Получение курса по идентификатору. Повторные вызовы возвращают тот же объект,
+     * поэтому сделанные через него изменения видны при следующих обращениях.
+     *
+     * @return курс или null, если его нет в снимке.
+     */
+    public MappedCourse getCourse(int courseId) {
+        int offset = offsets.get(courseId);
+        if (offset < 0) {
+            return null;
+        }
+        return opened.computeIfAbsent(courseId, id -> new MappedCourse(buffer, offset));
+    }
+
+    /**
+     * Курс, читаемый напрямую из отображённого файла. Методы повторяют {@link Course};
+     * первое изменение копирует состояние в обычный {@link Course}, и дальше
+     * все вызовы обслуживает он.
+     * <p>
+     * Чтение допускается из нескольких потоков одновременно; изменения, как и
+     * у {@link Course}, требуют внешней синхронизации.
+     */
+    public static final class MappedCourse {
+
+        private final ByteBuffer buffer;
+        private final int maxStudents;
+        private final int enrolledOffset;
+        private final int enrolledSize;
+        private final int waitingOffset;
+        private final int waitingSize;
+        private final int sortedEnrolledOffset;
+        private final int sortedWaitingOffset;
+        private volatile Course heap;
+
+        private MappedCourse(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.maxStudents = buffer.getInt(offset + 4);
+            this.enrolledSize = buffer.getInt(offset + 8);
+            this.waitingSize = buffer.getInt(offset + 12);
+            this.enrolledOffset = offset + 16;
+            this.waitingOffset = enrolledOffset + 4 * enrolledSize;
+            this.sortedEnrolledOffset = waitingOffset + 4 * waitingSize;
+            this.sortedWaitingOffset = sortedEnrolledOffset + 4 * enrolledSize;
+        }
+
+        /**
+         * Проверка, что курс ещё не скопирован в кучу.
+         */
+        public boolean isMapped() {
+            return heap == null;
+        }
+
+        /**
+         * Запись студента на курс (см. {@link Course#enroll(int)}). Копирует курс в кучу.
+         *
+         * @param studentId идентификатор записываемого студента.
+         */
+        public void enroll(int studentId) {
+            materialize().enroll(studentId);
+        }
+
+        /**
+         * Удаление студента из курса (см. {@link Course#unenroll(int)}). Копирует курс в кучу.
+         *
+         * @param studentId идентификатор удаляемого студента.
+         */
+        public void unenroll(int studentId) {
+            materialize().unenroll(studentId);
+        }
+
+        /**
+         * Запись группы студентов (см. {@link Course#enrollAll(int[])}). Копирует курс в кучу.
+         *
+         * @param studentIds идентификаторы записываемых студентов.
+         */
+        public void enrollAll(int[] studentIds) {
+            materialize().enrollAll(studentIds);
+        }
+
+        /**
+         * Удаление группы студентов (см. {@link Course#unenrollAll(int[])}). Копирует курс в кучу.
+         *
+         * @param studentIds идентификаторы удаляемых студентов.
+         */
+        public void unenrollAll(int[] studentIds) {
+            materialize().unenrollAll(studentIds);
+        }
+
+        /**
+         * Проверка, что студент записан на курс. Пока курс не скопирован в кучу,
+         * выполняется двоичным поиском по упорядоченной копии списка в файле.
+         */
+        public boolean isEnrolled(int studentId) {
+            Course heap = this.heap;
+            return heap != null ? heap.isEnrolled(studentId) : contains(sortedEnrolledOffset, enrolledSize, studentId);
+        }
+
+        /**
+         * Проверка, что студент находится в списке ожидания. Пока курс не скопирован
+         * в кучу, выполняется двоичным поиском, как {@link #isEnrolled(int)}.
+         */
+        public boolean isWaiting(int studentId) {
+            Course heap = this.heap;
+            return heap != null ? heap.isWaiting(studentId) : contains(sortedWaitingOffset, waitingSize, studentId);
+        }
+
+        /**
+         * Проверка, что на курс записалось максимально возможное количество студентов.
+         */
+        public boolean isFullyEnrolled() {
+            Course heap = this.heap;
+            return heap != null ? heap.isFullyEnrolled() : enrolledSize >= maxStudents;
+        }
+
+        /**
+         * Проверка, что список ожидания для курса не пуст.
+         */
+        public boolean hasWaitingList() {
+            Course heap = this.heap;
+            return heap != null ? heap.hasWaitingList() : waitingSize > 0;
+        }
+
+        /**
+         * Получение списка записавшихся студентов в порядке записи. Пока курс не
+         * скопирован в кучу, список читается прямо из отображённого файла.
+         */
+        public List<Integer> getEnrollmentList() {
+            Course heap = this.heap;
+            return heap != null ? heap.getEnrollmentList() : new IntView(enrolledOffset, enrolledSize);
+        }
+
+        /**
+         * Получение списка ожидания. Пока курс не скопирован в кучу, список
+         * читается прямо из отображённого файла.
+         */
+        public List<Integer> getWaitingList() {
+            Course heap = this.heap;
+            return heap != null ? heap.getWaitingList() : new IntView(waitingOffset, waitingSize);
+        }
+
+        /**
+         * Получение копии списка записавшихся студентов в виде массива.
+         */
+        public int[] getEnrollmentArray() {
+            Course heap = this.heap;
+            return heap != null ? heap.getEnrollmentArray() : read(enrolledOffset, enrolledSize);
+        }
+
+        /**
+         * Получение копии списка ожидания в виде массива.
+         */
+        public int[] getWaitingArray() {
+            Course heap = this.heap;
+            return heap != null ? heap.getWaitingArray() : read(waitingOffset, waitingSize);
+        }
+
+        /**
+         * Получение максимально возможного кол-ва студентов в курсе
+         *
+         * @return количество студентов в курсе
+         */
+        public int getMaxStudents() {
+            return maxStudents;
+        }
+
+        private Course materialize() {
+            Course heap = this.heap;
+            if (heap == null) {
+                synchronized (this) {
+                    heap = this.heap;
+                    if (heap == null) {
+                        heap = Course.restore(maxStudents, read(enrolledOffset, enrolledSize), read(waitingOffset, waitingSize));
+                        this.heap = heap;
+                    }
+                }
+            }
+            return heap;
+        }
+
+        /**
+         * Двоичный поиск в упорядоченном участке файла.
+         */
+        private boolean contains(int offset, int size, int studentId) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int value = buffer.getInt(offset + 4 * middle);
+                if (value < studentId) {
+                    low = middle + 1;
+                } else if (value > studentId) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] read(int offset, int size) {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = buffer.getInt(offset + 4 * i);
+            }
+            return result;
+        }
+
+        private int indexOf(int offset, int size, int studentId) {
+            for (int i = 0; i < size; i++) {
+                if (buffer.getInt(offset + 4 * i) == studentId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Неизменяемый список над участком отображённого файла.
+         */
+        private final class IntView extends AbstractList<Integer> implements RandomAccess {
+
+            private final int offset;
+            private final int size;
+
+            IntView(int offset, int size) {
+                this.offset = offset;
+                this.size = size;
+            }
+
+            @Override
+            public Integer get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return buffer.getInt(offset + 4 * index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public int indexOf(Object o) {
+                return o instanceof Integer ? MappedCourse.this.indexOf(offset, size, (Integer) o) : -1;
+            }
+        }
+    }
+}
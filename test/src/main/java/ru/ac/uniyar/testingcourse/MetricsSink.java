@@ -0,0 +1,63 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Приёмник метрик: публикует счётчики {@link CourseMetrics} и показатели
+ * отдельных курсов во внешнюю систему мониторинга.
+ */
+public interface MetricsSink {
+
+    /**
+     * Публикация набора счётчиков и гистограмм.
+     *
+     * @param name    имя набора.
+     * @param metrics счётчики.
+     */
+    void register(String name, CourseMetrics metrics);
+
+    /**
+     * Публикация текущих размеров списков курса.
+     *
+     * @param name   имя курса.
+     * @param gauges показатели, назначенные курсу.
+     */
+    void registerCourse(String name, CourseGauges gauges);
+
+    /**
+     * Назначение курсу показателей и их публикация. Как и другие изменения курса,
+     * вызывается в потоке, владеющем курсом.
+     *
+     * @param name   имя курса.
+     * @param course курс.
+     */
+    default void registerCourse(String name, Course course) {
+        CourseGauges gauges = new CourseGauges();
+        course.setGauges(gauges);
+        registerCourse(name, gauges);
+    }
+
+    /**
+     * Назначение показателей курсу реестра по идентификатору и их публикация
+     * (см. {@link CourseRegistry#setGauges(int, CourseGauges)}).
+     *
+     * @param name     имя курса.
+     * @param registry реестр, которому принадлежит курс.
+     * @param courseId идентификатор курса.
+     */
+    default void registerCourse(String name, CourseRegistry registry, int courseId) {
+        CourseGauges gauges = new CourseGauges();
+        registry.setGauges(courseId, gauges);
+        registerCourse(name, gauges);
+    }
+
+    /**
+     * Снятие публикации курса.
+     */
+    void unregisterCourse(String name);
+
+    /**
+     * Приёмник по умолчанию — публикация через JMX.
+     */
+    static MetricsSink defaultSink() {
+        return new JmxMetricsSink();
+    }
+}
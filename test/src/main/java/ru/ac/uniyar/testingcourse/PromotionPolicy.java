@@ -0,0 +1,25 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Политика перевода студентов из списка ожидания: определяет приоритет
+ * студента (например, по курсу обучения, специальности или квоте).
+ * Чем меньше значение, тем раньше студент будет переведён; при равных
+ * приоритетах сохраняется порядок постановки в очередь. Приоритет
+ * вычисляется один раз — в момент попадания студента в список ожидания.
+ */
+@FunctionalInterface
+public interface PromotionPolicy {
+
+    /**
+     * Строгая очередь: все студенты равны, переводится первый вставший в очередь.
+     */
+    PromotionPolicy FIFO = studentId -> 0;
+
+    /**
+     * Приоритет студента.
+     *
+     * @param studentId идентификатор студента.
+     * @return приоритет; меньшее значение переводится раньше.
+     */
+    int priority(int studentId);
+}
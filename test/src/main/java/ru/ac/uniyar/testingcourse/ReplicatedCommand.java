@@ -0,0 +1,195 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Элемент, доставляемый репликам {@link ReplicationLog}: команда с номером
+ * в общем порядке, снимок всех курсов, по которому отставшая реплика догоняет
+ * журнал, или отказ журнала выполнить команду реплики.
+ * <p>
+ * Для передачи по сети элемент кодируется кадром: длина кадра без неё самой,
+ * байт вида и номер. Команда продолжается идентификаторами реплики-отправителя
+ * и её запроса и записью в формате {@link EnrollmentLog}; тем же кадром без
+ * номера реплика отправляет команду журналу. Снимок — количеством курсов и для
+ * каждого курса его идентификатором, числом мест, размерами списков и самими
+ * списками в их порядке. Отказ — идентификаторами реплики и запроса, признаком
+ * {@link IllegalArgumentException} и сообщением об ошибке в UTF-8.
+ */
+final class ReplicatedCommand {
+
+    private static final byte COMMAND = 0;
+    private static final byte SNAPSHOT = 1;
+    private static final byte REJECTION = 2;
+
+    /**
+     * Номер команды; для снимка — номер последней учтённой в нём команды.
+     */
+    final long sequence;
+    /**
+     * Тип записи {@link EnrollmentLog}; для снимка не используется.
+     */
+    final int type;
+    final int courseId;
+    final int[] values;
+    /**
+     * Идентификатор реплики, принявшей команду от клиента; только она завершает
+     * результат запроса {@link #request}.
+     */
+    final int origin;
+    final long request;
+    /**
+     * Снимки курсов или null для команды.
+     */
+    final Map<Integer, RosterSnapshot> snapshot;
+    /**
+     * Исключение, с которым журнал отклонил запрос {@link #request}, или null.
+     */
+    final RuntimeException error;
+
+    ReplicatedCommand(long sequence, int type, int courseId, int[] values, int origin, long request) {
+        this.sequence = sequence;
+        this.type = type;
+        this.courseId = courseId;
+        this.values = values;
+        this.origin = origin;
+        this.request = request;
+        this.snapshot = null;
+        this.error = null;
+    }
+
+    ReplicatedCommand(long sequence, Map<Integer, RosterSnapshot> snapshot) {
+        this.sequence = sequence;
+        this.type = 0;
+        this.courseId = 0;
+        this.values = null;
+        this.origin = 0;
+        this.request = 0;
+        this.snapshot = snapshot;
+        this.error = null;
+    }
+
+    ReplicatedCommand(int origin, long request, RuntimeException error) {
+        this.sequence = 0;
+        this.type = 0;
+        this.courseId = 0;
+        this.values = null;
+        this.origin = origin;
+        this.request = request;
+        this.snapshot = null;
+        this.error = error;
+    }
+
+    /**
+     * Кодирование в кадр вместе с его длиной.
+     *
+     * @return буфер, готовый к чтению.
+     */
+    ByteBuffer encode() {
+        ByteBuffer frame;
+        if (error != null) {
+            String message = error.getMessage();
+            byte[] text = (message != null ? message : error.toString()).getBytes(StandardCharsets.UTF_8);
+            frame = ByteBuffer.allocate(4 + 1 + 8 + 4 + 8 + 1 + 4 + text.length);
+            frame.putInt(frame.capacity() - 4).put(REJECTION).putLong(sequence).putInt(origin).putLong(request)
+                    .put((byte) (error instanceof IllegalArgumentException ? 1 : 0)).putInt(text.length).put(text);
+        } else if (snapshot == null) {
+            frame = ByteBuffer.allocate(4 + 1 + 8 + 4 + 8 + EnrollmentLog.recordSize(type, values.length));
+            frame.putInt(frame.capacity() - 4).put(COMMAND).putLong(sequence).putInt(origin).putLong(request);
+            EnrollmentLog.putRecord(frame, type, courseId, values, values.length);
+        } else {
+            long length = 1 + 8 + 4;
+            for (RosterSnapshot roster : snapshot.values()) {
+                length += 16 + 4L * (roster.getEnrolledCount() + roster.getWaitingCount());
+            }
+            if (length > Integer.MAX_VALUE - 4) {
+                throw new IllegalStateException("Снимок не помещается в кадр: " + length + " байт");
+            }
+            frame = ByteBuffer.allocate(4 + (int) length);
+            frame.putInt((int) length).put(SNAPSHOT).putLong(sequence).putInt(snapshot.size());
+            for (Map.Entry<Integer, RosterSnapshot> entry : snapshot.entrySet()) {
+                RosterSnapshot roster = entry.getValue();
+                frame.putInt(entry.getKey()).putInt(roster.getMaxStudents())
+                        .putInt(roster.getEnrolledCount()).putInt(roster.getWaitingCount());
+                roster.forEachEnrolled(frame::putInt);
+                roster.forEachWaiting(frame::putInt);
+            }
+        }
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Декодирование кадра, длина которого уже прочитана.
+     *
+     * @param frame содержимое кадра без длины.
+     * @throws IOException если кадр повреждён.
+     */
+    static ReplicatedCommand decode(ByteBuffer frame) throws IOException {
+        try {
+            byte kind = frame.get();
+            long sequence = frame.getLong();
+            if (kind == COMMAND) {
+                int origin = frame.getInt();
+                long request = frame.getLong();
+                ReplicatedCommand[] command = new ReplicatedCommand[1];
+                EnrollmentLog.readRecord(frame, new int[1], (type, courseId, values, count) ->
+                        command[0] = new ReplicatedCommand(sequence, type, courseId,
+                                Arrays.copyOf(values, count), origin, request));
+                return command[0];
+            }
+            if (kind == REJECTION) {
+                int origin = frame.getInt();
+                long request = frame.getLong();
+                boolean invalidArgument = frame.get() != 0;
+                int length = frame.getInt();
+                if (length < 0 || length > frame.remaining()) {
+                    throw new IOException("Неверная длина сообщения отказа: " + length);
+                }
+                byte[] text = new byte[length];
+                frame.get(text);
+                String message = new String(text, StandardCharsets.UTF_8);
+                return new ReplicatedCommand(origin, request, invalidArgument
+                        ? new IllegalArgumentException(message) : new IllegalStateException(message));
+            }
+            if (kind != SNAPSHOT) {
+                throw new IOException("Неизвестный вид кадра репликации: " + kind);
+            }
+            int courses = frame.getInt();
+            if (courses < 0 || courses > frame.remaining() / 16) {
+                throw new IOException("Неверное количество курсов в снимке: " + courses);
+            }
+            Map<Integer, RosterSnapshot> rosters = new HashMap<>();
+            for (int i = 0; i < courses; i++) {
+                int courseId = frame.getInt();
+                int maxStudents = frame.getInt();
+                int enrolledCount = frame.getInt();
+                int waitingCount = frame.getInt();
+                if (maxStudents < 0) {
+                    throw new IOException("Неверное число мест курса " + courseId + " в снимке: " + maxStudents);
+                }
+                int[] enrolled = ints(frame, enrolledCount);
+                int[] waiting = ints(frame, waitingCount);
+                rosters.put(courseId, Course.restore(maxStudents, enrolled, waiting).snapshot());
+            }
+            return new ReplicatedCommand(sequence, rosters);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Неполный кадр репликации", e);
+        }
+    }
+
+    private static int[] ints(ByteBuffer frame, int count) throws IOException {
+        if (count < 0 || count > frame.remaining() / 4) {
+            throw new IOException("Неверный размер списка в снимке: " + count);
+        }
+        int[] result = new int[count];
+        frame.asIntBuffer().get(result);
+        frame.position(frame.position() + 4 * count);
+        return result;
+    }
+}
@@ -0,0 +1,235 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Упорядочивающий журнал команд для реплицированных реестров курсов.
+ * <p>
+ * Каждый узел держит собственную реплику {@link CourseReplica} и читает
+ * из неё локально, а изменения отправляет в журнал через {@link ReplicationTransport}. Журнал присваивает командам
+ * сквозные номера и рассылает их всем подключённым репликам в одном и том же
+ * порядке; реплики применяют команды к своему {@link CourseRegistry} строго
+ * по номерам. Поскольку {@link Course} детерминирован, все реплики, применившие
+ * одну и ту же последовательность команд, совпадают — в том числе в порядке
+ * перевода из списка ожидания при отмене записи, который поэтому по сети не передаётся.
+ * Команды представлены теми же записями, что и в {@link EnrollmentLog}.
+ * <p>
+ * Журнал сам ведёт состояние всех курсов: команда сначала применяется к нему
+ * и лишь затем получает номер, поэтому команда к несуществующему курсу
+ * отклоняется сразу и не попадает к репликам. Последние {@code retained}
+ * команд хранятся в памяти: переподключившаяся реплика получает пропущенные
+ * команды, а если их уже нет, или реплика подключается впервые — согласованный
+ * снимок всех курсов и команды после него. Снимок сохраняет порядок записи
+ * студентов, от которого зависит {@link CapacityReductionPolicy#DEMOTE_LATEST}.
+ * <p>
+ * Реплики того же процесса подключаются через {@link #join(Executor)}, реплики
+ * других узлов — через {@link ReplicationServer}. Журнал знает реплики лишь по
+ * идентификаторам и отправляет им элементы через каналы {@link Link}; реплика,
+ * канал которой разорван, отключается от журнала.
+ */
+public class ReplicationLog {
+
+    private final int retained;
+    private final RosterStorage storage;
+    private final CourseRegistry state;
+    private final ArrayDeque<ReplicatedCommand> recent = new ArrayDeque<>();
+    private final Map<Integer, Link> replicas = new LinkedHashMap<>();
+    private long lastSequence;
+    private int lastReplicaId;
+
+    /**
+     * Конструктор.
+     *
+     * @param retained количество последних команд, доступных для догоняющих реплик.
+     */
+    public ReplicationLog(int retained) {
+        this(retained, RosterStorage.ORDERED);
+    }
+
+    /**
+     * Конструктор журнала, реплики которого хранят списки записавшихся заданным способом.
+     *
+     * @param retained количество последних команд, доступных для догоняющих реплик.
+     * @param storage  способ хранения списков записавшихся во всех репликах.
+     */
+    public ReplicationLog(int retained, RosterStorage storage) {
+        if (retained < 0) {
+            throw new IllegalArgumentException("Количество хранимых команд не может быть отрицательным: " + retained);
+        }
+        this.retained = retained;
+        this.storage = storage;
+        this.state = new CourseRegistry(CourseRegistry.DEFAULT_STRIPES, null, storage);
+    }
+
+    /**
+     * Создание и подключение новой реплики в этом же процессе
+     * (см. {@link ReplicationTransport#inProcess(ReplicationLog)}). Реплика
+     * начинает со снимка текущего состояния.
+     *
+     * @param executor исполнитель, в котором реплика применяет команды.
+     */
+    public CourseReplica join(Executor executor) {
+        return new CourseReplica(ReplicationTransport.inProcess(this), storage, executor);
+    }
+
+    /**
+     * Назначение идентификатора новой реплике.
+     */
+    synchronized int newReplicaId() {
+        return ++lastReplicaId;
+    }
+
+    /**
+     * Номер последней принятой команды.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Приём команды: проверка на собственном состоянии, присвоение номера и рассылка.
+     * Команды отключённой реплики отклоняются: иначе она могла бы получить
+     * их результат только в составе снимка.
+     * <p>
+     * Номер получают только команды, применённые без исключений.
+     * {@link IllegalArgumentException} реестр бросает до каких-либо изменений
+     * (неизвестный курс, совпадающие курсы обмена), поэтому такая команда просто
+     * отклоняется. Любое другое исключение могло оставить состояние изменённым
+     * частично: команда тоже отклоняется, но репликам рассылается снимок состояния журнала.
+     *
+     * @param origin  идентификатор реплики-отправителя.
+     * @param request идентификатор запроса, по которому реплика-отправитель завершит его результат.
+     * @throws IllegalStateException если реплика отключена.
+     * @throws RuntimeException      исключение, с которым команда не применилась.
+     */
+    synchronized void submit(int origin, long request, int type, int courseId, int[] values) {
+        if (!replicas.containsKey(origin)) {
+            throw new IllegalStateException("Реплика отключена от журнала");
+        }
+        try {
+            state.apply(type, courseId, values, values.length);
+        } catch (RuntimeException e) {
+            if (!(e instanceof IllegalArgumentException)) {
+                resynchronize();
+            }
+            throw e;
+        }
+        publish(new ReplicatedCommand(++lastSequence, type, courseId, values, origin, request));
+    }
+
+    /**
+     * Рассылка снимка вместо команды, которая завершилась непредвиденным исключением
+     * и могла частично изменить состояние журнала. Такая команда номера не получает:
+     * реплики переходят на снимок, а пропущенные до него команды догоняющим больше
+     * не отдаются — они уже учтены в снимке.
+     */
+    private void resynchronize() {
+        ReplicatedCommand snapshot = new ReplicatedCommand(++lastSequence, state.snapshots());
+        recent.clear();
+        send(snapshot);
+    }
+
+    private void publish(ReplicatedCommand command) {
+        if (retained > 0) {
+            if (recent.size() == retained) {
+                recent.removeFirst();
+            }
+            recent.addLast(command);
+        }
+        send(command);
+    }
+
+    /**
+     * Отправка элемента всем репликам; реплики с разорванными каналами отключаются.
+     */
+    private void send(ReplicatedCommand command) {
+        for (Iterator<Link> it = replicas.values().iterator(); it.hasNext(); ) {
+            Link link = it.next();
+            try {
+                link.send(command);
+            } catch (IOException e) {
+                it.remove();
+                close(link);
+            }
+        }
+    }
+
+    /**
+     * Подключение реплики: отправка пропущенных ею команд (или снимка,
+     * если их уже нет в памяти) и подписка на новые. Прежний канал реплики
+     * с тем же идентификатором, если он остался, закрывается.
+     *
+     * @param replicaId       идентификатор реплики.
+     * @param appliedSequence номер последней применённой репликой команды; 0 — нужен снимок.
+     * @param link            канал к реплике.
+     * @throws IOException если канал разорвался при отправке пропущенного.
+     */
+    synchronized void connect(int replicaId, long appliedSequence, Link link) throws IOException {
+        lastReplicaId = Math.max(lastReplicaId, replicaId);
+        ReplicatedCommand first = recent.peekFirst();
+        try {
+            if (appliedSequence < lastSequence) {
+                if (appliedSequence == 0 || first == null || first.sequence > appliedSequence + 1) {
+                    link.send(new ReplicatedCommand(lastSequence, state.snapshots()));
+                } else {
+                    for (ReplicatedCommand command : recent) {
+                        if (command.sequence > appliedSequence) {
+                            link.send(command);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            close(link);
+            throw e;
+        }
+        Link previous = replicas.put(replicaId, link);
+        if (previous != null) {
+            close(previous);
+        }
+    }
+
+    /**
+     * Отключение реплики, если её текущий канал — {@code link}: новые команды
+     * перестают ей доставляться. Канал закрывается в любом случае.
+     */
+    synchronized void disconnect(int replicaId, Link link) {
+        replicas.remove(replicaId, link);
+        close(link);
+    }
+
+    private static void close(Link link) {
+        try {
+            link.close();
+        } catch (IOException e) {
+            // канал уже разорван, доставлять по нему нечего
+        }
+    }
+
+    /**
+     * Канал от журнала к одной реплике. Отправка выполняется под блокировкой
+     * журнала, поэтому должна сохранять порядок и не задерживаться надолго.
+     */
+    interface Link extends Closeable {
+
+        /**
+         * Отправка элемента.
+         *
+         * @throws IOException если канал разорван; журнал отключает такую реплику.
+         */
+        void send(ReplicatedCommand command) throws IOException;
+
+        /**
+         * Закрытие канала после доставки уже отправленных элементов.
+         */
+        @Override
+        default void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сетевой доступ к {@link ReplicationLog}: принимает по TCP сеансы реплик
+ * других узлов, подключившихся через {@link SocketReplicationTransport}.
+ * <p>
+ * Каждое соединение обслуживает свой поток: он отвечает на приветствие,
+ * подписывает реплику на журнал и передаёт журналу присланные ею команды.
+ * Отказ журнала выполнить команду отправляется реплике кадром отказа.
+ * Когда соединение закрывается или из него приходит повреждённый кадр,
+ * реплика отключается от журнала.
+ */
+public class ReplicationServer implements AutoCloseable {
+
+    private final ReplicationLog log;
+    private final ServerSocket server;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Создание сервера и начало приёма соединений.
+     *
+     * @param log     журнал, к которому подключаются реплики.
+     * @param address адрес для приёма соединений; порт 0 — любой свободный.
+     */
+    public ReplicationServer(ReplicationLog log, InetSocketAddress address) throws IOException {
+        this.log = log;
+        this.server = new ServerSocket();
+        try {
+            server.bind(address);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.acceptor = new Thread(this::acceptLoop, "replication-server");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Адрес, на котором сервер принимает соединения.
+     */
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+    }
+
+    /**
+     * Остановка приёма соединений и закрытие открытых; их реплики отключаются от журнала.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            connections.add(socket);
+            Thread connection = new Thread(() -> serve(socket), "replication-connection");
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    /**
+     * Обслуживание одного сеанса реплики до закрытия соединения.
+     */
+    private void serve(Socket socket) {
+        int replicaId = 0;
+        SocketLink link = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readInt() != SocketReplicationTransport.MAGIC) {
+                return;
+            }
+            int requestedId = in.readInt();
+            long appliedSequence = in.readLong();
+            replicaId = requestedId != 0 ? requestedId : log.newReplicaId();
+            link = new SocketLink(socket);
+            link.welcome(replicaId);
+            log.connect(replicaId, appliedSequence, link);
+            ByteBuffer frame;
+            while ((frame = SocketReplicationTransport.readFrame(in)) != null) {
+                ReplicatedCommand command = ReplicatedCommand.decode(frame);
+                if (command.snapshot != null || command.error != null) {
+                    throw new IOException("Реплика прислала не команду");
+                }
+                try {
+                    log.submit(replicaId, command.request, command.type, command.courseId, command.values);
+                } catch (RuntimeException e) {
+                    link.send(new ReplicatedCommand(replicaId, command.request, e));
+                }
+            }
+        } catch (IOException e) {
+            // соединение разорвано или повреждено: реплика отключается ниже
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        } finally {
+            if (link != null) {
+                log.disconnect(replicaId, link);
+            }
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // соединение уже закрыто
+            }
+        }
+    }
+
+    /**
+     * Канал журнала к реплике по соединению сеанса. Журнал пишет в него под своей
+     * блокировкой, а поток соединения — отказы, поэтому запись кадра синхронизирована.
+     */
+    private static final class SocketLink implements ReplicationLog.Link {
+
+        private final Socket socket;
+        private final OutputStream out;
+
+        SocketLink(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        synchronized void welcome(int replicaId) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(SocketReplicationTransport.MAGIC);
+            data.writeInt(replicaId);
+            data.flush();
+        }
+
+        @Override
+        public synchronized void send(ReplicatedCommand command) throws IOException {
+            SocketReplicationTransport.writeFrame(out, command);
+        }
+
+        /**
+         * Завершение потока кадров: реплика дочитывает отправленное и видит конец соединения.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!socket.isClosed() && !socket.isOutputShutdown()) {
+                socket.shutdownOutput();
+            }
+        }
+    }
+}
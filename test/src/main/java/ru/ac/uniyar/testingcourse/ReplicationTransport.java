@@ -0,0 +1,101 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Способ связи реплики {@link CourseReplica} с журналом {@link ReplicationLog}.
+ * <p>
+ * Реплика открывает сеанс, сообщая свой идентификатор и номер последней
+ * применённой команды, и через него отправляет команды журналу. Журнал
+ * присылает в сеанс пропущенные команды или снимок, затем все новые команды
+ * и отказы выполнить команды этой реплики; получатель вызывается в порядке
+ * их отправки журналом. Закрытие сеанса дожидается доставки уже отправленных
+ * журналом элементов, чтобы при переподключении они не пришли после элементов
+ * нового сеанса.
+ * <p>
+ * {@link #inProcess(ReplicationLog)} связывает реплику с журналом того же процесса
+ * и годится для тестов; {@link SocketReplicationTransport} подключается по TCP
+ * к {@link ReplicationServer} другого узла.
+ */
+public interface ReplicationTransport {
+
+    /**
+     * Открытие сеанса с журналом.
+     *
+     * @param replicaId        идентификатор реплики или 0, если журнал должен назначить новый.
+     * @param appliedSequence  номер последней применённой репликой команды;
+     *                         0 — реплике нужен снимок состояния.
+     * @param receiver         получатель элементов журнала на стороне реплики.
+     */
+    Session connect(int replicaId, long appliedSequence, Receiver receiver) throws IOException;
+
+    /**
+     * Связь с журналом в пределах процесса: команды передаются ему прямым вызовом,
+     * а его элементы — получателю без кодирования. Отказ журнала выполнить команду
+     * бросается из {@link Session#submit} исходным исключением.
+     */
+    static ReplicationTransport inProcess(ReplicationLog log) {
+        return (replicaId, appliedSequence, receiver) -> {
+            int id = replicaId != 0 ? replicaId : log.newReplicaId();
+            ReplicationLog.Link link = receiver::deliver;
+            log.connect(id, appliedSequence, link);
+            return new Session() {
+                @Override
+                public int getReplicaId() {
+                    return id;
+                }
+
+                @Override
+                public void submit(long request, int type, int courseId, int[] values) {
+                    log.submit(id, request, type, courseId, values);
+                }
+
+                @Override
+                public void close() {
+                    log.disconnect(id, link);
+                }
+            };
+        };
+    }
+
+    /**
+     * Получатель элементов журнала на стороне реплики.
+     */
+    interface Receiver {
+
+        /**
+         * Доставка команды, снимка или отказа.
+         */
+        void deliver(ReplicatedCommand command);
+
+        /**
+         * Сеанс разорван или из него пришли данные, которые не удалось обработать.
+         * Элементы после сбоя не доставляются; вызывается не более одного раза
+         * и не вызывается после {@link Session#close()}.
+         *
+         * @param cause причина сбоя.
+         */
+        void failed(Exception cause);
+    }
+
+    /**
+     * Сеанс реплики с журналом.
+     */
+    interface Session extends Closeable {
+
+        /**
+         * Идентификатор реплики, назначенный журналом.
+         */
+        int getReplicaId();
+
+        /**
+         * Отправка команды журналу. Результат придёт получателю сеанса вместе
+         * с командой, получившей номер, или отказом.
+         *
+         * @param request идентификатор запроса, по которому реплика завершит его результат.
+         * @throws IOException если сеанс разорван.
+         */
+        void submit(long request, int type, int courseId, int[] values) throws IOException;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Неизменяемый снимок списков курса, полученный через {@link Course#snapshot()}.
+ * <p>
+ * Снимок создаётся за O(1): он разделяет с курсом внутренние массивы, а курс
+ * копирует их лишь при изменениях, которые затронули бы видимые снимку позиции.
+ * Снимок можно читать из любого количества потоков без блокировок, в том числе
+ * одновременно с изменением курса. Первая проверка принадлежности строит индекс
+ * соответствующего списка снимка за O(n); обход и копирование индекса не требуют.
+ */
+public final class RosterSnapshot {
+
+    private final int maxStudents;
+    private final long version;
+    private final IntRoster enrolled;
+    private final IntOrderedSet waiting;
+
+    RosterSnapshot(int maxStudents, long version, IntRoster enrolled, IntOrderedSet waiting) {
+        this.maxStudents = maxStudents;
+        this.version = version;
+        this.enrolled = enrolled;
+        this.waiting = waiting;
+    }
+
+    /**
+     * Номер версии курса: количество изменений списков курса к моменту снимка.
+     * Снимки одного курса с равными версиями содержат одинаковые списки.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getMaxStudents() {
+        return maxStudents;
+    }
+
+    public boolean isEnrolled(int studentId) {
+        return enrolled.contains(studentId);
+    }
+
+    public boolean isWaiting(int studentId) {
+        return waiting.contains(studentId);
+    }
+
+    public boolean isFullyEnrolled() {
+        return enrolled.size() >= maxStudents;
+    }
+
+    public boolean hasWaitingList() {
+        return !waiting.isEmpty();
+    }
+
+    public int getEnrolledCount() {
+        return enrolled.size();
+    }
+
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * Неизменяемый список записавшихся студентов на момент снимка.
+     */
+    public List<Integer> getEnrollmentList() {
+        return enrolled.asList();
+    }
+
+    /**
+     * Неизменяемый список ожидания на момент снимка.
+     */
+    public List<Integer> getWaitingList() {
+        return waiting.asList();
+    }
+
+    /**
+     * @see Course#getEnrollmentBitmap()
+     */
+    public StudentBitmap getEnrollmentBitmap() {
+        if (enrolled instanceof StudentBitmap) {
+            return (StudentBitmap) enrolled;
+        }
+        StudentBitmap bitmap = new StudentBitmap();
+        enrolled.forEach(bitmap::add);
+        return bitmap.snapshot();
+    }
+
+    public int[] getEnrollmentArray() {
+        return enrolled.toArray();
+    }
+
+    public int[] getWaitingArray() {
+        return waiting.toArray();
+    }
+
+    public void forEachEnrolled(IntConsumer action) {
+        enrolled.forEach(action);
+    }
+
+    public void forEachWaiting(IntConsumer action) {
+        waiting.forEach(action);
+    }
+
+    /**
+     * @see Course#copyEnrolledTo(int[], int)
+     */
+    public int copyEnrolledTo(int[] dst, int offset) {
+        return enrolled.copyTo(dst, offset);
+    }
+
+    /**
+     * @see Course#copyWaitingTo(int[], int)
+     */
+    public int copyWaitingTo(int[] dst, int offset) {
+        return waiting.copyTo(dst, offset);
+    }
+
+    public IntStream enrolledStream() {
+        return StreamSupport.intStream(enrolled.spliterator(), false);
+    }
+
+    public IntStream waitingStream() {
+        return StreamSupport.intStream(waiting.spliterator(), false);
+    }
+}
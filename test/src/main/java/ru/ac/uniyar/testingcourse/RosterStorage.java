@@ -0,0 +1,17 @@
+package ru.ac.uniyar.testingcourse;
+
+/**
+ * Способ хранения списка записавшихся на курс студентов.
+ */
+public enum RosterStorage {
+    /**
+     * Упорядоченное множество: список записавшихся перечисляется в порядке записи.
+     */
+    ORDERED,
+    /**
+     * Сжатая битовая карта {@link StudentBitmap}: компактна при плотных
+     * идентификаторах и позволяет быстро пересекать и объединять составы курсов;
+     * список записавшихся перечисляется по возрастанию идентификаторов.
+     */
+    BITMAP
+}
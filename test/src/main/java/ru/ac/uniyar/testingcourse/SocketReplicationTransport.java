@@ -0,0 +1,188 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Связь реплики с журналом другого узла по TCP (см. {@link ReplicationServer}).
+ * <p>
+ * Каждый сеанс — отдельное соединение. Реплика начинает его приветствием:
+ * сигнатура протокола, свой идентификатор и номер последней применённой
+ * команды; сервер отвечает сигнатурой и идентификатором реплики. Дальше обе
+ * стороны обмениваются кадрами {@link ReplicatedCommand}: реплика отправляет
+ * команды, а поток чтения сеанса декодирует присланные журналом элементы
+ * и передаёт их получателю.
+ * <p>
+ * Если соединение оборвалось или кадр не удалось декодировать или обработать,
+ * поток чтения закрывает соединение и сообщает о сбое получателю; исключения,
+ * кроме ошибок ввода-вывода, дополнительно передаются обработчику
+ * необработанных исключений потока. Реплика после этого считается отключённой.
+ */
+public class SocketReplicationTransport implements ReplicationTransport {
+
+    /**
+     * Сигнатура протокола в приветствии.
+     */
+    static final int MAGIC = 0x43525250;
+    /**
+     * Наибольшая длина кадра; кадр длиннее считается повреждённым.
+     */
+    static final int MAX_FRAME = 1 << 30;
+
+    private final InetSocketAddress address;
+
+    /**
+     * Конструктор.
+     *
+     * @param address адрес {@link ReplicationServer}.
+     */
+    public SocketReplicationTransport(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public Session connect(int replicaId, long appliedSequence, Receiver receiver) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address);
+            DataOutputStream hello = new DataOutputStream(socket.getOutputStream());
+            hello.writeInt(MAGIC);
+            hello.writeInt(replicaId);
+            hello.writeLong(appliedSequence);
+            hello.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Неизвестный протокол репликации: " + address);
+            }
+            int id = in.readInt();
+            SocketSession session = new SocketSession(socket, id);
+            Thread reader = new Thread(() -> session.read(in, receiver), "replication-reader");
+            reader.setDaemon(true);
+            session.reader = reader;
+            reader.start();
+            return session;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Чтение кадра вместе с его длиной.
+     *
+     * @return содержимое кадра без длины или null, если соединение закрыто между кадрами.
+     * @throws IOException если соединение оборвалось внутри кадра или длина неверна.
+     */
+    static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_FRAME) {
+            throw new IOException("Неверная длина кадра репликации: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return ByteBuffer.wrap(frame);
+    }
+
+    /**
+     * Запись кадра; вызывающий отвечает за то, чтобы кадры разных потоков не перемешивались.
+     */
+    static void writeFrame(OutputStream out, ReplicatedCommand command) throws IOException {
+        ByteBuffer frame = command.encode();
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    private static final class SocketSession implements Session {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final int replicaId;
+        private volatile Thread reader;
+        private volatile boolean closing;
+
+        SocketSession(Socket socket, int replicaId) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+            this.replicaId = replicaId;
+        }
+
+        @Override
+        public int getReplicaId() {
+            return replicaId;
+        }
+
+        @Override
+        public void submit(long request, int type, int courseId, int[] values) throws IOException {
+            ReplicatedCommand command = new ReplicatedCommand(0, type, courseId, values, replicaId, request);
+            synchronized (out) {
+                writeFrame(out, command);
+            }
+        }
+
+        /**
+         * Закрытие сеанса: сервер, получив конец потока команд, отключает реплику
+         * и закрывает соединение, а поток чтения до этого доставляет всё, что
+         * журнал успел отправить.
+         */
+        @Override
+        public void close() throws IOException {
+            closing = true;
+            try {
+                socket.shutdownOutput();
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // соединение уже разорвано, поток чтения завершается сам
+            } finally {
+                socket.close();
+            }
+        }
+
+        /**
+         * Чтение кадров журнала до закрытия соединения.
+         */
+        void read(DataInputStream in, Receiver receiver) {
+            Exception failure = null;
+            try {
+                ByteBuffer frame;
+                while ((frame = readFrame(in)) != null) {
+                    receiver.deliver(ReplicatedCommand.decode(frame));
+                }
+                if (!closing) {
+                    failure = new EOFException("Журнал закрыл соединение");
+                }
+            } catch (IOException e) {
+                if (!closing) {
+                    failure = e;
+                }
+            } catch (RuntimeException e) {
+                // например, снимок с недопустимым курсом: сообщаем, а не теряем поток молча
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                failure = e;
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // закрываем уже ненужное соединение
+                }
+            }
+            if (failure != null) {
+                receiver.failed(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Потокобезопасная обёртка над {@link Course} для курсов, которые читают
+ * намного чаще, чем изменяют.
+ * <p>
+ * Запись и отчисление выполняются под исключительной блокировкой
+ * {@link StampedLock}. Проверки заполненности, размеров списков и принадлежности
+ * студента выполняются оптимистически: читающий поток не изменяет состояние
+ * блокировки и лишь сверяет после чтения, что за это время не было записи.
+ * Только если проверка не прошла, чтение повторяется под блокировкой на чтение.
+ * Поэтому частые опросы наличия мест не конкурируют друг с другом за общую
+ * строку кэша.
+ * <p>
+ * Списки студентов отдаются через {@link #snapshot()}, который берётся
+ * под блокировкой на чтение за O(1) и затем читается без блокировок.
+ */
+public class StampedCourse {
+
+    private final Course course;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Конструктор.
+     *
+     * @param maxStudents максимальное количество студентов.
+     */
+    public StampedCourse(int maxStudents) {
+        this(new Course(maxStudents));
+    }
+
+    /**
+     * Конструктор.
+     *
+     * @param maxStudents максимальное количество студентов.
+     * @param storage     способ хранения списка записавшихся.
+     */
+    public StampedCourse(int maxStudents, RosterStorage storage) {
+        this(new Course(maxStudents, storage));
+    }
+
+    private StampedCourse(Course course) {
+        this.course = course;
+    }
+
+    /**
+     * Запись студента на курс, см. {@link Course#enroll(int)}.
+     */
+    public void enroll(int studentId) {
+        long stamp = lock.writeLock();
+        try {
+            course.enroll(studentId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Отчисление студента с курса, см. {@link Course#unenroll(int)}.
+     */
+    public void unenroll(int studentId) {
+        long stamp = lock.writeLock();
+        try {
+            course.unenroll(studentId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Пакетная запись под одной блокировкой, см. {@link Course#enrollAll(int[])}.
+     */
+    public void enrollAll(int[] studentIds) {
+        long stamp = lock.writeLock();
+        try {
+            course.enrollAll(studentIds);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Пакетное отчисление под одной блокировкой, см. {@link Course#unenrollAll(int[])}.
+     */
+    public void unenrollAll(int[] studentIds) {
+        long stamp = lock.writeLock();
+        try {
+            course.unenrollAll(studentIds);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Изменение вместимости курса, см. {@link Course#setMaxStudents(int)}.
+     */
+    public int[] setMaxStudents(int maxStudents) {
+        long stamp = lock.writeLock();
+        try {
+            return course.setMaxStudents(maxStudents);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setPromotionPolicy(PromotionPolicy promotionPolicy) {
+        long stamp = lock.writeLock();
+        try {
+            course.setPromotionPolicy(promotionPolicy);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setCapacityReductionPolicy(CapacityReductionPolicy capacityReductionPolicy) {
+        long stamp = lock.writeLock();
+        try {
+            course.setCapacityReductionPolicy(capacityReductionPolicy);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean isEnrolled(int studentId) {
+        return read(course -> course.isEnrolled(studentId));
+    }
+
+    public boolean isWaiting(int studentId) {
+        return read(course -> course.isWaiting(studentId));
+    }
+
+    /**
+     * Позиция студента в списке ожидания, см. {@link Course#waitingPosition(int)}.
+     */
+    public int waitingPosition(int studentId) {
+        return readInt(course -> course.waitingPosition(studentId));
+    }
+
+    public boolean isFullyEnrolled() {
+        return read(Course::isFullyEnrolled);
+    }
+
+    public boolean hasWaitingList() {
+        return read(Course::hasWaitingList);
+    }
+
+    public int getEnrolledCount() {
+        return readInt(Course::getEnrolledCount);
+    }
+
+    public int getWaitingCount() {
+        return readInt(Course::getWaitingCount);
+    }
+
+    public int getMaxStudents() {
+        return readInt(Course::getMaxStudents);
+    }
+
+    /**
+     * Согласованный неизменяемый снимок обоих списков.
+     */
+    public RosterSnapshot snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return course.snapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Список записавшихся студентов на момент вызова.
+     */
+    public List<Integer> getEnrollmentList() {
+        return snapshot().getEnrollmentList();
+    }
+
+    /**
+     * Список ожидания на момент вызова.
+     */
+    public List<Integer> getWaitingList() {
+        return snapshot().getWaitingList();
+    }
+
+    /**
+     * Копия списка записавшихся студентов в виде массива.
+     */
+    public int[] getEnrollmentArray() {
+        long stamp = lock.readLock();
+        try {
+            return course.getEnrollmentArray();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Копия списка ожидания в виде массива.
+     */
+    public int[] getWaitingArray() {
+        long stamp = lock.readLock();
+        try {
+            return course.getWaitingArray();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Оптимистическое чтение с откатом на блокировку при пересечении с записью.
+     * Во время пересечения внутренние массивы курса могут быть согласованы лишь
+     * частично, поэтому исключение при таком чтении означает только, что его
+     * надо повторить; все циклы поиска в курсе ограничены длиной массивов.
+     */
+    private boolean read(Predicate<Course> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean result = reader.test(course);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // чтение пересеклось с записью и будет повторено под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.test(course);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int readInt(ToIntFunction<Course> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = reader.applyAsInt(course);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // чтение пересеклось с записью и будет повторено под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.applyAsInt(course);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,906 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+
+/**
+ * Сжатое множество идентификаторов студентов в духе Roaring bitmap.
+ * <p>
+ * Идентификаторы делятся на блоки по старшим 16 битам. Блок с небольшим
+ * числом элементов (не более {@value #ARRAY_LIMIT}) хранится как упорядоченный
+ * массив младших 16 бит, плотный — как битовая карта из 1024 слов (8 КБ).
+ * Ключи блоков лежат в упорядоченном массиве, поэтому пересечение и объединение
+ * множеств идут блок за блоком: для битовых карт — пословными AND/OR, для
+ * массивов — слиянием. Элементы перечисляются по возрастанию.
+ * <p>
+ * {@link #snapshot()} копирует только массивы ключей и ссылок на блоки и
+ * помечает блоки общими; изменяемое множество копирует общий блок при первом
+ * изменении в нём.
+ */
+public final class StudentBitmap implements IntRoster {
+
+    static final int ARRAY_LIMIT = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+    private static final char[] NO_KEYS = new char[0];
+    private static final Container[] NO_CONTAINERS = new Container[0];
+
+    private char[] keys = NO_KEYS;
+    private Container[] containers = NO_CONTAINERS;
+    private int count;
+    private int size;
+    private final boolean frozen;
+
+    public StudentBitmap() {
+        this.frozen = false;
+    }
+
+    private StudentBitmap(char[] keys, Container[] containers, int count, int size, boolean frozen) {
+        this.keys = keys;
+        this.containers = containers;
+        this.count = count;
+        this.size = size;
+        this.frozen = frozen;
+    }
+
+    /**
+     * Множество из заданных идентификаторов.
+     */
+    public static StudentBitmap of(int... values) {
+        StudentBitmap bitmap = new StudentBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Пересечение нескольких множеств. Множества обрабатываются в порядке
+     * возрастания размера, чтобы промежуточный результат был как можно меньше.
+     */
+    public static StudentBitmap and(Collection<StudentBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return new StudentBitmap();
+        }
+        StudentBitmap[] sorted = bitmaps.toArray(new StudentBitmap[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.size, b.size));
+        StudentBitmap result = sorted[0];
+        for (int i = 1; i < sorted.length && !result.isEmpty(); i++) {
+            result = result.and(sorted[i]);
+        }
+        return result == sorted[0] ? result.mutableCopy() : result;
+    }
+
+    /**
+     * Объединение нескольких множеств. Результат накапливается на месте,
+     * а блоки, встречающиеся лишь в одном множестве, не копируются до первого изменения.
+     */
+    public static StudentBitmap or(Collection<StudentBitmap> bitmaps) {
+        StudentBitmap result = new StudentBitmap();
+        for (StudentBitmap bitmap : bitmaps) {
+            result.orInPlace(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * Пересечение с другим множеством в виде нового множества.
+     */
+    public StudentBitmap and(StudentBitmap other) {
+        StudentBitmap result = new StudentBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[i], container);
+                    result.size += container.cardinality();
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Объединение с другим множеством в виде нового множества.
+     */
+    public StudentBitmap or(StudentBitmap other) {
+        StudentBitmap result = mutableCopy();
+        result.orInPlace(other);
+        return result;
+    }
+
+    /**
+     * Количество общих элементов с другим множеством без построения пересечения.
+     */
+    public int andCardinality(StudentBitmap other) {
+        int result = 0;
+        int i = 0;
+        int j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        int index = find((char) (flipped >>> 16));
+        return index >= 0 && containers[index].contains((char) flipped);
+    }
+
+    @Override
+    public boolean add(int value) {
+        checkMutable();
+        int flipped = value ^ Integer.MIN_VALUE;
+        char key = (char) (flipped >>> 16);
+        char low = (char) flipped;
+        int index = find(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new ArrayContainer());
+        } else if (containers[index].contains(low)) {
+            return false;
+        }
+        containers[index] = writable(index).add(low);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(int value) {
+        checkMutable();
+        int flipped = value ^ Integer.MIN_VALUE;
+        char low = (char) flipped;
+        int index = find((char) (flipped >>> 16));
+        if (index < 0 || !containers[index].contains(low)) {
+            return false;
+        }
+        Container container = writable(index).remove(low);
+        size--;
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, count - index - 1);
+            containers[--count] = null;
+        } else {
+            containers[index] = container;
+        }
+        return true;
+    }
+
+    /**
+     * Удаление наибольших элементов.
+     */
+    @Override
+    public int[] removeLast(int count) {
+        checkMutable();
+        int[] result = new int[Math.min(count, size)];
+        for (int i = 0; i < result.length; i++) {
+            int value = ((keys[this.count - 1] << 16) | containers[this.count - 1].last()) ^ Integer.MIN_VALUE;
+            remove(value);
+            result[i] = value;
+        }
+        return result;
+    }
+
+    @Override
+    public void ensureCapacity(int count) {
+        // блоки выделяются по мере надобности
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] result = new int[size];
+        copyTo(result, 0);
+        return result;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    @Override
+    public int copyTo(int[] dst, int offset) {
+        if (offset < 0 || offset > dst.length - size) {
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Size: " + size + ", Length: " + dst.length);
+        }
+        int position = offset;
+        for (int i = 0; i < count; i++) {
+            position = containers[i].copyTo(keys[i] << 16, dst, position);
+        }
+        return size;
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new BlockSpliterator(0, count, size);
+    }
+
+    @Override
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Неизменяемая копия множества; стоимость пропорциональна числу блоков, а не элементов.
+     */
+    @Override
+    public StudentBitmap snapshot() {
+        if (frozen) {
+            return this;
+        }
+        share();
+        return new StudentBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count), count, size, true);
+    }
+
+    /**
+     * Элемент с заданным порядковым номером в порядке возрастания.
+     */
+    int select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        for (int i = 0; ; i++) {
+            int cardinality = containers[i].cardinality();
+            if (index < cardinality) {
+                return ((keys[i] << 16) | containers[i].select(index)) ^ Integer.MIN_VALUE;
+            }
+            index -= cardinality;
+        }
+    }
+
+    /**
+     * Количество элементов, меньших заданного, или -1, если элемента нет в множестве.
+     */
+    int rank(int value) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        char low = (char) flipped;
+        int index = find((char) (flipped >>> 16));
+        if (index < 0 || !containers[index].contains(low)) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < index; i++) {
+            result += containers[i].cardinality();
+        }
+        return result + containers[index].rank(low);
+    }
+
+    private StudentBitmap mutableCopy() {
+        share();
+        return new StudentBitmap(Arrays.copyOf(keys, Math.max(count, 4)), Arrays.copyOf(containers, Math.max(count, 4)),
+                count, size, false);
+    }
+
+    private void orInPlace(StudentBitmap other) {
+        other.share();
+        int i = 0;
+        for (int j = 0; j < other.count; j++) {
+            char key = other.keys[j];
+            while (i < count && keys[i] < key) {
+                i++;
+            }
+            if (i < count && keys[i] == key) {
+                int before = containers[i].cardinality();
+                containers[i] = containers[i].or(other.containers[j]);
+                size += containers[i].cardinality() - before;
+            } else {
+                insert(i, key, other.containers[j]);
+                size += other.containers[j].cardinality();
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Пометка всех блоков общими: дальнейшие изменения будут выполняться в копиях.
+     */
+    private void share() {
+        if (frozen) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            containers[i].shared = true;
+        }
+    }
+
+    private Container writable(int index) {
+        Container container = containers[index];
+        if (container.shared) {
+            container = container.copy();
+            containers[index] = container;
+        }
+        return container;
+    }
+
+    private void append(char key, Container container) {
+        insert(count, key, container);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (count == keys.length) {
+            int capacity = Math.max(4, count * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(containers, index, containers, index + 1, count - index);
+        keys[index] = key;
+        containers[index] = container;
+        count++;
+    }
+
+    private int find(char key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char current = keys[middle];
+            if (current < key) {
+                low = middle + 1;
+            } else if (current > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Снимок нельзя изменять");
+        }
+    }
+
+    /**
+     * Блок из не более чем 65536 элементов с общими старшими 16 битами.
+     * Операции, меняющие представление, возвращают новый блок.
+     */
+    private abstract static class Container {
+        boolean shared;
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        /**
+         * Добавление отсутствующего элемента.
+         */
+        abstract Container add(char low);
+
+        /**
+         * Удаление присутствующего элемента.
+         */
+        abstract Container remove(char low);
+
+        abstract Container copy();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract char select(int index);
+
+        abstract char last();
+
+        abstract int rank(char low);
+
+        /**
+         * Наименьший элемент, не меньший {@code from}, или -1.
+         */
+        abstract int next(int from);
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract int copyTo(int high, int[] dst, int position);
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int cardinality;
+
+        ArrayContainer() {
+            this.values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(low);
+            }
+            int index = -Arrays.binarySearch(values, 0, cardinality, low) - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), ARRAY_LIMIT));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[n++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[n++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || i < cardinality && values[i] < array.values[j]) {
+                    result[n++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[n++] = array.values[j++];
+                } else {
+                    result[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, n);
+            return n > ARRAY_LIMIT ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int result = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        char select(int index) {
+            return values[index];
+        }
+
+        @Override
+        char last() {
+            return values[cardinality - 1];
+        }
+
+        @Override
+        int rank(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low);
+        }
+
+        @Override
+        int next(int from) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) Math.min(from, 0xFFFF));
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality && values[index] >= from ? values[index] : -1;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept((high | values[i]) ^ Integer.MIN_VALUE);
+            }
+        }
+
+        @Override
+        int copyTo(int high, int[] dst, int position) {
+            for (int i = 0; i < cardinality; i++) {
+                dst[position++] = (high | values[i]) ^ Integer.MIN_VALUE;
+            }
+            return position;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer() {
+            this.words = new long[BITMAP_WORDS];
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            words[low >>> 6] |= 1L << low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            words[low >>> 6] &= ~(1L << low);
+            cardinality--;
+            return cardinality <= ARRAY_LIMIT ? toArrayContainer() : this;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            long[] result = new long[BITMAP_WORDS];
+            int n = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & bitmap.words[i];
+                n += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, n);
+            return n <= ARRAY_LIMIT ? intersection.toArrayContainer() : intersection;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            int n;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                n = cardinality;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char low = array.values[i];
+                    long bit = 1L << low;
+                    if ((result[low >>> 6] & bit) == 0) {
+                        result[low >>> 6] |= bit;
+                        n++;
+                    }
+                }
+            } else {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                n = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] |= bitmap.words[i];
+                    n += Long.bitCount(result[i]);
+                }
+            }
+            return new BitmapContainer(result, n);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int result = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result += Long.bitCount(words[i] & bitmap.words[i]);
+            }
+            return result;
+        }
+
+        @Override
+        char select(int index) {
+            for (int i = 0; ; i++) {
+                int bits = Long.bitCount(words[i]);
+                if (index < bits) {
+                    long word = words[i];
+                    for (int k = 0; k < index; k++) {
+                        word &= word - 1;
+                    }
+                    return (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                }
+                index -= bits;
+            }
+        }
+
+        @Override
+        char last() {
+            int word = BITMAP_WORDS - 1;
+            while (words[word] == 0) {
+                word--;
+            }
+            return (char) ((word << 6) + 63 - Long.numberOfLeadingZeros(words[word]));
+        }
+
+        @Override
+        int rank(char low) {
+            int result = 0;
+            int word = low >>> 6;
+            for (int i = 0; i < word; i++) {
+                result += Long.bitCount(words[i]);
+            }
+            return result + Long.bitCount(words[word] & ((1L << low) - 1));
+        }
+
+        @Override
+        int next(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int word = from >>> 6;
+            long bits = words[word] & (-1L << from);
+            while (bits == 0) {
+                if (++word == BITMAP_WORDS) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept((high | (i << 6) + Long.numberOfTrailingZeros(word)) ^ Integer.MIN_VALUE);
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        int copyTo(int high, int[] dst, int position) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    dst[position++] = (high | (i << 6) + Long.numberOfTrailingZeros(word)) ^ Integer.MIN_VALUE;
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int n = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+
+    /**
+     * Обходчик по диапазону блоков; делится по границам блоков.
+     */
+    private final class BlockSpliterator implements Spliterator.OfInt {
+        private int block;
+        private int low;
+        private final int end;
+        private long remaining;
+
+        BlockSpliterator(int block, int end, long remaining) {
+            this.block = block;
+            this.end = end;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (block < end) {
+                int next = containers[block].next(low);
+                if (next >= 0) {
+                    action.accept(((keys[block] << 16) | next) ^ Integer.MIN_VALUE);
+                    low = next + 1;
+                    remaining--;
+                    return true;
+                }
+                block++;
+                low = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (block < end && low > 0) {
+                Container container = containers[block];
+                int high = keys[block] << 16;
+                for (int next = container.next(low); next >= 0; next = container.next(next + 1)) {
+                    action.accept((high | next) ^ Integer.MIN_VALUE);
+                }
+                block++;
+                low = 0;
+            }
+            for (; block < end; block++) {
+                containers[block].forEach(keys[block] << 16, action);
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int first = low > 0 ? block + 1 : block;
+            int middle = (first + end) >>> 1;
+            if (middle <= first) {
+                return null;
+            }
+            long suffixSize = 0;
+            for (int i = middle; i < end; i++) {
+                suffixSize += containers[i].cardinality();
+            }
+            BlockSpliterator prefix = new BlockSpliterator(block, middle, remaining - suffixSize);
+            prefix.low = low;
+            block = middle;
+            low = 0;
+            remaining = suffixSize;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    private final class ListView extends AbstractList<Integer> {
+
+        @Override
+        public Integer get(int index) {
+            return select(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && StudentBitmap.this.contains((Integer) o);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof Integer ? rank((Integer) o) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.stream(StudentBitmap.this.toArray()).boxed().toArray();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return Spliterators.iterator(StudentBitmap.this.spliterator());
+        }
+    }
+}
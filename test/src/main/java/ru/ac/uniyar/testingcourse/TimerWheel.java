@@ -0,0 +1,251 @@
+package ru.ac.uniyar.testingcourse;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Иерархическое колесо таймеров для сроков, общих для всех курсов:
+ * срока пребывания в списке ожидания и срока подтверждения перевода
+ * (см. {@link Course#setTimerWheel(TimerWheel)}).
+ * <p>
+ * Время делится на такты заданной длительности. Колесо состоит из
+ * {@value #LEVELS} уровней по {@value #WHEEL_SIZE} ячеек: ячейка уровня
+ * {@code L} охватывает {@code 64^L} тактов. Таймер помещается на самый нижний
+ * уровень, в пределах оборота которого лежит его срок, а при наступлении
+ * оборота — переносится на уровень ниже. Поэтому постановка и отмена таймера
+ * стоят O(1), а такт — O(1) плюс число сработавших и перенесённых таймеров,
+ * сколько бы таймеров ни ожидало. Сроки дальше {@code 64^4} тактов хранятся
+ * в отдельном списке и пересматриваются раз в полный оборот старшего уровня.
+ * <p>
+ * Таймеры хранятся в параллельных массивах и обозначаются номерами, поэтому
+ * миллионы сроков не создают отдельных объектов. Колесо не потокобезопасно:
+ * {@link #advance(long, TimeUnit)} вызывается тем же потоком (или под той же
+ * блокировкой), что и изменения обслуживаемых курсов, и обработчики таймеров
+ * выполняются в этом потоке. {@link CourseRegistry} поэтому заводит по колесу
+ * на сегмент и продвигает его под блокировкой сегмента.
+ */
+public class TimerWheel {
+
+    private static final int LEVEL_BITS = 6;
+    static final int WHEEL_SIZE = 1 << LEVEL_BITS;
+    static final int LEVELS = 4;
+    private static final int SLOT_MASK = WHEEL_SIZE - 1;
+    private static final int OVERFLOW = LEVELS * WHEEL_SIZE;
+    private static final int NONE = -1;
+
+    /**
+     * Получатель сработавших таймеров.
+     */
+    interface Target {
+        /**
+         * Срок истёк. Таймер к этому моменту уже освобождён.
+         *
+         * @param key значение, переданное при постановке таймера.
+         */
+        void expired(int key);
+    }
+
+    private final long tickNanos;
+    private long currentTick;
+    private long pendingNanos;
+    private final int[] heads = new int[OVERFLOW + 1];
+    private long[] deadlines;
+    private int[] keys;
+    private int[] next;
+    private int[] prev;
+    private int[] slots;
+    private Target[] targets;
+    private int free = NONE;
+    private int allocated;
+    private int size;
+
+    /**
+     * Конструктор.
+     *
+     * @param tickDuration длительность такта — точность срабатывания таймеров.
+     * @param unit         единица измерения длительности.
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Длительность такта должна быть положительной: " + tickDuration);
+        }
+        Arrays.fill(heads, NONE);
+        int capacity = 16;
+        deadlines = new long[capacity];
+        keys = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        slots = new int[capacity];
+        targets = new Target[capacity];
+    }
+
+    /**
+     * Продвижение времени колеса. Таймеры, срок которых наступил, срабатывают
+     * в порядке сроков; остаток времени, меньший такта, переносится на следующий вызов.
+     *
+     * @return количество сработавших таймеров.
+     */
+    public int advance(long elapsed, TimeUnit unit) {
+        pendingNanos += unit.toNanos(elapsed);
+        long ticks = pendingNanos / tickNanos;
+        pendingNanos -= ticks * tickNanos;
+        int fired = 0;
+        for (; ticks > 0; ticks--) {
+            if (size == 0) {
+                currentTick += ticks;
+                break;
+            }
+            fired += tick();
+        }
+        return fired;
+    }
+
+    /**
+     * Количество тактов, прошедших с создания колеса.
+     */
+    public long getTick() {
+        return currentTick;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Количество ожидающих таймеров.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Постановка таймера. Срок округляется вверх до целого числа тактов,
+     * но не меньше одного такта. Сроки, не представимые в тактах колеса
+     * (например, {@link TimeUnit#toNanos} от очень большой длительности), не
+     * переполняются, а насыщаются до {@link Long#MAX_VALUE} такта, то есть
+     * фактически не наступают.
+     *
+     * @param target     получатель.
+     * @param key        значение, которое будет передано получателю.
+     * @param delayNanos задержка в наносекундах.
+     * @return номер таймера, действительный до его срабатывания или отмены.
+     */
+    int schedule(Target target, int key, long delayNanos) {
+        long ticks = delayNanos <= 0 ? 1 : delayNanos / tickNanos + (delayNanos % tickNanos == 0 ? 0 : 1);
+        int timer = allocate();
+        deadlines[timer] = ticks > Long.MAX_VALUE - currentTick ? Long.MAX_VALUE : currentTick + ticks;
+        keys[timer] = key;
+        targets[timer] = target;
+        link(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Отмена таймера, который ещё не сработал.
+     */
+    void cancel(int timer) {
+        unlink(timer);
+        release(timer);
+        size--;
+    }
+
+    /**
+     * Один такт: перенос таймеров с наступивших оборотов старших уровней
+     * (начиная с верхнего) и срабатывание ячейки нижнего уровня.
+     */
+    private int tick() {
+        long tick = ++currentTick;
+        for (int level = LEVELS; level > 0; level--) {
+            long boundary = (1L << (LEVEL_BITS * level)) - 1;
+            if ((tick & boundary) == 0) {
+                cascade(level == LEVELS ? OVERFLOW : level * WHEEL_SIZE + (int) ((tick >>> (LEVEL_BITS * level)) & SLOT_MASK));
+            }
+        }
+        int slot = (int) (tick & SLOT_MASK);
+        int fired = 0;
+        // обработчик может ставить и отменять другие таймеры, поэтому ячейка
+        // каждый раз перечитывается, а не обходится заранее сохранённым списком
+        for (int timer = heads[slot]; timer != NONE; timer = heads[slot]) {
+            Target target = targets[timer];
+            int key = keys[timer];
+            unlink(timer);
+            release(timer);
+            size--;
+            fired++;
+            target.expired(key);
+        }
+        return fired;
+    }
+
+    private void cascade(int slot) {
+        int timer = heads[slot];
+        heads[slot] = NONE;
+        while (timer != NONE) {
+            int following = next[timer];
+            link(timer);
+            timer = following;
+        }
+    }
+
+    /**
+     * Помещение таймера в ячейку самого нижнего уровня, в обороте которого лежит его срок.
+     */
+    private void link(int timer) {
+        long deadline = deadlines[timer];
+        int slot = OVERFLOW;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = LEVEL_BITS * (level + 1);
+            if ((deadline >>> shift) == (currentTick >>> shift)) {
+                slot = level * WHEEL_SIZE + (int) ((deadline >>> (LEVEL_BITS * level)) & SLOT_MASK);
+                break;
+            }
+        }
+        int head = heads[slot];
+        next[timer] = head;
+        prev[timer] = NONE;
+        if (head != NONE) {
+            prev[head] = timer;
+        }
+        heads[slot] = timer;
+        slots[timer] = slot;
+    }
+
+    private void unlink(int timer) {
+        int before = prev[timer];
+        int after = next[timer];
+        if (before == NONE) {
+            heads[slots[timer]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            int timer = free;
+            free = next[timer];
+            return timer;
+        }
+        if (allocated == keys.length) {
+            int capacity = keys.length << 1;
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int timer) {
+        targets[timer] = null;
+        next[timer] = free;
+        free = timer;
+    }
+}
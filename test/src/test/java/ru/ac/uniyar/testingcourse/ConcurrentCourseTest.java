@@ -0,0 +1,170 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты потокобезопасного курса.
+ */
+public class ConcurrentCourseTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * Проверка базового поведения в одном потоке
+     */
+    @Test
+    void singleThreadBehaviourMatchesCourse() {
+        ConcurrentCourse course = new ConcurrentCourse(2);
+        course.enroll(1);
+        course.enroll(2);
+        course.enroll(3);
+        course.enroll(4);
+        course.enroll(3);
+        assertThat(course.isFullyEnrolled()).withFailMessage("Курс должен быть заполнен").isEqualTo(true);
+        assertThat(course.getWaitingList()).withFailMessage("Неверный список ожидания").containsExactly(3, 4);
+        course.unenroll(1);
+        assertThat(course.getEnrollmentList()).withFailMessage("Первый ожидающий не переведён в список записанных").containsExactly(2, 3);
+        assertThat(course.getWaitingList()).withFailMessage("Неверный список ожидания после перевода").containsExactly(4);
+        course.unenroll(4);
+        assertThat(course.hasWaitingList()).withFailMessage("Список ожидания должен быть пуст").isEqualTo(false);
+    }
+
+    /**
+     * Одновременная запись большого числа студентов на популярный курс
+     *
+     * @param maxStudents - размер курса
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void concurrentEnrollNeverOverbooks(int maxStudents) throws Exception {
+        ConcurrentCourse course = new ConcurrentCourse(maxStudents);
+        int perThread = 500;
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                course.enroll(i * THREADS + thread);
+                course.enroll(i);
+            }
+        });
+        List<Integer> enrolled = course.getEnrollmentList();
+        List<Integer> waiting = course.getWaitingList();
+        assertThat(enrolled.size()).withFailMessage("Записано больше студентов, чем возможно").isEqualTo(maxStudents);
+        Set<Integer> all = new HashSet<>(enrolled);
+        all.addAll(waiting);
+        assertThat(all.size()).withFailMessage("Студент записан более одного раза").isEqualTo(enrolled.size() + waiting.size());
+        assertThat(all.size()).withFailMessage("Часть студентов потеряна").isEqualTo(perThread * THREADS);
+    }
+
+    /**
+     * Одновременные запись и отмена записи не должны терять переводы из списка ожидания
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {3, 17, 2021})
+    void concurrentChurnKeepsInvariants(long seed) throws Exception {
+        int maxStudents = 20;
+        ConcurrentCourse course = new ConcurrentCourse(maxStudents);
+        runConcurrently(thread -> {
+            Random random = new Random(seed * 31 + thread);
+            for (int i = 0; i < 20000; i++) {
+                int studentId = random.nextInt(100);
+                if (random.nextBoolean()) {
+                    course.enroll(studentId);
+                } else {
+                    course.unenroll(studentId);
+                }
+            }
+        });
+        List<Integer> enrolled = course.getEnrollmentList();
+        List<Integer> waiting = course.getWaitingList();
+        assertThat(enrolled.size()).withFailMessage("Записано больше студентов, чем возможно").isLessThanOrEqualTo(maxStudents);
+        if (enrolled.size() < maxStudents) {
+            assertThat(waiting).withFailMessage("Есть свободные места, но студенты остались в списке ожидания").isEmpty();
+        }
+        Set<Integer> all = new HashSet<>(enrolled);
+        all.addAll(waiting);
+        assertThat(all.size()).withFailMessage("Студент записан более одного раза").isEqualTo(enrolled.size() + waiting.size());
+        assertThat(course.isFullyEnrolled()).withFailMessage("Счётчик мест расходится со списком").isEqualTo(enrolled.size() == maxStudents);
+        assertThat(course.hasWaitingList()).withFailMessage("Счётчик ожидающих расходится со списком").isEqualTo(!waiting.isEmpty());
+    }
+
+    /**
+     * Освобождающиеся места достаются ожидающим студентам, а не тем, кто записывается одновременно с отменой записи
+     *
+     * @param maxStudents - размер курса
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 16})
+    void concurrentUnenrollPromotesInOrder(int maxStudents) throws Exception {
+        int students = 20000;
+        ConcurrentCourse course = new ConcurrentCourse(maxStudents);
+        for (int i = 0; i < students; i++) {
+            course.enroll(i);
+        }
+        AtomicInteger finished = new AtomicInteger();
+        runConcurrently(thread -> {
+            if (thread % 2 == 0) {
+                for (int i = thread / 2; i < students / 2; i += THREADS / 2) {
+                    course.unenroll(i);
+                }
+                finished.incrementAndGet();
+            } else {
+                // новые студенты записываются, пока идут отмены записи
+                for (int studentId = students + thread; finished.get() < THREADS / 2; studentId += THREADS) {
+                    course.enroll(studentId);
+                }
+            }
+        });
+        List<Integer> enrolled = course.getEnrollmentList();
+        assertThat(enrolled.size()).withFailMessage("Неверное количество записавшихся").isEqualTo(maxStudents);
+        for (int studentId : enrolled) {
+            assertThat(studentId).withFailMessage("Новый студент " + studentId + " занял место в обход списка ожидания")
+                    .isBetween(students / 2, students - 1);
+        }
+        List<Integer> waiting = course.getWaitingList();
+        for (int i = 1; i < waiting.size() && waiting.get(i) < students; i++) {
+            assertThat(waiting.get(i)).withFailMessage("Нарушен порядок списка ожидания").isGreaterThan(waiting.get(i - 1));
+        }
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    worker.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
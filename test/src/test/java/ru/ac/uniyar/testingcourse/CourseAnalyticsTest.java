@@ -0,0 +1,86 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты параллельного подсчёта показателей курсов.
+ */
+public class CourseAnalyticsTest {
+
+    /**
+     * Показатели снимков и реестра совпадают с последовательным подсчётом
+     */
+    @Test
+    void statisticsMatchSequentialLoop() {
+        Random random = new Random(5);
+        CourseRegistry registry = new CourseRegistry(64);
+        int courses = 5000;
+        for (int courseId = 0; courseId < courses; courseId++) {
+            int maxStudents = 1 + random.nextInt(20);
+            registry.createCourse(courseId, maxStudents);
+            int students = random.nextInt(40);
+            for (int studentId = 0; studentId < students; studentId++) {
+                registry.enroll(courseId, studentId);
+            }
+        }
+        Map<Integer, RosterSnapshot> snapshots = new HashMap<>();
+        long seats = 0;
+        long enrolled = 0;
+        long waitlisted = 0;
+        int full = 0;
+        int longest = -1;
+        int longestSize = 0;
+        for (int courseId = 0; courseId < courses; courseId++) {
+            RosterSnapshot snapshot = registry.snapshot(courseId);
+            snapshots.put(courseId, snapshot);
+            seats += snapshot.getMaxStudents();
+            enrolled += snapshot.getEnrolledCount();
+            waitlisted += snapshot.getWaitingCount();
+            full += snapshot.isFullyEnrolled() ? 1 : 0;
+            if (snapshot.getWaitingCount() > longestSize) {
+                longest = courseId;
+                longestSize = snapshot.getWaitingCount();
+            }
+        }
+        for (CourseStatistics statistics : new CourseStatistics[]{CourseAnalytics.analyze(snapshots, 10), registry.analyze(10)}) {
+            assertThat(statistics.getCourseCount()).withFailMessage("Неверное количество курсов").isEqualTo(courses);
+            assertThat(statistics.getTotalSeats()).withFailMessage("Неверное количество мест").isEqualTo(seats);
+            assertThat(statistics.getTotalEnrolled()).withFailMessage("Неверное количество записавшихся").isEqualTo(enrolled);
+            assertThat(statistics.getTotalWaitlisted()).withFailMessage("Неверное количество ожидающих").isEqualTo(waitlisted);
+            assertThat(statistics.getFullyEnrolledCount()).withFailMessage("Неверное количество заполненных курсов").isEqualTo(full);
+            assertThat(statistics.getFillRatio()).withFailMessage("Неверная доля занятых мест").isEqualTo((double) enrolled / seats);
+            int[] top = statistics.getLongestWaitingCourses();
+            int[] sizes = statistics.getLongestWaitingSizes();
+            assertThat(top).withFailMessage("Неверный размер выборки").hasSize(10);
+            assertThat(top[0]).withFailMessage("Неверный курс с самым длинным списком ожидания").isEqualTo(longest);
+            for (int i = 0; i < top.length; i++) {
+                assertThat(sizes[i]).withFailMessage("Длина не соответствует курсу").isEqualTo(snapshots.get(top[i]).getWaitingCount());
+                if (i > 0) {
+                    assertThat(sizes[i] < sizes[i - 1] || sizes[i] == sizes[i - 1] && top[i] > top[i - 1])
+                            .withFailMessage("Нарушен порядок выборки").isEqualTo(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Выборка не включает курсы без списка ожидания
+     */
+    @Test
+    void topSkipsCoursesWithoutWaitingList() {
+        CourseRegistry registry = new CourseRegistry(4);
+        registry.createCourse(-3, 1);
+        registry.createCourse(7, 5);
+        registry.enroll(-3, 1);
+        registry.enroll(-3, 2);
+        CourseStatistics statistics = registry.analyze(5);
+        assertThat(statistics.getLongestWaitingCourses()).withFailMessage("В выборке должен быть один курс").containsExactly(-3);
+        assertThat(statistics.getFullyEnrolledCount()).withFailMessage("Неверное количество заполненных курсов").isEqualTo(1);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты двоичного представления курса.
+ */
+public class CourseCodecTest {
+
+    private static Course sampleCourse(int base, int maxStudents, int students) {
+        Course course = new Course(maxStudents);
+        for (int i = students - 1; i >= 0; i--) {
+            course.enroll(base + i);
+        }
+        course.unenroll(base + students - 2);
+        return course;
+    }
+
+    private static void assertSameRosters(Course actual, Course expected) {
+        int[] enrolled = expected.getEnrollmentArray();
+        Arrays.sort(enrolled);
+        assertThat(actual.getMaxStudents()).withFailMessage("Неверное количество мест").isEqualTo(expected.getMaxStudents());
+        assertThat(actual.getEnrollmentArray()).withFailMessage("Неверный список записавшихся").containsExactly(enrolled);
+        assertThat(actual.getWaitingArray()).withFailMessage("Нарушен порядок списка ожидания").containsExactly(expected.getWaitingArray());
+    }
+
+    /**
+     * Кодирование и декодирование через буфер
+     */
+    @Test
+    void bufferRoundTrip() throws IOException {
+        Course course = sampleCourse(-500, 1000, 3000);
+        ByteBuffer buffer = ByteBuffer.allocate(CourseCodec.maxEncodedSize(course));
+        CourseCodec.encode(course, buffer);
+        assertThat(buffer.position()).withFailMessage("Плотные идентификаторы должны занимать около байта")
+                .isLessThan(3000 * 2);
+        buffer.flip();
+        assertSameRosters(CourseCodec.decode(buffer), course);
+        assertThat(buffer.hasRemaining()).withFailMessage("Курс прочитан не полностью").isEqualTo(false);
+    }
+
+    /**
+     * Несколько курсов подряд через каналы с маленьким буфером
+     */
+    @Test
+    void channelRoundTrip() throws IOException {
+        Course first = sampleCourse(10, 5, 20);
+        Course second = sampleCourse(Integer.MAX_VALUE - 100, 50, 60);
+        Course empty = new Course(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(7);
+        try (WritableByteChannel out = Channels.newChannel(bytes)) {
+            CourseCodec.encode(first, out, buffer);
+            CourseCodec.encode(second, out, buffer);
+            CourseCodec.encode(empty, out, buffer);
+        }
+        buffer.clear().limit(0);
+        try (ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSameRosters(CourseCodec.decode(in, buffer), first);
+            assertSameRosters(CourseCodec.decode(in, buffer), second);
+            assertSameRosters(CourseCodec.decode(in, buffer), empty);
+            ByteBuffer finalBuffer = buffer;
+            assertThatThrownBy(() -> CourseCodec.decode(in, finalBuffer))
+                    .withFailMessage("Чтение за концом канала должно завершаться ошибкой")
+                    .isInstanceOf(EOFException.class);
+        }
+    }
+
+    /**
+     * Повреждённые данные не принимаются
+     */
+    @Test
+    void corruptedDataIsRejected() {
+        Course course = sampleCourse(0, 2, 4);
+        ByteBuffer buffer = ByteBuffer.allocate(CourseCodec.maxEncodedSize(course));
+        CourseCodec.encode(course, buffer);
+        buffer.flip();
+        ByteBuffer truncated = buffer.duplicate();
+        truncated.limit(buffer.limit() - 1);
+        assertThatThrownBy(() -> CourseCodec.decode(truncated))
+                .withFailMessage("Обрезанные данные должны отклоняться")
+                .isInstanceOf(EOFException.class);
+        ByteBuffer wrongVersion = buffer.duplicate();
+        wrongVersion.put(0, (byte) 99);
+        assertThatThrownBy(() -> CourseCodec.decode(wrongVersion))
+                .withFailMessage("Неизвестная версия должна отклоняться")
+                .isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Заявленное количество студентов проверяется до выделения памяти под списки
+     */
+    @Test
+    void overstatedCountsAreRejected() throws IOException {
+        // версия, одно место, 2^31 - 1 записавшихся
+        byte[] huge = {1, 2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThatThrownBy(() -> CourseCodec.decode(ByteBuffer.wrap(huge)))
+                .withFailMessage("Количество сверх оставшихся данных должно отклоняться")
+                .isInstanceOf(IOException.class);
+        // версия, 2^30 мест, 2^20 записавшихся, но данных на трёх студентов
+        byte[] overstated = {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08,
+                (byte) 0x80, (byte) 0x80, 0x40, 0, 0, 0};
+        assertThatThrownBy(() -> CourseCodec.decode(ByteBuffer.wrap(overstated)))
+                .withFailMessage("Количество сверх оставшихся данных должно отклоняться")
+                .isInstanceOf(IOException.class);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.limit(0);
+        try (ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(overstated))) {
+            assertThatThrownBy(() -> CourseCodec.decode(in, buffer))
+                    .withFailMessage("Обрыв данных после завышенного количества должен отклоняться")
+                    .isInstanceOf(IOException.class);
+        }
+    }
+
+    /**
+     * Курс, число мест которого уменьшено с BLOCK_NEW, передаётся как есть
+     */
+    @Test
+    void overCapacityCourseRoundTrip() throws IOException {
+        Course course = sampleCourse(0, 6, 8);
+        course.setCapacityReductionPolicy(CapacityReductionPolicy.BLOCK_NEW);
+        course.setMaxStudents(2);
+        course.enroll(100);
+        assertThat(course.getEnrolledCount()).withFailMessage("Записавшихся должно остаться больше, чем мест").isGreaterThan(2);
+        ByteBuffer buffer = ByteBuffer.allocate(CourseCodec.maxEncodedSize(course));
+        CourseCodec.encode(course, buffer);
+        buffer.flip();
+        Course decoded = CourseCodec.decode(buffer);
+        assertSameRosters(decoded, course);
+        decoded.unenroll(decoded.getEnrollmentArray()[0]);
+        assertThat(decoded.isWaiting(100)).withFailMessage("Пока мест не хватает, перевод не выполняется").isTrue();
+    }
+}
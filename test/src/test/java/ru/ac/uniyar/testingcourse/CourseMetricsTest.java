@@ -0,0 +1,101 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты учёта метрик курса.
+ */
+public class CourseMetricsTest {
+
+    /**
+     * Проверка счётчиков и гистограмм
+     */
+    @Test
+    void countersFollowChanges() {
+        CourseMetrics metrics = new CourseMetrics();
+        Course course = new Course(1);
+        course.setMetrics(metrics);
+        course.enroll(1);
+        course.enroll(2);
+        course.enroll(2);
+        course.enrollAll(new int[]{1, 3});
+        course.unenroll(1);
+        assertThat(metrics.getEnrolledCount()).withFailMessage("Неверное число записей").isEqualTo(1);
+        assertThat(metrics.getWaitlistedCount()).withFailMessage("Неверное число попаданий в список ожидания").isEqualTo(2);
+        assertThat(metrics.getDuplicateCount()).withFailMessage("Неверное число повторных записей").isEqualTo(2);
+        assertThat(metrics.getUnenrolledCount()).withFailMessage("Неверное число удалений").isEqualTo(1);
+        assertThat(metrics.getPromotedCount()).withFailMessage("Неверное число переводов").isEqualTo(1);
+        assertThat(metrics.getEnrollLatency().getCount()).withFailMessage("Неверное число замеров записи").isEqualTo(3);
+        assertThat(metrics.getUnenrollLatency().getCount()).withFailMessage("Неверное число замеров удаления").isEqualTo(1);
+    }
+
+    /**
+     * Проверка перцентилей гистограммы
+     */
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1_000_000);
+        assertThat(histogram.getPercentile(0.5)).withFailMessage("Медиана должна попасть в интервал до 127 нс").isEqualTo(127);
+        assertThat(histogram.getPercentile(1.0)).withFailMessage("Максимум должен попасть в интервал до 2^20 нс").isEqualTo((1L << 20) - 1);
+    }
+
+    /**
+     * Публикация метрик через JMX
+     */
+    @Test
+    void jmxSinkPublishesBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MetricsSink sink = MetricsSink.defaultSink();
+        CourseMetrics metrics = new CourseMetrics();
+        Course course = new Course(1);
+        course.setMetrics(metrics);
+        course.enroll(1);
+        course.enroll(2);
+        sink.register("test", metrics);
+        sink.registerCourse("course-1", course);
+        ObjectName metricsName = JmxMetricsSink.objectName("CourseMetrics", "test");
+        ObjectName courseName = JmxMetricsSink.objectName("Course", "course-1");
+        assertThat(server.getAttribute(metricsName, "WaitlistedCount")).withFailMessage("Счётчик не опубликован").isEqualTo(1L);
+        assertThat(server.getAttribute(courseName, "Waiting")).withFailMessage("Размер списка ожидания не опубликован").isEqualTo(1);
+        sink.unregisterCourse("course-1");
+        assertThat(server.isRegistered(courseName)).withFailMessage("Публикация курса не снята").isEqualTo(false);
+    }
+
+    /**
+     * Показатели курса реестра назначаются по идентификатору и следуют за его изменениями
+     */
+    @Test
+    void registryGaugesFollowCourseId() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MetricsSink sink = MetricsSink.defaultSink();
+        CourseRegistry registry = new CourseRegistry(4);
+        registry.createCourse(7, 1);
+        registry.enroll(7, 1);
+        sink.registerCourse("registry-7", registry, 7);
+        ObjectName courseName = JmxMetricsSink.objectName("Course", "registry-7");
+        assertThat(server.getAttribute(courseName, "Enrolled")).withFailMessage("Размер списка не опубликован").isEqualTo(1);
+        registry.enroll(7, 2);
+        registry.enroll(7, 3);
+        assertThat(server.getAttribute(courseName, "Waiting")).withFailMessage("Показатель не следует за записью").isEqualTo(2);
+        registry.setMaxStudents(7, 2, CapacityReductionPolicy.BLOCK_NEW);
+        assertThat(server.getAttribute(courseName, "MaxStudents")).withFailMessage("Показатель не следует за числом мест").isEqualTo(2);
+        assertThat(server.getAttribute(courseName, "Waiting")).withFailMessage("Показатель не следует за переводом").isEqualTo(1);
+        registry.removeCourse(7);
+        assertThat(server.getAttribute(courseName, "Enrolled")).withFailMessage("Показатели удалённого курса не обнулены").isEqualTo(0);
+        registry.createCourse(7, 5);
+        registry.enroll(7, 4);
+        assertThat(server.getAttribute(courseName, "Enrolled")).withFailMessage("Показатели не подключены к новому курсу").isEqualTo(1);
+        assertThat(server.getAttribute(courseName, "MaxStudents")).withFailMessage("Неверное число мест нового курса").isEqualTo(5);
+        sink.unregisterCourse("registry-7");
+    }
+}
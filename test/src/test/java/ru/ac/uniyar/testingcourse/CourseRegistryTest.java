@@ -0,0 +1,300 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты реестра курсов.
+ */
+public class CourseRegistryTest {
+
+    private CourseRegistry registry;
+
+    @BeforeEach
+    public void init() {
+        registry = new CourseRegistry(8);
+        registry.createCourse(1, 2);
+        registry.createCourse(2, 1);
+    }
+
+    /**
+     * Проверка обратного индекса при записи и переводе из списка ожидания
+     */
+    @Test
+    void reverseIndexFollowsPromotion() {
+        registry.enroll(1, 10);
+        registry.enroll(1, 11);
+        registry.enroll(1, 12);
+        registry.enroll(2, 12);
+        assertThat(registry.getWaitingCourses(12)).withFailMessage("Студент должен ожидать курс 1").containsExactly(1);
+        assertThat(registry.getEnrolledCourses(12)).withFailMessage("Студент должен быть записан на курс 2").containsExactly(2);
+        registry.unenroll(1, 10);
+        assertThat(registry.getEnrolledCourses(10)).withFailMessage("Удалённый студент остался в индексе").isEmpty();
+        assertThat(registry.getEnrolledCourses(12)).withFailMessage("Перевод из списка ожидания не отражён в индексе").containsExactlyInAnyOrder(1, 2);
+        assertThat(registry.getWaitingCourses(12)).withFailMessage("Переведённый студент остался в списке ожидания индекса").isEmpty();
+    }
+
+    /**
+     * Проверка обратного индекса при групповых операциях и удалении курса
+     */
+    @Test
+    void reverseIndexFollowsBatchOperations() {
+        registry.enrollAll(1, new int[]{1, 2, 3, 4});
+        registry.unenrollAll(1, new int[]{1, 3});
+        assertThat(registry.getEnrollmentArray(1)).withFailMessage("Неверный список записанных").containsExactly(2, 4);
+        assertThat(registry.getEnrolledCourses(4)).withFailMessage("Групповой перевод не отражён в индексе").containsExactly(1);
+        assertThat(registry.getWaitingCourses(4)).withFailMessage("Переведённый студент остался в списке ожидания индекса").isEmpty();
+        assertThat(registry.removeCourse(1)).withFailMessage("Курс не удалён").isEqualTo(true);
+        assertThat(registry.getEnrolledCourses(2)).withFailMessage("После удаления курса он остался в индексе").isEmpty();
+        assertThat(registry.containsCourse(1)).withFailMessage("Удалённый курс остался в реестре").isEqualTo(false);
+    }
+
+    /**
+     * Обращение к несуществующему курсу
+     */
+    @Test
+    void unknownCourseIsRejected() {
+        assertThat(registry.createCourse(1, 5)).withFailMessage("Повторное создание курса должно быть отклонено").isEqualTo(false);
+        assertThatThrownBy(() -> registry.enroll(42, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Параллельная работа с разными курсами
+     */
+    @Test
+    void concurrentOperationsOnManyCourses() throws Exception {
+        int courses = 200;
+        for (int c = 0; c < courses; c++) {
+            registry.createCourse(100 + c, 5);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int c = 0; c < courses; c++) {
+                        for (int s = 0; s < 10; s++) {
+                            registry.enroll(100 + c, thread * 10 + s);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(registry.size()).withFailMessage("Неверное количество курсов").isEqualTo(courses + 2);
+        for (int studentId = 0; studentId < 40; studentId++) {
+            int total = registry.getEnrolledCourses(studentId).length + registry.getWaitingCourses(studentId).length;
+            assertThat(total).withFailMessage("Индекс студента " + studentId + " неполон").isEqualTo(courses);
+        }
+    }
+
+    /**
+     * Пересечение и объединение составов курсов, хранящихся в битовых картах
+     */
+    @Test
+    void crossCourseQueriesOnBitmapCourses() {
+        CourseRegistry bitmaps = new CourseRegistry(8, null, RosterStorage.BITMAP);
+        bitmaps.createCourse(1, 1000);
+        bitmaps.createCourse(2, 1000);
+        bitmaps.createCourse(3, 3);
+        for (int studentId = 0; studentId < 900; studentId++) {
+            bitmaps.enroll(1, studentId);
+            bitmaps.enroll(2, studentId + 600);
+        }
+        bitmaps.enroll(3, 5);
+        bitmaps.enroll(3, 700);
+        bitmaps.enroll(3, 2000);
+        bitmaps.unenroll(1, 650);
+        assertThat(bitmaps.getEnrollmentArray(3)).withFailMessage("Записавшиеся должны перечисляться по возрастанию").containsExactly(5, 700, 2000);
+        assertThat(bitmaps.enrolledInAll(1, 2).size()).withFailMessage("Неверный размер пересечения").isEqualTo(299);
+        assertThat(bitmaps.enrolledInAll(1, 2, 3).toArray()).withFailMessage("Неверное пересечение трёх курсов").containsExactly(700);
+        assertThat(bitmaps.enrolledInAny(1, 2, 3).size()).withFailMessage("Неверный размер объединения").isEqualTo(1501);
+        registry.enroll(1, 10);
+        registry.enroll(2, 10);
+        assertThat(registry.enrolledInAll(1, 2).toArray()).withFailMessage("Пересечение курсов с упорядоченным хранением").containsExactly(10);
+    }
+
+    /**
+     * Обмен курса выполняется целиком или не выполняется вовсе
+     */
+    @Test
+    void swapIsAtomic() {
+        registry.createCourse(3, 1);
+        registry.enroll(1, 10);
+        registry.enroll(1, 11);
+        registry.enroll(1, 12);
+        registry.enroll(2, 20);
+        assertThat(registry.swap(10, 1, 2)).withFailMessage("Обмен на заполненный курс должен отклоняться").isEqualTo(EnrollmentOutcome.COURSE_FULL);
+        assertThat(registry.getEnrollmentArray(1)).withFailMessage("Отклонённый обмен изменил прежний курс").containsExactly(10, 11);
+        assertThat(registry.swap(12, 1, 3)).withFailMessage("Ожидающий студент не может менять курс").isEqualTo(EnrollmentOutcome.NOT_FOUND);
+        assertThat(registry.swap(20, 2, 3)).withFailMessage("Обмен должен выполняться").isEqualTo(EnrollmentOutcome.ENROLLED);
+        assertThat(registry.swap(10, 1, 2)).withFailMessage("Обмен на освободившееся место должен выполняться").isEqualTo(EnrollmentOutcome.ENROLLED);
+        assertThat(registry.getEnrollmentArray(1)).withFailMessage("Место на прежнем курсе должно перейти ожидающему").containsExactly(11, 12);
+        assertThat(registry.getEnrolledCourses(10)).withFailMessage("Обратный индекс не отразил обмен").containsExactly(2);
+        assertThat(registry.getEnrolledCourses(12)).withFailMessage("Обратный индекс не отразил перевод").containsExactly(1);
+        assertThat(registry.swap(11, 1, 2)).withFailMessage("Курс заполнен после обмена").isEqualTo(EnrollmentOutcome.COURSE_FULL);
+        registry.enroll(3, 11);
+        assertThat(registry.swap(11, 1, 3)).withFailMessage("Студент уже ожидает новый курс").isEqualTo(EnrollmentOutcome.DUPLICATE);
+        assertThatThrownBy(() -> registry.swap(11, 1, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.swap(11, 1, 42)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Квота ограничивает число курсов студента, включая списки ожидания
+     */
+    @Test
+    void seatQuotaLimitsCourses() {
+        registry.createCourse(3, 5);
+        registry.createCourse(4, 5);
+        registry.setSeatQuota(2);
+        registry.enroll(2, 99);
+        assertThat(registry.enroll(1, 10)).withFailMessage("Запись в пределах квоты").isEqualTo(EnrollmentOutcome.ENROLLED);
+        assertThat(registry.enroll(2, 10)).withFailMessage("Список ожидания входит в квоту").isEqualTo(EnrollmentOutcome.WAITLISTED);
+        assertThat(registry.enroll(3, 10)).withFailMessage("Запись сверх квоты должна отклоняться").isEqualTo(EnrollmentOutcome.QUOTA_EXCEEDED);
+        assertThat(registry.enroll(1, 10)).withFailMessage("Повторная запись не зависит от квоты").isEqualTo(EnrollmentOutcome.DUPLICATE);
+        assertThat(registry.swap(10, 1, 3)).withFailMessage("Обмен не меняет число курсов").isEqualTo(EnrollmentOutcome.ENROLLED);
+        registry.enrollAll(4, new int[]{10, 11});
+        assertThat(registry.getEnrollmentArray(4)).withFailMessage("Групповая запись должна пропускать исчерпавших квоту").containsExactly(11);
+        registry.unenroll(2, 10);
+        assertThat(registry.enroll(4, 10)).withFailMessage("Отмена записи освобождает квоту").isEqualTo(EnrollmentOutcome.ENROLLED);
+        registry.setSeatQuota(0);
+        assertThat(registry.enroll(1, 10)).withFailMessage("Без квоты запись не ограничена").isEqualTo(EnrollmentOutcome.ENROLLED);
+    }
+
+    /**
+     * Одновременные обмены и записи не нарушают квоту и не теряют студентов
+     */
+    @Test
+    void concurrentSwapsKeepQuota() throws Exception {
+        int courses = 16;
+        int quota = 3;
+        for (int c = 0; c < courses; c++) {
+            registry.createCourse(100 + c, 4);
+        }
+        registry.setSeatQuota(quota);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    java.util.Random random = new java.util.Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        int studentId = random.nextInt(20);
+                        int from = 100 + random.nextInt(courses);
+                        int to = 100 + random.nextInt(courses);
+                        switch (random.nextInt(3)) {
+                            case 0:
+                                registry.enroll(from, studentId);
+                                break;
+                            case 1:
+                                registry.unenroll(from, studentId);
+                                break;
+                            default:
+                                if (from != to) {
+                                    registry.swap(studentId, from, to);
+                                }
+                                break;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < 20; i++) {
+            int studentId = i;
+            int[] enrolled = registry.getEnrolledCourses(studentId);
+            int[] waiting = registry.getWaitingCourses(studentId);
+            assertThat(enrolled.length + waiting.length).withFailMessage("Квота студента " + studentId + " нарушена").isLessThanOrEqualTo(quota);
+            for (int courseId : enrolled) {
+                assertThat(registry.<Boolean>read(courseId, course -> course.isEnrolled(studentId))).withFailMessage("Индекс расходится с курсом").isTrue();
+            }
+            for (int courseId : waiting) {
+                assertThat(registry.<Boolean>read(courseId, course -> course.isWaiting(studentId))).withFailMessage("Индекс расходится с курсом").isTrue();
+            }
+        }
+        for (int c = 0; c < courses; c++) {
+            int courseId = 100 + c;
+            for (int studentId : registry.getEnrollmentArray(courseId)) {
+                assertThat(registry.getEnrolledCourses(studentId)).withFailMessage("Записанный студент потерян индексом").contains(courseId);
+            }
+            assertThat(registry.getEnrollmentArray(courseId).length).withFailMessage("Курс переполнен").isLessThanOrEqualTo(4);
+        }
+    }
+
+    /**
+     * Истечение срока ожидания проходит через реестр: обновляет обратный индекс и освобождает квоту
+     */
+    @Test
+    void waitingTtlUpdatesIndexAndQuota() {
+        registry.enableDeadlines(1, TimeUnit.MILLISECONDS);
+        registry.setSeatQuota(1);
+        registry.setWaitingTtl(10, TimeUnit.MILLISECONDS);
+        registry.enroll(2, 1);
+        assertThat(registry.enroll(2, 10)).withFailMessage("Студент должен попасть в список ожидания").isEqualTo(EnrollmentOutcome.WAITLISTED);
+        assertThat(registry.enroll(1, 10)).withFailMessage("Список ожидания входит в квоту").isEqualTo(EnrollmentOutcome.QUOTA_EXCEEDED);
+        assertThat(registry.advanceTime(9, TimeUnit.MILLISECONDS)).withFailMessage("Срок истёк раньше времени").isZero();
+        assertThat(registry.advanceTime(1, TimeUnit.MILLISECONDS)).withFailMessage("Срок не истёк").isEqualTo(1);
+        assertThat(registry.getWaitingArray(2)).withFailMessage("Студент остался в списке ожидания").isEmpty();
+        assertThat(registry.getWaitingCourses(10)).withFailMessage("Истёкший срок не отражён в индексе").isEmpty();
+        assertThat(registry.enroll(1, 10)).withFailMessage("Истёкший срок освобождает квоту").isEqualTo(EnrollmentOutcome.ENROLLED);
+    }
+
+    /**
+     * Неподтверждённое место переходит к следующему ожидающему, и индекс это отражает
+     */
+    @Test
+    void offerTimeoutPromotesNextStudent() {
+        registry.enableDeadlines(1, TimeUnit.MILLISECONDS);
+        registry.setOfferTimeout(5, TimeUnit.MILLISECONDS);
+        registry.enroll(2, 1);
+        registry.enroll(2, 2);
+        registry.enroll(2, 3);
+        registry.unenroll(2, 1);
+        assertThat(registry.getEnrolledCourses(2)).withFailMessage("Переведённый студент не отражён в индексе").containsExactly(2);
+        registry.advanceTime(5, TimeUnit.MILLISECONDS);
+        assertThat(registry.getEnrollmentArray(2)).withFailMessage("Место должно перейти к следующему ожидающему").containsExactly(3);
+        assertThat(registry.getEnrolledCourses(2)).withFailMessage("Потерявший место студент остался в индексе").isEmpty();
+        assertThat(registry.getEnrolledCourses(3)).withFailMessage("Новый переведённый не отражён в индексе").containsExactly(2);
+        assertThat(registry.confirm(2, 3)).withFailMessage("Предложенное место должно подтверждаться").isTrue();
+        assertThat(registry.advanceTime(10, TimeUnit.MILLISECONDS)).withFailMessage("Подтверждённое место не должно истекать").isZero();
+        assertThat(registry.getEnrollmentArray(2)).withFailMessage("Подтвердивший студент потерял место").containsExactly(3);
+    }
+
+    /**
+     * Удаление курса отменяет его сроки, а сроки требуют включения
+     */
+    @Test
+    void deadlinesFollowCourseLifecycle() {
+        assertThatThrownBy(() -> registry.setWaitingTtl(1, TimeUnit.SECONDS)).withFailMessage("Сроки без колёс должны отклоняться").isInstanceOf(IllegalStateException.class);
+        registry.enableDeadlines(1, TimeUnit.MILLISECONDS);
+        assertThatThrownBy(() -> registry.enableDeadlines(1, TimeUnit.MILLISECONDS)).withFailMessage("Повторное включение должно отклоняться").isInstanceOf(IllegalStateException.class);
+        registry.setWaitingTtl(10, TimeUnit.MILLISECONDS);
+        registry.createCourse(3, 0);
+        registry.enroll(3, 10);
+        registry.enroll(2, 11);
+        registry.enroll(2, 12);
+        assertThat(registry.removeCourse(3)).withFailMessage("Курс не удалён").isTrue();
+        assertThat(registry.advanceTime(10, TimeUnit.MILLISECONDS)).withFailMessage("Сроки удалённого курса не отменены").isEqualTo(1);
+        assertThat(registry.getWaitingCourses(12)).withFailMessage("Истёкший срок не отражён в индексе").isEmpty();
+    }
+}
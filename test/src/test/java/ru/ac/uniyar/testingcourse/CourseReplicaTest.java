@@ -0,0 +1,374 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты репликации реестра курсов через общий журнал команд.
+ */
+public class CourseReplicaTest {
+
+    private static final int COURSES = 5;
+
+    /**
+     * Одновременные изменения через разные реплики приводят все реплики
+     * к одинаковому состоянию, включая порядок списков
+     */
+    @Test
+    void replicasConverge() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ReplicationLog log = new ReplicationLog(1000);
+            List<CourseReplica> replicas = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                replicas.add(log.join(executor));
+            }
+            for (int courseId = 0; courseId < COURSES; courseId++) {
+                replicas.get(0).createCourse(courseId, 10).get();
+            }
+            List<Thread> clients = new ArrayList<>();
+            List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int i = 0; i < replicas.size(); i++) {
+                CourseReplica replica = replicas.get(i);
+                Random random = new Random(i);
+                clients.add(new Thread(() -> {
+                    for (int n = 0; n < 2000; n++) {
+                        int courseId = random.nextInt(COURSES);
+                        int studentId = random.nextInt(60);
+                        CompletableFuture<?> result;
+                        if (n % 500 == 499) {
+                            result = replica.setMaxStudents(courseId, 5 + random.nextInt(10), CapacityReductionPolicy.DEMOTE_LATEST);
+                        } else if (random.nextBoolean()) {
+                            result = replica.enroll(courseId, studentId);
+                        } else {
+                            result = replica.unenroll(courseId, studentId);
+                        }
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    }
+                }));
+            }
+            clients.forEach(Thread::start);
+            for (Thread client : clients) {
+                client.join();
+            }
+            for (CompletableFuture<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+            CourseReplica late = log.join(executor);
+            replicas.add(late);
+            awaitApplied(log, replicas);
+            CourseReplica first = replicas.get(0);
+            for (CourseReplica replica : replicas) {
+                for (int courseId = 0; courseId < COURSES; courseId++) {
+                    assertThat(replica.getEnrollmentArray(courseId)).withFailMessage("Списки записавшихся реплик расходятся")
+                            .containsExactly(first.getEnrollmentArray(courseId));
+                    assertThat(replica.getWaitingArray(courseId)).withFailMessage("Списки ожидания реплик расходятся")
+                            .containsExactly(first.getWaitingArray(courseId));
+                }
+                assertThat(replica.getEnrolledCourses(7)).withFailMessage("Обратные индексы реплик расходятся")
+                        .containsExactlyInAnyOrder(first.getEnrolledCourses(7));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Отставшая реплика догоняет журнал по хранимым командам, а если их уже нет — по снимку
+     */
+    @Test
+    void laggingReplicaCatchesUp() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ReplicationLog log = new ReplicationLog(10);
+            CourseReplica leader = log.join(executor);
+            CourseReplica follower = log.join(executor);
+            leader.createCourse(1, 2).get();
+            assertThatThrownBy(() -> leader.enroll(2, 1).get()).withFailMessage("Запись на несуществующий курс должна отклоняться")
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+            follower.disconnect();
+            assertThatThrownBy(() -> follower.enroll(1, 1).get()).withFailMessage("Отключённая реплика не должна принимать изменения")
+                    .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+            for (int studentId = 1; studentId <= 4; studentId++) {
+                leader.enroll(1, studentId).get();
+            }
+            assertThat(leader.unenroll(1, 1).get()).withFailMessage("Неверный результат отмены записи").isEqualTo(EnrollmentOutcome.UNENROLLED);
+            follower.reconnect();
+            awaitApplied(log, follower);
+            assertThat(follower.getEnrollmentArray(1)).withFailMessage("Реплика не догнала журнал по командам").containsExactly(2, 3);
+            assertThat(follower.getWaitingArray(1)).withFailMessage("Реплика не догнала журнал по командам").containsExactly(4);
+            follower.disconnect();
+            for (int studentId = 10; studentId < 40; studentId++) {
+                leader.enroll(1, studentId).get();
+            }
+            leader.unenroll(1, 2).get();
+            follower.reconnect();
+            awaitApplied(log, follower);
+            assertThat(follower.getEnrollmentArray(1)).withFailMessage("Реплика не догнала журнал по снимку").containsExactly(3, 4);
+            assertThat(follower.getWaitingArray(1)).withFailMessage("Реплика не догнала журнал по снимку").containsExactly(leader.getWaitingArray(1));
+            assertThat(follower.enroll(1, 2).get()).withFailMessage("После снимка реплика должна принимать изменения").isEqualTo(EnrollmentOutcome.WAITLISTED);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Команда, упавшая с непредвиденным исключением, не получает номер,
+     * а реплики переходят на снимок состояния журнала
+     */
+    @Test
+    void failedCommandResynchronizesReplicas() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ReplicationLog log = new ReplicationLog(10);
+            CourseReplica leader = log.join(executor);
+            CourseReplica follower = log.join(executor);
+            leader.createCourse(1, 1).get();
+            leader.enrollAll(1, new int[]{1, 2}).get();
+            assertThatThrownBy(() -> log.submit(leader.getId(), 0, EnrollmentLog.RESIZE, 1, new int[]{2, CapacityReductionPolicy.values().length}))
+                    .withFailMessage("Упавшая команда должна завершаться исключением")
+                    .isInstanceOf(ArrayIndexOutOfBoundsException.class);
+            assertThat(follower.enroll(1, 3).get()).withFailMessage("После снимка реплика должна принимать изменения").isEqualTo(EnrollmentOutcome.WAITLISTED);
+            awaitApplied(log, leader);
+            assertThat(leader.getEnrollmentArray(1)).withFailMessage("Состояние реплик расходится с журналом").containsExactly(1);
+            assertThat(leader.getWaitingArray(1)).withFailMessage("Состояние реплик расходится с журналом").containsExactly(2, 3);
+            assertThat(follower.getWaitingArray(1)).withFailMessage("Состояние реплик расходится с журналом").containsExactly(2, 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Команды и снимки проходят через двоичный формат без потерь, включая порядок списков
+     */
+    @Test
+    void wireFormatRoundTrip() throws Exception {
+        ReplicatedCommand command = new ReplicatedCommand(7, EnrollmentLog.SWAP, 3, new int[]{10, 4}, 2, 42);
+        ByteBuffer frame = command.encode();
+        assertThat(frame.getInt()).withFailMessage("Неверная длина кадра").isEqualTo(frame.remaining());
+        ReplicatedCommand decoded = ReplicatedCommand.decode(frame);
+        assertThat(decoded.sequence).withFailMessage("Неверный номер команды").isEqualTo(7);
+        assertThat(decoded.type).withFailMessage("Неверный тип команды").isEqualTo(EnrollmentLog.SWAP);
+        assertThat(decoded.courseId).withFailMessage("Неверный курс команды").isEqualTo(3);
+        assertThat(decoded.values).withFailMessage("Неверные значения команды").containsExactly(10, 4);
+        assertThat(decoded.origin).withFailMessage("Неверная реплика-отправитель").isEqualTo(2);
+        assertThat(decoded.request).withFailMessage("Неверный запрос").isEqualTo(42);
+
+        Map<Integer, RosterSnapshot> rosters = new HashMap<>();
+        rosters.put(1, Course.restore(2, new int[]{5, 3}, new int[]{9, 1}).snapshot());
+        rosters.put(2, Course.restore(1, new int[0], new int[0]).snapshot());
+        frame = new ReplicatedCommand(11, rosters).encode();
+        frame.getInt();
+        ReplicatedCommand snapshot = ReplicatedCommand.decode(frame);
+        assertThat(snapshot.sequence).withFailMessage("Неверный номер снимка").isEqualTo(11);
+        assertThat(snapshot.snapshot.keySet()).withFailMessage("Неверные курсы снимка").containsExactlyInAnyOrder(1, 2);
+        assertThat(snapshot.snapshot.get(1).getEnrollmentArray()).withFailMessage("Порядок записи не сохранён").containsExactly(5, 3);
+        assertThat(snapshot.snapshot.get(1).getWaitingArray()).withFailMessage("Порядок очереди не сохранён").containsExactly(9, 1);
+        assertThat(snapshot.snapshot.get(2).getMaxStudents()).withFailMessage("Неверное число мест").isEqualTo(1);
+
+        ByteBuffer truncated = new ReplicatedCommand(1, EnrollmentLog.ENROLL_ALL, 1, new int[]{1, 2, 3}, 1, 1).encode();
+        truncated.getInt();
+        truncated.limit(truncated.limit() - 4);
+        assertThatThrownBy(() -> ReplicatedCommand.decode(truncated)).withFailMessage("Неполный кадр должен отклоняться")
+                .isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Реплики, подключённые к журналу по TCP, сходятся, получают отказы журнала
+     * и догоняют журнал после переподключения
+     */
+    @Test
+    void replicasConvergeOverSockets() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ReplicationLog log = new ReplicationLog(4);
+        try (ReplicationServer server = new ReplicationServer(log, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            ReplicationTransport transport = new SocketReplicationTransport(server.getAddress());
+            CourseReplica leader = new CourseReplica(transport, RosterStorage.ORDERED, executor);
+            CourseReplica follower = new CourseReplica(transport, RosterStorage.ORDERED, executor);
+            assertThat(leader.getId()).withFailMessage("Реплики должны получить разные идентификаторы").isNotEqualTo(follower.getId());
+            leader.createCourse(1, 2).get(10, TimeUnit.SECONDS);
+            assertThatThrownBy(() -> leader.enroll(2, 1).get(10, TimeUnit.SECONDS)).withFailMessage("Отказ журнала должен доходить до реплики")
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+            for (int studentId = 1; studentId <= 4; studentId++) {
+                leader.enroll(1, studentId).get(10, TimeUnit.SECONDS);
+            }
+            assertThat(follower.unenroll(1, 1).get(10, TimeUnit.SECONDS)).withFailMessage("Неверный результат отмены записи").isEqualTo(EnrollmentOutcome.UNENROLLED);
+            awaitApplied(log, leader);
+            assertThat(leader.getEnrollmentArray(1)).withFailMessage("Команда другой реплики не доставлена").containsExactly(2, 3);
+            follower.disconnect();
+            assertThat(follower.isConnected()).withFailMessage("Реплика должна быть отключена").isEqualTo(false);
+            for (int studentId = 10; studentId < 20; studentId++) {
+                leader.enroll(1, studentId).get(10, TimeUnit.SECONDS);
+            }
+            follower.reconnect();
+            awaitApplied(log, follower);
+            assertThat(follower.getEnrollmentArray(1)).withFailMessage("Реплика не догнала журнал по снимку").containsExactly(2, 3);
+            assertThat(follower.getWaitingArray(1)).withFailMessage("Реплика не догнала журнал по снимку").containsExactly(leader.getWaitingArray(1));
+            assertThat(follower.enroll(1, 30).get(10, TimeUnit.SECONDS)).withFailMessage("После переподключения реплика должна принимать изменения").isEqualTo(EnrollmentOutcome.WAITLISTED);
+            leader.close();
+            follower.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Кадр, который не удалось обработать, отключает реплику, а при переподключении
+     * она запрашивает снимок вместо пропущенных команд
+     */
+    @Test
+    void corruptFrameMarksReplicaStale() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            ReplicationTransport transport = new SocketReplicationTransport(
+                    new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+            CompletableFuture<CourseReplica> connecting = CompletableFuture.supplyAsync(
+                    () -> new CourseReplica(transport, RosterStorage.ORDERED, executor));
+            try (Socket first = server.accept()) {
+                DataInputStream in = new DataInputStream(first.getInputStream());
+                DataOutputStream out = new DataOutputStream(first.getOutputStream());
+                assertThat(in.readInt()).withFailMessage("Неверная сигнатура приветствия").isEqualTo(SocketReplicationTransport.MAGIC);
+                assertThat(in.readInt()).withFailMessage("Новая реплика не должна иметь идентификатора").isEqualTo(0);
+                assertThat(in.readLong()).withFailMessage("Новая реплика не должна иметь команд").isEqualTo(0L);
+                out.writeInt(SocketReplicationTransport.MAGIC);
+                out.writeInt(1);
+                write(out, new ReplicatedCommand(1, EnrollmentLog.CREATE, 1, new int[]{2}, 1, 0));
+                CourseReplica replica = connecting.get(10, TimeUnit.SECONDS);
+                while (replica.getAppliedSequence() < 1) {
+                    Thread.sleep(1);
+                }
+                CompletableFuture<EnrollmentOutcome> lost = replica.enroll(1, 5);
+                // снимок с отрицательным числом мест
+                out.writeInt(1 + 8 + 4 + 16);
+                out.writeByte(1);
+                out.writeLong(2);
+                out.writeInt(1);
+                out.writeInt(1);
+                out.writeInt(-1);
+                out.writeInt(0);
+                out.writeInt(0);
+                out.flush();
+                assertThatThrownBy(() -> lost.get(10, TimeUnit.SECONDS)).withFailMessage("Результат команды сорванного сеанса должен завершаться")
+                        .hasCauseInstanceOf(IllegalStateException.class);
+                assertThat(replica.isConnected()).withFailMessage("Реплика должна отключиться после сбоя").isEqualTo(false);
+                assertThat(replica.getAppliedSequence()).withFailMessage("Повреждённый кадр не должен применяться").isEqualTo(1L);
+
+                CompletableFuture<Void> reconnecting = CompletableFuture.runAsync(replica::reconnect);
+                try (Socket second = server.accept()) {
+                    in = new DataInputStream(second.getInputStream());
+                    out = new DataOutputStream(second.getOutputStream());
+                    in.readInt();
+                    assertThat(in.readInt()).withFailMessage("Реплика должна сохранить идентификатор").isEqualTo(1);
+                    assertThat(in.readLong()).withFailMessage("Устаревшая реплика должна запросить снимок").isEqualTo(0L);
+                    out.writeInt(SocketReplicationTransport.MAGIC);
+                    out.writeInt(1);
+                    Map<Integer, RosterSnapshot> rosters = new HashMap<>();
+                    rosters.put(2, Course.restore(1, new int[]{7}, new int[0]).snapshot());
+                    write(out, new ReplicatedCommand(1, rosters));
+                    reconnecting.get(10, TimeUnit.SECONDS);
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                    while (!replica.containsCourse(2)) {
+                        assertThat(System.nanoTime()).withFailMessage("Снимок не установлен").isLessThan(deadline);
+                        Thread.sleep(1);
+                    }
+                    assertThat(replica.containsCourse(1)).withFailMessage("Снимок должен заменить устаревшее состояние").isEqualTo(false);
+                    assertThat(replica.getEnrollmentArray(2)).withFailMessage("Неверный список из снимка").containsExactly(7);
+                    assertThat(replica.isConnected()).withFailMessage("Реплика должна быть подключена").isEqualTo(true);
+                    second.shutdownOutput();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Исключение получателя не теряется вместе с потоком чтения: сеанс сообщает о сбое
+     */
+    @Test
+    void receiverErrorFailsSession() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            ReplicationTransport transport = new SocketReplicationTransport(
+                    new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+            CompletableFuture<Exception> failure = new CompletableFuture<>();
+            IllegalStateException error = new IllegalStateException("Ошибка получателя");
+            ReplicationTransport.Receiver receiver = new ReplicationTransport.Receiver() {
+                @Override
+                public void deliver(ReplicatedCommand command) {
+                    throw error;
+                }
+
+                @Override
+                public void failed(Exception cause) {
+                    failure.complete(cause);
+                }
+            };
+            CompletableFuture<ReplicationTransport.Session> connecting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transport.connect(0, 0, receiver);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try (Socket socket = server.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                in.readInt();
+                in.readInt();
+                in.readLong();
+                out.writeInt(SocketReplicationTransport.MAGIC);
+                out.writeInt(3);
+                assertThat(connecting.get(10, TimeUnit.SECONDS).getReplicaId()).withFailMessage("Неверный идентификатор реплики").isEqualTo(3);
+                write(out, new ReplicatedCommand(1, EnrollmentLog.CREATE, 1, new int[]{2}, 3, 0));
+                assertThat(failure.get(10, TimeUnit.SECONDS)).withFailMessage("Сбой получателя не передан").isSameAs(error);
+                assertThat(in.read()).withFailMessage("Соединение сорванного сеанса должно закрываться").isEqualTo(-1);
+            }
+        }
+    }
+
+    private static void write(DataOutputStream out, ReplicatedCommand command) throws IOException {
+        ByteBuffer frame = command.encode();
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        out.flush();
+    }
+
+    private static void awaitApplied(ReplicationLog log, CourseReplica replica) throws InterruptedException {
+        List<CourseReplica> replicas = new ArrayList<>();
+        replicas.add(replica);
+        awaitApplied(log, replicas);
+    }
+
+    private static void awaitApplied(ReplicationLog log, List<CourseReplica> replicas) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (CourseReplica replica : replicas) {
+            while (replica.getAppliedSequence() < log.getLastSequence()) {
+                assertThat(System.nanoTime()).withFailMessage("Реплика не применила журнал").isLessThan(deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -6,7 +6,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  *
@@ -501,4 +507,313 @@ public class CourseTest {
         assertThat(course.getWaitingList().size()).withFailMessage("После переноса первого студента из списка ожидания в список курса, размер списка ожидания не стал меньше на единицу").isEqualTo(waitingLength - 1);
     }
 
+    /**
+     * Тест сохранения порядка очереди ожидания после удаления студентов из её середины
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void promotionOrderAfterMiddleRemovalTest(int id) {
+        fullCourse(id, true, true);
+        int second = course.getWaitingList().get(1);
+        int third = course.getWaitingList().get(2);
+        course.unenroll(second);
+        assertThat(course.isWaiting(second)).withFailMessage("Студент остался в списке ожидания после удаления").isEqualTo(false);
+        course.unenroll(id);
+        course.unenroll(id + 1);
+        assertThat(course.isEnrolled(third)).withFailMessage("Порядок перевода из списка ожидания нарушен после удаления из его середины").isEqualTo(true);
+        assertThat(course.getEnrollmentList().get(maxStudents - 1)).withFailMessage("Переведённый студент должен оказаться в конце списка записанных").isEqualTo(third);
+        assertThat(course.getWaitingList().size()).withFailMessage("Неверный размер списка ожидания").isEqualTo(waitingListSize - 3);
+    }
+
+    /**
+     * Тест групповой записи: результат совпадает с поочерёдной записью студентов
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void enrollAllMatchesSequentialEnrollTest(int id) {
+        course.enroll(id);
+        int[] batch = new int[]{id + 1, id, id + 2, id + 1, id + 3, id + 4, id + 5, id + 6, id + 7, id + 8, id + 9, id + 10, id + 11, id + 10};
+        Course expected = new Course(maxStudents);
+        expected.enroll(id);
+        for (int studentId : batch) {
+            expected.enroll(studentId);
+        }
+        course.enrollAll(batch);
+        assertThat(course.getEnrollmentList()).withFailMessage("Групповая запись сформировала другой список записанных").containsExactlyElementsOf(expected.getEnrollmentList());
+        assertThat(course.getWaitingList()).withFailMessage("Групповая запись сформировала другой список ожидания").containsExactlyElementsOf(expected.getWaitingList());
+    }
+
+    /**
+     * Тест группового удаления: освободившиеся места занимают первые студенты из списка ожидания
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void unenrollAllPromotesOnceTest(int id) {
+        fullCourse(id, true, true);
+        int firstWaiting = course.getWaitingList().get(0);
+        int secondWaiting = course.getWaitingList().get(1);
+        int thirdWaiting = course.getWaitingList().get(2);
+        course.unenrollAll(new int[]{id, secondWaiting, id + 1, id + 12345});
+        assertThat(course.isEnrolled(id)).withFailMessage("Студент остался записанным после группового удаления").isEqualTo(false);
+        assertThat(course.isWaiting(secondWaiting)).withFailMessage("Студент остался в списке ожидания после группового удаления").isEqualTo(false);
+        assertThat(course.isEnrolled(firstWaiting) && course.isEnrolled(thirdWaiting)).withFailMessage("Освободившиеся места заняты не первыми студентами из списка ожидания").isEqualTo(true);
+        assertThat(course.isFullyEnrolled()).withFailMessage("После перевода курс должен быть заполнен").isEqualTo(true);
+        assertThat(course.getWaitingList().size()).withFailMessage("Неверный размер списка ожидания").isEqualTo(waitingListSize - 3);
+    }
+
+    /**
+     * Тест позиций в списке ожидания после удалений из его середины и переводов
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void waitingPositionTest(int id) {
+        fullCourse(id, true, true);
+        int second = course.waitingStudentAt(1);
+        int last = course.waitingStudentAt(waitingListSize - 1);
+        assertThat(course.waitingPosition(last)).withFailMessage("Неверная позиция последнего ожидающего").isEqualTo(waitingListSize - 1);
+        course.unenroll(second);
+        course.unenroll(id);
+        assertThat(course.waitingPosition(last)).withFailMessage("Позиция не сдвинулась после удаления и перевода").isEqualTo(waitingListSize - 3);
+        assertThat(course.waitingStudentAt(waitingListSize - 3)).withFailMessage("Неверный студент на позиции").isEqualTo(last);
+        assertThat(course.waitingPosition(id)).withFailMessage("Удалённый студент найден в списке ожидания").isEqualTo(-1);
+        for (int i = 0; i < course.getWaitingList().size(); i++) {
+            assertThat(course.waitingPosition(course.getWaitingList().get(i))).withFailMessage("Позиция расходится со списком ожидания").isEqualTo(i);
+        }
+    }
+
+    /**
+     * Тест перевода из списка ожидания по приоритету: при равных приоритетах сохраняется порядок очереди
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void promotionPolicyTest(int id) {
+        fullCourse(id, true, true);
+        assertThat(course.peekPromotion()).withFailMessage("Без приоритетов первым переводится первый в очереди").isEqualTo(course.getWaitingList().get(0));
+        course.setPromotionPolicy(studentId -> studentId % 2 == 0 ? 0 : 1);
+        course.enroll(id + 100);
+        course.enroll(id + 101);
+        int[] waiting = course.getWaitingArray();
+        List<Integer> expected = new ArrayList<>();
+        for (int studentId : waiting) {
+            if (studentId % 2 == 0) {
+                expected.add(studentId);
+            }
+        }
+        for (int studentId : waiting) {
+            if (studentId % 2 != 0) {
+                expected.add(studentId);
+            }
+        }
+        int withdrawn = expected.remove(1);
+        course.unenroll(withdrawn);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(course.peekPromotion()).withFailMessage("Неверный следующий переводимый студент").isEqualTo(expected.get(i));
+            course.unenroll(course.getEnrollmentList().get(0));
+            assertThat(course.getEnrollmentList().get(maxStudents - 1)).withFailMessage("Нарушен порядок перевода по приоритету").isEqualTo(expected.get(i));
+        }
+        assertThat(course.hasWaitingList()).withFailMessage("Список ожидания должен опустеть").isEqualTo(false);
+    }
+
+    /**
+     * Тест примитивного обхода и копирования списков
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void primitiveIterationTest(int id) {
+        fullCourse(id, true, true);
+        course.unenroll(id);
+        course.unenroll(course.waitingStudentAt(1));
+        List<Integer> enrolled = new ArrayList<>();
+        course.forEachEnrolled(enrolled::add);
+        assertThat(enrolled).withFailMessage("Обход записавшихся расходится со списком").containsExactlyElementsOf(course.getEnrollmentList());
+        List<Integer> waiting = new ArrayList<>();
+        course.forEachWaiting(waiting::add);
+        assertThat(waiting).withFailMessage("Обход ожидающих расходится со списком").containsExactlyElementsOf(course.getWaitingList());
+        int[] copy = new int[maxStudents + 1];
+        assertThat(course.copyEnrolledTo(copy, 1)).withFailMessage("Неверное количество скопированных").isEqualTo(maxStudents);
+        assertThat(Arrays.copyOfRange(copy, 1, copy.length)).withFailMessage("Неверная копия списка записавшихся").containsExactly(course.getEnrollmentArray());
+        assertThatThrownBy(() -> course.copyWaitingTo(new int[1], 0)).withFailMessage("Список ожидания не помещается в массив").isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(course.enrolledStream().parallel().toArray()).withFailMessage("Поток записавшихся расходится со списком").containsExactly(course.getEnrollmentArray());
+        assertThat(course.waitingStream().toArray()).withFailMessage("Поток ожидающих расходится со списком").containsExactly(course.getWaitingArray());
+    }
+
+    /**
+     * Тест неизменяемости снимка курса
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void snapshotTest(int id) {
+        fullCourse(id, true, true);
+        RosterSnapshot snapshot = course.snapshot();
+        int[] enrolled = course.getEnrollmentArray();
+        int[] waiting = course.getWaitingArray();
+        int firstWaiting = waiting[0];
+        assertThat(course.snapshot().getVersion()).withFailMessage("Версия изменилась без изменения курса").isEqualTo(snapshot.getVersion());
+        course.unenroll(id);
+        course.enroll(id);
+        assertThat(course.snapshot().getVersion()).withFailMessage("Версия не изменилась после изменения курса").isGreaterThan(snapshot.getVersion());
+        assertThat(snapshot.getEnrollmentArray()).withFailMessage("Снимок записавшихся изменился").containsExactly(enrolled);
+        assertThat(snapshot.getWaitingList()).withFailMessage("Снимок списка ожидания изменился").containsExactly(Arrays.stream(waiting).boxed().toArray(Integer[]::new));
+        assertThat(snapshot.isEnrolled(id)).withFailMessage("Студент должен быть записан в снимке").isEqualTo(true);
+        assertThat(snapshot.isWaiting(firstWaiting)).withFailMessage("Студент должен ожидать в снимке").isEqualTo(true);
+        assertThat(course.isEnrolled(firstWaiting)).withFailMessage("Студент должен быть переведён в курсе").isEqualTo(true);
+        assertThat(snapshot.isFullyEnrolled()).withFailMessage("Курс в снимке заполнен").isEqualTo(true);
+    }
+
+    /**
+     * Тест совпадения поведения курса с хранением в битовой карте
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void bitmapStorageTest(int id) {
+        fullCourse(id, true, true);
+        Course bitmapCourse = Course.restore(maxStudents, RosterStorage.BITMAP, course.getEnrollmentArray(), course.getWaitingArray());
+        course.unenroll(id);
+        bitmapCourse.unenroll(id);
+        course.enroll(id);
+        bitmapCourse.enroll(id);
+        int[] enrolled = course.getEnrollmentArray();
+        Arrays.sort(enrolled);
+        assertThat(bitmapCourse.getEnrollmentArray()).withFailMessage("Состав записавшихся расходится").containsExactly(enrolled);
+        assertThat(bitmapCourse.getWaitingArray()).withFailMessage("Порядок списка ожидания расходится").containsExactly(course.getWaitingArray());
+        assertThat(bitmapCourse.isWaiting(id)).withFailMessage("Студент должен ожидать").isEqualTo(true);
+        assertThat(bitmapCourse.getEnrollmentBitmap().toArray()).withFailMessage("Неверная битовая карта").containsExactly(enrolled);
+        assertThat(course.getEnrollmentBitmap().andCardinality(bitmapCourse.getEnrollmentBitmap())).withFailMessage("Составы должны совпадать").isEqualTo(maxStudents);
+    }
+
+    /**
+     * Тест увеличения числа мест с переводом из списка ожидания
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void raiseMaxStudentsTest(int id) {
+        fullCourse(id, true, true);
+        int[] waiting = course.getWaitingArray();
+        int[] promoted = course.setMaxStudents(maxStudents + 3);
+        assertThat(promoted).withFailMessage("Переведены не первые ожидающие").containsExactly(Arrays.copyOf(waiting, 3));
+        assertThat(course.getWaitingArray()).withFailMessage("Неверный остаток списка ожидания").containsExactly(Arrays.copyOfRange(waiting, 3, waiting.length));
+        assertThat(course.isFullyEnrolled()).withFailMessage("Курс должен быть заполнен").isEqualTo(true);
+        course.setMaxStudents(maxStudents + 100);
+        assertThat(course.hasWaitingList()).withFailMessage("Список ожидания должен опустеть").isEqualTo(false);
+        assertThat(course.getEnrolledCount()).withFailMessage("Неверное количество записавшихся").isEqualTo(maxStudents + waitingListSize);
+    }
+
+    /**
+     * Тест уменьшения числа мест с переводом последних записавшихся в начало списка ожидания
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void demoteLatestTest(int id) {
+        fullCourse(id, true, true);
+        int[] enrolled = course.getEnrollmentArray();
+        int[] waiting = course.getWaitingArray();
+        course.setCapacityReductionPolicy(CapacityReductionPolicy.DEMOTE_LATEST);
+        int[] demoted = course.setMaxStudents(maxStudents - 2);
+        assertThat(demoted).withFailMessage("Переведены не последние записавшиеся").containsExactly(enrolled[maxStudents - 1], enrolled[maxStudents - 2]);
+        assertThat(course.getEnrollmentArray()).withFailMessage("Неверный список записавшихся").containsExactly(Arrays.copyOf(enrolled, maxStudents - 2));
+        assertThat(course.waitingStudentAt(0)).withFailMessage("Первым в очереди должен быть раньше записавшийся").isEqualTo(enrolled[maxStudents - 2]);
+        assertThat(course.waitingStudentAt(1)).withFailMessage("Вторым в очереди должен быть последний записавшийся").isEqualTo(enrolled[maxStudents - 1]);
+        assertThat(course.waitingPosition(waiting[0])).withFailMessage("Прежняя очередь должна сдвинуться").isEqualTo(2);
+        course.unenroll(enrolled[0]);
+        assertThat(course.isEnrolled(enrolled[maxStudents - 2])).withFailMessage("Переведённый в очередь должен вернуться первым").isEqualTo(true);
+        assertThat(course.setMaxStudents(maxStudents)).withFailMessage("Неверный порядок возврата на курс").containsExactly(enrolled[maxStudents - 1], waiting[0]);
+    }
+
+    /**
+     * Тест уменьшения числа мест без перевода записавшихся
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void blockNewTest(int id) {
+        fullCourse(id, true, true);
+        int[] waiting = course.getWaitingArray();
+        assertThat(course.setMaxStudents(maxStudents - 2)).withFailMessage("Никто не должен переводиться").isEmpty();
+        assertThat(course.getEnrolledCount()).withFailMessage("Записавшиеся должны остаться на курсе").isEqualTo(maxStudents);
+        course.unenroll(id);
+        course.unenroll(id + 1);
+        assertThat(course.getWaitingArray()).withFailMessage("Пока мест меньше записавшихся, перевода быть не должно").containsExactly(waiting);
+        course.unenroll(id + 2);
+        assertThat(course.isEnrolled(waiting[0])).withFailMessage("Первый ожидающий должен занять освободившееся место").isEqualTo(true);
+        course.enroll(id);
+        assertThat(course.isWaiting(id)).withFailMessage("Новый студент должен попасть в список ожидания").isEqualTo(true);
+    }
+
+    /**
+     * Тест истечения срока пребывания в списке ожидания
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void waitingTtlTest(int id) {
+        TimerWheel timers = new TimerWheel(1, TimeUnit.SECONDS);
+        course.setTimerWheel(timers);
+        course.setWaitingTtl(10, TimeUnit.MINUTES);
+        fullCourse(id, true, false);
+        course.enroll(id + maxStudents);
+        timers.advance(5, TimeUnit.MINUTES);
+        course.enroll(id + maxStudents + 1);
+        course.enroll(id + maxStudents + 2);
+        course.unenroll(id + maxStudents + 2);
+        assertThat(timers.size()).withFailMessage("Срок удалённого из очереди должен быть отменён").isEqualTo(2);
+        assertThat(timers.advance(5, TimeUnit.MINUTES)).withFailMessage("Должен истечь один срок").isEqualTo(1);
+        assertThat(course.getWaitingArray()).withFailMessage("Неверный список ожидания после истечения срока").containsExactly(id + maxStudents + 1);
+        course.unenroll(id);
+        assertThat(course.isEnrolled(id + maxStudents + 1)).withFailMessage("Ожидающий должен быть переведён").isEqualTo(true);
+        assertThat(timers.size()).withFailMessage("Срок переведённого должен быть отменён").isEqualTo(0);
+    }
+
+    /**
+     * Тест предложения места с ограниченным сроком подтверждения
+     *
+     * @param id - id студента
+     */
+    @ParameterizedTest
+    @MethodSource("testData")
+    void offerTimeoutTest(int id) {
+        TimerWheel timers = new TimerWheel(1, TimeUnit.SECONDS);
+        course.setTimerWheel(timers);
+        course.setOfferTimeout(30, TimeUnit.MINUTES);
+        fullCourse(id, true, true);
+        int[] waiting = course.getWaitingArray();
+        course.unenroll(id);
+        course.unenroll(id + 1);
+        assertThat(course.isOffered(waiting[0])).withFailMessage("Переведённому должно быть предложено место").isEqualTo(true);
+        assertThat(course.confirm(waiting[0])).withFailMessage("Подтверждение должно быть принято").isEqualTo(true);
+        assertThat(course.confirm(waiting[0])).withFailMessage("Повторное подтверждение не должно приниматься").isEqualTo(false);
+        assertThat(course.confirm(id + 2)).withFailMessage("Записавшемуся напрямую нечего подтверждать").isEqualTo(false);
+        timers.advance(29, TimeUnit.MINUTES);
+        assertThat(course.isEnrolled(waiting[1])).withFailMessage("Место должно сохраняться до истечения срока").isEqualTo(true);
+        timers.advance(1, TimeUnit.MINUTES);
+        assertThat(course.isEnrolled(waiting[1])).withFailMessage("Неподтверждённое место должно быть отозвано").isEqualTo(false);
+        assertThat(course.isEnrolled(waiting[0])).withFailMessage("Подтвердивший должен остаться на курсе").isEqualTo(true);
+        assertThat(course.isOffered(waiting[2])).withFailMessage("Место должно перейти следующему ожидающему").isEqualTo(true);
+        assertThat(course.getEnrolledCount()).withFailMessage("Курс должен остаться заполненным").isEqualTo(maxStudents);
+        course.unenroll(waiting[2]);
+        assertThat(course.isOffered(waiting[3])).withFailMessage("Место должно перейти следующему ожидающему").isEqualTo(true);
+        assertThat(timers.size()).withFailMessage("Срок отчисленного должен быть отменён").isEqualTo(1);
+        assertThatThrownBy(() -> course.setTimerWheel(null)).isInstanceOf(IllegalStateException.class);
+    }
 }
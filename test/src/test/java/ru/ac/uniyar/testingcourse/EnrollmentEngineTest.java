@@ -0,0 +1,140 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты асинхронного движка записи на курсы.
+ */
+public class EnrollmentEngineTest {
+
+    /**
+     * Проверка результатов запросов всех видов
+     */
+    @Test
+    void requestsCompleteWithOutcome() throws Exception {
+        CourseRegistry registry = new CourseRegistry(16);
+        registry.createCourse(1, 1);
+        try (EnrollmentEngine engine = new EnrollmentEngine(registry)) {
+            assertThat(engine.enroll(1, 10).get()).withFailMessage("Студент должен быть записан").isEqualTo(EnrollmentOutcome.ENROLLED);
+            assertThat(engine.enroll(1, 20).get()).withFailMessage("Студент должен попасть в список ожидания").isEqualTo(EnrollmentOutcome.WAITLISTED);
+            assertThat(engine.enroll(1, 10).get()).withFailMessage("Повторная запись не распознана").isEqualTo(EnrollmentOutcome.DUPLICATE);
+            assertThat(engine.unenroll(1, 30).get()).withFailMessage("Удаление отсутствующего студента").isEqualTo(EnrollmentOutcome.NOT_FOUND);
+            assertThat(engine.enroll(2, 10).get()).withFailMessage("Запись на несуществующий курс").isEqualTo(EnrollmentOutcome.NOT_FOUND);
+            assertThat(engine.unenroll(1, 10).get()).withFailMessage("Студент должен быть удалён").isEqualTo(EnrollmentOutcome.UNENROLLED);
+        }
+        assertThat(registry.getEnrollmentArray(1)).withFailMessage("Ожидающий не переведён в записанные").containsExactly(20);
+    }
+
+    /**
+     * Запросы одного курса из многих потоков применяются по одному разу и в порядке поступления
+     */
+    @Test
+    void concurrentRequestsAreSerializedPerCourse() throws Exception {
+        CourseRegistry registry = new CourseRegistry(16);
+        int courses = 4;
+        int maxStudents = 50;
+        for (int c = 0; c < courses; c++) {
+            registry.createCourse(c, maxStudents);
+        }
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        List<CompletableFuture<EnrollmentOutcome>> futures = new ArrayList<>();
+        try (EnrollmentEngine engine = new EnrollmentEngine(registry, workers, 8)) {
+            List<Future<List<CompletableFuture<EnrollmentOutcome>>>> submitted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                submitted.add(clients.submit(() -> {
+                    List<CompletableFuture<EnrollmentOutcome>> own = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        int studentId = i * threads + thread;
+                        own.add(engine.enroll(studentId % courses, studentId));
+                        own.add(engine.enroll(studentId % courses, studentId));
+                    }
+                    return own;
+                }));
+            }
+            for (Future<List<CompletableFuture<EnrollmentOutcome>>> f : submitted) {
+                futures.addAll(f.get());
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+        } finally {
+            clients.shutdown();
+            workers.shutdown();
+        }
+        int enrolled = 0;
+        int waitlisted = 0;
+        for (int i = 0; i < futures.size(); i += 2) {
+            EnrollmentOutcome first = futures.get(i).get();
+            assertThat(futures.get(i + 1).get()).withFailMessage("Повторный запрос должен быть дубликатом").isEqualTo(EnrollmentOutcome.DUPLICATE);
+            if (first == EnrollmentOutcome.ENROLLED) {
+                enrolled++;
+            } else {
+                assertThat(first).withFailMessage("Неожиданный результат первой записи").isEqualTo(EnrollmentOutcome.WAITLISTED);
+                waitlisted++;
+            }
+        }
+        assertThat(enrolled).withFailMessage("Неверное количество записанных").isEqualTo(courses * maxStudents);
+        assertThat(waitlisted).withFailMessage("Неверное количество ожидающих").isEqualTo(threads * perThread - courses * maxStudents);
+    }
+
+    /**
+     * Очереди не создаются для несуществующих курсов и удаляются после разбора
+     */
+    @Test
+    void mailboxesAreReleased() throws Exception {
+        CourseRegistry registry = new CourseRegistry(16);
+        registry.createCourse(1, 5);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try (EnrollmentEngine engine = new EnrollmentEngine(registry, workers, 4)) {
+            for (int courseId = 100; courseId < 10_100; courseId++) {
+                assertThat(engine.enroll(courseId, 1).get()).withFailMessage("Запись на несуществующий курс").isEqualTo(EnrollmentOutcome.NOT_FOUND);
+            }
+            assertThat(engine.getMailboxCount()).withFailMessage("Созданы очереди для несуществующих курсов").isEqualTo(0);
+            List<CompletableFuture<EnrollmentOutcome>> futures = new ArrayList<>();
+            for (int studentId = 0; studentId < 100; studentId++) {
+                futures.add(engine.enroll(1, studentId));
+            }
+            registry.removeCourse(1);
+            for (CompletableFuture<EnrollmentOutcome> future : futures) {
+                future.get();
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (engine.getMailboxCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(engine.getMailboxCount()).withFailMessage("Опустевшая очередь не удалена").isEqualTo(0);
+            assertThat(engine.enroll(1, 5).get()).withFailMessage("Запись на удалённый курс").isEqualTo(EnrollmentOutcome.NOT_FOUND);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Остановленный движок отклоняет запросы
+     */
+    @Test
+    void closedEngineRejectsRequests() {
+        CourseRegistry registry = new CourseRegistry(16);
+        registry.createCourse(1, 1);
+        EnrollmentEngine engine = new EnrollmentEngine(registry);
+        engine.close();
+        assertThatThrownBy(() -> engine.enroll(1, 10).get())
+                .withFailMessage("Запрос к остановленному движку должен завершиться ошибкой")
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
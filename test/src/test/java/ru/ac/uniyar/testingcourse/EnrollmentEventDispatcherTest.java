@@ -0,0 +1,94 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты публикации событий изменения состава курса.
+ */
+public class EnrollmentEventDispatcherTest {
+
+    /**
+     * Проверка состава и порядка событий при записи, переводе и удалении
+     */
+    @Test
+    void eventsDescribeChanges() throws Exception {
+        List<EnrollmentEvent> received = Collections.synchronizedList(new ArrayList<>());
+        try (EnrollmentEventDispatcher dispatcher = new EnrollmentEventDispatcher(100, 10)) {
+            dispatcher.addListener(received::addAll);
+            Course course = new Course(1);
+            course.setEventDispatcher(dispatcher, 7);
+            course.enroll(1);
+            course.enroll(2);
+            course.enroll(2);
+            course.unenroll(1);
+            course.unenrollAll(new int[]{2, 3});
+        }
+        assertThat(received).extracting(EnrollmentEvent::getType).withFailMessage("Неверная последовательность событий").containsExactly(
+                EnrollmentEvent.Type.ENROLLED, EnrollmentEvent.Type.WAITLISTED, EnrollmentEvent.Type.UNENROLLED,
+                EnrollmentEvent.Type.PROMOTED, EnrollmentEvent.Type.UNENROLLED);
+        assertThat(received).extracting(EnrollmentEvent::getStudentId).withFailMessage("Неверные студенты в событиях").containsExactly(1, 2, 1, 2, 2);
+        assertThat(received).extracting(EnrollmentEvent::getSequence).withFailMessage("Номера событий должны возрастать без пропусков").containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(received).extracting(EnrollmentEvent::getCourseId).withFailMessage("Неверный курс в событиях").containsOnly(7);
+    }
+
+    /**
+     * События курсов реестра несут их идентификаторы, в том числе для курсов, созданных после назначения диспетчера
+     */
+    @Test
+    void registryEventsCarryCourseIds() {
+        List<EnrollmentEvent> received = Collections.synchronizedList(new ArrayList<>());
+        CourseRegistry registry = new CourseRegistry(4);
+        registry.createCourse(1, 1);
+        try (EnrollmentEventDispatcher dispatcher = new EnrollmentEventDispatcher(100, 10)) {
+            dispatcher.addListener(received::addAll);
+            registry.setEventDispatcher(dispatcher);
+            registry.createCourse(2, 1);
+            registry.enroll(1, 10);
+            registry.enroll(2, 20);
+            registry.enroll(2, 21);
+            registry.removeCourse(1);
+            registry.unenroll(2, 20);
+        }
+        assertThat(received).extracting(EnrollmentEvent::getCourseId).withFailMessage("Неверные курсы в событиях").containsExactly(1, 2, 2, 2, 2);
+        assertThat(received).extracting(EnrollmentEvent::getStudentId).withFailMessage("Неверные студенты в событиях").containsExactly(10, 20, 21, 20, 21);
+    }
+
+    /**
+     * Медленный подписчик не задерживает запись: лишние события отбрасываются
+     */
+    @Test
+    void slowListenerDoesNotBlockEnrollment() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<EnrollmentEvent> received = Collections.synchronizedList(new ArrayList<>());
+        Course course = new Course(1000);
+        EnrollmentEventDispatcher dispatcher = new EnrollmentEventDispatcher(10, 10);
+        try {
+            dispatcher.addListener(events -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.addAll(events);
+            });
+            course.setEventDispatcher(dispatcher, 1);
+            for (int studentId = 0; studentId < 1000; studentId++) {
+                course.enroll(studentId);
+            }
+            assertThat(course.getEnrollmentList().size()).withFailMessage("Запись студентов не завершилась").isEqualTo(1000);
+        } finally {
+            release.countDown();
+            dispatcher.close();
+        }
+        assertThat(dispatcher.getDroppedCount()).withFailMessage("Переполнение очереди не учтено").isGreaterThan(0);
+        assertThat(received.size() + dispatcher.getDroppedCount()).withFailMessage("События потеряны без учёта").isEqualTo(1000);
+    }
+}
@@ -0,0 +1,189 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты журнала изменений и восстановления реестра курсов.
+ */
+public class EnrollmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Восстановление реестра только по журналу
+     */
+    @Test
+    void recoverFromLogOnly() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry registry = new CourseRegistry(4, log);
+            fill(registry);
+            log.sync();
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertRecovered(recovered);
+        }
+    }
+
+    /**
+     * Истечение срока записывается в журнал и воспроизводится при восстановлении
+     */
+    @Test
+    void recoverExpiredDeadlines() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry registry = new CourseRegistry(4, log);
+            registry.enableDeadlines(1, TimeUnit.MILLISECONDS);
+            registry.setOfferTimeout(1, TimeUnit.MILLISECONDS);
+            registry.createCourse(1, 1);
+            registry.enrollAll(1, new int[]{10, 11, 12});
+            registry.unenroll(1, 10);
+            registry.advanceTime(1, TimeUnit.MILLISECONDS);
+            log.sync();
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertThat(recovered.getEnrollmentArray(1)).withFailMessage("Истечение срока не воспроизведено").containsExactly(12);
+            assertThat(recovered.getWaitingArray(1)).withFailMessage("Неверный список ожидания после восстановления").isEmpty();
+            assertThat(recovered.getEnrolledCourses(11)).withFailMessage("Истёкший студент остался в индексе").isEmpty();
+            assertThat(recovered.getEnrolledCourses(12)).withFailMessage("Переведённый студент не восстановлен в индексе").containsExactly(1);
+        }
+    }
+
+    /**
+     * Восстановление по снимку и хвосту журнала; покрытые снимком сегменты удаляются
+     */
+    @Test
+    void recoverFromSnapshotAndLogTail() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        Path snapshot = directory.resolve("snapshot");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry registry = new CourseRegistry(4, log);
+            registry.createCourse(1, 2);
+            registry.enrollAll(1, new int[]{10, 11, 12, 13});
+            registry.checkpoint(snapshot);
+            registry.createCourse(2, 1);
+            registry.unenroll(1, 10);
+            registry.enroll(2, 11);
+            registry.unenrollAll(1, new int[]{11, 20});
+            registry.enroll(1, 10);
+        }
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            assertThat(segments.count()).withFailMessage("Сегменты журнала, покрытые снимком, не удалены").isEqualTo(1);
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, snapshot, log);
+            assertThat(recovered.getEnrollmentArray(1)).withFailMessage("Неверный список записанных после восстановления").containsExactly(12, 13);
+            assertThat(recovered.getWaitingArray(1)).withFailMessage("Неверный список ожидания после восстановления").containsExactly(10);
+            assertThat(recovered.getEnrollmentArray(2)).withFailMessage("Курс, созданный после снимка, не восстановлен").containsExactly(11);
+            assertThat(recovered.getWaitingCourses(10)).withFailMessage("Обратный индекс не восстановлен").containsExactly(1);
+        }
+    }
+
+    /**
+     * Изменения числа мест воспроизводятся при восстановлении
+     */
+    @Test
+    void recoverCapacityChanges() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry registry = new CourseRegistry(4, log);
+            registry.createCourse(1, 3);
+            registry.enrollAll(1, new int[]{1, 2, 3, 4, 5});
+            assertThat(registry.setMaxStudents(1, 1, CapacityReductionPolicy.DEMOTE_LATEST)).withFailMessage("Неверные переведённые в очередь").containsExactly(3, 2);
+            assertThat(registry.getWaitingCourses(3)).withFailMessage("Обратный индекс не отразил перевод в очередь").containsExactly(1);
+            assertThat(registry.getEnrolledCourses(3)).withFailMessage("Переведённый в очередь остался записанным в индексе").isEmpty();
+            registry.setMaxStudents(1, 2, CapacityReductionPolicy.BLOCK_NEW);
+            registry.setMaxStudents(1, 0, CapacityReductionPolicy.BLOCK_NEW);
+            registry.unenroll(1, 1);
+            log.sync();
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertThat(recovered.getEnrollmentArray(1)).withFailMessage("Неверный список записанных после восстановления").containsExactly(2);
+            assertThat(recovered.getWaitingArray(1)).withFailMessage("Неверный список ожидания после восстановления").containsExactly(3, 4, 5);
+        }
+    }
+
+    /**
+     * Обмены курсов воспроизводятся при восстановлении одной записью
+     */
+    @Test
+    void recoverSwaps() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry registry = new CourseRegistry(4, log);
+            registry.createCourse(1, 1);
+            registry.createCourse(2, 1);
+            registry.enrollAll(1, new int[]{10, 11});
+            registry.swap(10, 1, 2);
+            registry.swap(11, 1, 2);
+            log.sync();
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertThat(recovered.getEnrollmentArray(1)).withFailMessage("Место на прежнем курсе не перешло ожидающему").containsExactly(11);
+            assertThat(recovered.getEnrollmentArray(2)).withFailMessage("Обмен не восстановлен").containsExactly(10);
+            assertThat(recovered.getEnrolledCourses(10)).withFailMessage("Обратный индекс не восстановлен").containsExactly(2);
+        }
+    }
+
+    /**
+     * Недописанный хвост журнала отбрасывается при открытии
+     */
+    @Test
+    void tornTailIsDiscarded() throws IOException {
+        Path logDirectory = directory.resolve("log");
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            fill(new CourseRegistry(4, log));
+        }
+        Path segment;
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            segment = segments.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 42, 42, 42}));
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertRecovered(recovered);
+            recovered.enroll(1, 99);
+        }
+        try (EnrollmentLog log = EnrollmentLog.open(logDirectory)) {
+            CourseRegistry recovered = CourseRegistry.recover(4, directory.resolve("snapshot"), log);
+            assertThat(recovered.getWaitingArray(1)).withFailMessage("Запись после обрезанного хвоста потеряна").containsExactly(5, 99);
+        }
+    }
+
+    private static void fill(CourseRegistry registry) {
+        registry.createCourse(1, 3);
+        registry.createCourse(2, 3);
+        for (int studentId = 1; studentId <= 5; studentId++) {
+            registry.enroll(1, studentId);
+        }
+        registry.unenroll(1, 2);
+        registry.enroll(2, 7);
+        registry.removeCourse(2);
+    }
+
+    private static void assertRecovered(CourseRegistry registry) {
+        assertThat(registry.getEnrollmentArray(1)).withFailMessage("Неверный список записанных после восстановления").containsExactly(1, 3, 4);
+        assertThat(registry.getWaitingArray(1)).withFailMessage("Неверный список ожидания после восстановления").containsExactly(5);
+        assertThat(registry.containsCourse(2)).withFailMessage("Удалённый курс восстановлен").isEqualTo(false);
+        assertThat(registry.getEnrolledCourses(4)).withFailMessage("Обратный индекс не восстановлен").containsExactly(1);
+    }
+}
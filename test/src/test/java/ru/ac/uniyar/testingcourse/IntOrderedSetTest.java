@@ -0,0 +1,221 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты упорядоченного множества примитивных идентификаторов.
+ */
+public class IntOrderedSetTest {
+
+    /**
+     * Сравнение со стандартным {@link LinkedHashSet} на случайной последовательности операций
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {1, 42, 2021})
+    void randomOperationsMatchLinkedHashSet(long seed) {
+        randomOperations(seed, new IntOrderedSet());
+    }
+
+    /**
+     * То же сравнение для множества с индексом порядка
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {7, 99, 12345})
+    void rankedRandomOperationsMatchLinkedHashSet(long seed) {
+        randomOperations(seed, new IntOrderedSet(true));
+    }
+
+    private static void randomOperations(long seed, IntOrderedSet set) {
+        Random random = new Random(seed);
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        for (int step = 0; step < 20000; step++) {
+            int value = random.nextInt(500) - 250;
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                assertThat(set.add(value)).withFailMessage("Результат добавления отличается от эталонного").isEqualTo(expected.add(value));
+            } else if (operation < 8) {
+                assertThat(set.remove(value)).withFailMessage("Результат удаления отличается от эталонного").isEqualTo(expected.remove(value));
+            } else if (!expected.isEmpty()) {
+                int first = expected.iterator().next();
+                expected.remove(first);
+                assertThat(set.removeFirst()).withFailMessage("Извлечён не первый элемент").isEqualTo(first);
+            }
+            assertThat(set.size()).withFailMessage("Размер множества отличается от эталонного").isEqualTo(expected.size());
+        }
+        List<Integer> order = new ArrayList<>(expected);
+        assertThat(set.asList()).withFailMessage("Порядок элементов отличается от эталонного").containsExactlyElementsOf(order);
+        for (int i = 0; i < order.size(); i++) {
+            assertThat(set.get(i)).withFailMessage("Неверный элемент по индексу " + i).isEqualTo(order.get(i));
+            assertThat(set.indexOf(order.get(i))).withFailMessage("Неверный индекс элемента " + order.get(i)).isEqualTo(i);
+        }
+        int[] expectedArray = order.stream().mapToInt(Integer::intValue).toArray();
+        int[] copy = new int[expectedArray.length + 2];
+        assertThat(set.copyTo(copy, 2)).withFailMessage("Неверное количество скопированных элементов").isEqualTo(expectedArray.length);
+        assertThat(Arrays.copyOfRange(copy, 2, copy.length)).withFailMessage("Неверная копия элементов").containsExactly(expectedArray);
+        List<Integer> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertThat(visited).withFailMessage("Неверный порядок обхода").containsExactlyElementsOf(order);
+        assertThat(StreamSupport.intStream(set.spliterator(), true).toArray())
+                .withFailMessage("Параллельный поток отличается от эталона").containsExactly(expectedArray);
+    }
+
+    /**
+     * Снимки не меняются при последующих изменениях множества
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {3, 77, 4096})
+    void snapshotsAreIsolatedFromChanges(long seed) {
+        Random random = new Random(seed);
+        IntOrderedSet set = new IntOrderedSet(true);
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        List<IntOrderedSet> snapshots = new ArrayList<>();
+        List<List<Integer>> states = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int value = random.nextInt(200);
+            if (random.nextInt(3) < 2) {
+                set.add(value);
+                expected.add(value);
+            } else {
+                set.remove(value);
+                expected.remove(value);
+            }
+            if (step % 50 == 0) {
+                snapshots.add(set.snapshot());
+                states.add(new ArrayList<>(expected));
+            }
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            IntOrderedSet snapshot = snapshots.get(i);
+            List<Integer> state = states.get(i);
+            assertThat(snapshot.asList()).withFailMessage("Снимок " + i + " изменился").containsExactlyElementsOf(state);
+            for (int value = 0; value < 200; value++) {
+                assertThat(snapshot.contains(value)).withFailMessage("Неверная принадлежность в снимке " + i).isEqualTo(state.contains(value));
+            }
+        }
+        assertThat(set.asList()).withFailMessage("Множество расходится с эталоном").containsExactlyElementsOf(expected);
+        assertThatThrownBy(() -> snapshots.get(0).add(1000)).withFailMessage("Снимок нельзя изменять").isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * Добавление в начало и удаление с конца сравниваются со списком
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {5, 31, 777})
+    void frontInsertionAndTailRemovalMatchList(long seed) {
+        Random random = new Random(seed);
+        IntOrderedSet set = new IntOrderedSet(true);
+        List<Integer> expected = new ArrayList<>();
+        IntOrderedSet snapshot = set.snapshot();
+        List<Integer> snapshotState = new ArrayList<>();
+        for (int step = 0; step < 20000; step++) {
+            int value = random.nextInt(400);
+            int operation = random.nextInt(10);
+            if (operation < 3) {
+                assertThat(set.add(value)).withFailMessage("Результат добавления отличается от эталонного").isEqualTo(!expected.contains(value));
+                if (!expected.contains(value)) {
+                    expected.add(value);
+                }
+            } else if (operation < 6) {
+                assertThat(set.addFirst(value)).withFailMessage("Результат добавления в начало отличается от эталонного").isEqualTo(!expected.contains(value));
+                if (!expected.contains(value)) {
+                    expected.add(0, value);
+                }
+            } else if (operation < 8) {
+                int count = random.nextInt(4);
+                int[] removed = set.removeLast(count);
+                assertThat(removed.length).withFailMessage("Неверное количество удалённых").isEqualTo(Math.min(count, expected.size()));
+                for (int removedValue : removed) {
+                    assertThat(removedValue).withFailMessage("Удалён не последний элемент").isEqualTo(expected.remove(expected.size() - 1));
+                }
+            } else if (operation < 9) {
+                set.remove(value);
+                expected.remove((Integer) value);
+            } else if (step % 100 == 9) {
+                snapshot = set.snapshot();
+                snapshotState = new ArrayList<>(expected);
+            }
+        }
+        assertThat(set.asList()).withFailMessage("Порядок элементов отличается от эталонного").containsExactlyElementsOf(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(set.indexOf(expected.get(i))).withFailMessage("Неверный индекс элемента").isEqualTo(i);
+        }
+        assertThat(snapshot.asList()).withFailMessage("Снимок изменился").containsExactlyElementsOf(snapshotState);
+    }
+
+    /**
+     * Деление обходчика на части с удалёнными позициями внутри
+     */
+    @Test
+    void spliteratorSplitsLargeSets() {
+        IntOrderedSet set = new IntOrderedSet();
+        for (int i = 0; i < 10000; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 10000; i += 3) {
+            set.remove(i);
+        }
+        Spliterator.OfInt spliterator = set.spliterator();
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        assertThat(prefix).withFailMessage("Большое множество должно делиться").isNotNull();
+        long[] sums = new long[2];
+        prefix.forEachRemaining((IntConsumer) value -> sums[0] += value);
+        spliterator.forEachRemaining((IntConsumer) value -> sums[1] += value);
+        long expected = StreamSupport.intStream(set.spliterator(), false).asLongStream().sum();
+        assertThat(sums[0] + sums[1]).withFailMessage("Части обходчика пересекаются или теряют элементы").isEqualTo(expected);
+        assertThat(StreamSupport.intStream(set.spliterator(), true).count()).withFailMessage("Неверное количество элементов").isEqualTo(set.size());
+    }
+
+    /**
+     * Проверка представления в виде списка
+     */
+    @Test
+    void listViewReflectsChanges() {
+        IntOrderedSet set = new IntOrderedSet();
+        List<Integer> view = set.asList();
+        set.add(0);
+        set.add(-5);
+        set.add(7);
+        set.remove(-5);
+        assertThat(view).withFailMessage("Представление не отражает изменения множества").containsExactly(0, 7);
+        assertThat(view.contains(-5)).withFailMessage("Удалённый элемент остался в представлении").isEqualTo(false);
+        assertThat(view.indexOf(7)).withFailMessage("Неверный индекс элемента").isEqualTo(1);
+    }
+
+    /**
+     * Запрос ёмкости сверх предельной отклоняется, а не приводит к переполнению
+     */
+    @Test
+    void oversizedCapacityIsRejected() {
+        IntOrderedSet set = new IntOrderedSet();
+        set.add(1);
+        assertThatThrownBy(() -> set.ensureCapacity(Integer.MAX_VALUE))
+                .withFailMessage("Слишком большая ёмкость должна отклоняться")
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> set.ensureCapacity(IntOrderedSet.MAX_CAPACITY))
+                .withFailMessage("Слишком большая ёмкость должна отклоняться")
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(set.asList()).withFailMessage("Отклонённый запрос изменил множество").containsExactly(1);
+    }
+}
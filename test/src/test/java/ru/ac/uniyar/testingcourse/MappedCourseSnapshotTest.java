@@ -0,0 +1,106 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты снимка курсов, отображённого в память.
+ */
+public class MappedCourseSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedCourseSnapshot snapshot;
+
+    @BeforeEach
+    public void init() throws IOException {
+        Map<Integer, Course> courses = new LinkedHashMap<>();
+        for (int courseId = 1; courseId <= 100; courseId++) {
+            Course course = new Course(3);
+            for (int studentId = 0; studentId < courseId % 6; studentId++) {
+                course.enroll(courseId * 100 + studentId);
+            }
+            courses.put(courseId, course);
+        }
+        Path file = directory.resolve("courses.snapshot");
+        CourseSnapshotFile.write(file, courses);
+        snapshot = MappedCourseSnapshot.open(file);
+    }
+
+    /**
+     * Чтение курсов без копирования в кучу
+     */
+    @Test
+    void coursesAreReadFromMappedFile() {
+        assertThat(snapshot.size()).withFailMessage("Неверное количество курсов").isEqualTo(100);
+        MappedCourseSnapshot.MappedCourse course = snapshot.getCourse(5);
+        assertThat(course.getEnrollmentList()).withFailMessage("Неверный список записанных").containsExactly(500, 501, 502);
+        assertThat(course.getWaitingList()).withFailMessage("Неверный список ожидания").containsExactly(503, 504);
+        assertThat(course.isFullyEnrolled()).withFailMessage("Курс должен быть заполнен").isEqualTo(true);
+        assertThat(course.isWaiting(504)).withFailMessage("Студент должен быть в списке ожидания").isEqualTo(true);
+        assertThat(course.isMapped()).withFailMessage("Чтение не должно копировать курс в кучу").isEqualTo(true);
+        assertThat(snapshot.getCourse(6).getEnrollmentList()).withFailMessage("Курс без студентов должен быть пуст").isEmpty();
+        assertThat(snapshot.getCourse(1000)).withFailMessage("Несуществующий курс найден").isNull();
+    }
+
+    /**
+     * Копирование курса в кучу при первом изменении
+     */
+    @Test
+    void firstMutationCopiesCourse() {
+        MappedCourseSnapshot.MappedCourse course = snapshot.getCourse(5);
+        course.unenroll(500);
+        assertThat(course.isMapped()).withFailMessage("Изменение должно копировать курс в кучу").isEqualTo(false);
+        assertThat(snapshot.getCourse(5).getEnrollmentList()).withFailMessage("Изменение потеряно").containsExactly(501, 502, 503);
+        assertThat(snapshot.getCourse(5).getWaitingList()).withFailMessage("Неверный список ожидания после перевода").containsExactly(504);
+        assertThat(snapshot.getCourse(4).isMapped()).withFailMessage("Изменение одного курса затронуло другой").isEqualTo(true);
+    }
+
+    /**
+     * Проверка принадлежности студента курсу, записанному не по возрастанию идентификаторов
+     */
+    @Test
+    void membershipIgnoresListOrder() throws IOException {
+        Course course = new Course(4);
+        int[] students = {907, -3, 512, 40, 1_000_000, 8, 77};
+        course.enrollAll(students);
+        Map<Integer, Course> courses = new LinkedHashMap<>();
+        courses.put(1, course);
+        Path file = directory.resolve("unordered.snapshot");
+        CourseSnapshotFile.write(file, courses);
+        MappedCourseSnapshot.MappedCourse mapped = MappedCourseSnapshot.open(file).getCourse(1);
+        for (int i = 0; i < students.length; i++) {
+            assertThat(mapped.isEnrolled(students[i])).withFailMessage("Неверная проверка записи студента " + students[i]).isEqualTo(i < 4);
+            assertThat(mapped.isWaiting(students[i])).withFailMessage("Неверная проверка ожидания студента " + students[i]).isEqualTo(i >= 4);
+        }
+        assertThat(mapped.isEnrolled(41)).withFailMessage("Найден отсутствующий студент").isEqualTo(false);
+        assertThat(mapped.getEnrollmentList()).withFailMessage("Нарушен порядок записи").containsExactly(907, -3, 512, 40);
+        assertThat(mapped.isMapped()).withFailMessage("Проверка принадлежности не должна копировать курс в кучу").isEqualTo(true);
+        mapped.unenroll(-3);
+        assertThat(mapped.isEnrolled(-3)).withFailMessage("Проверка после изменения должна учитывать его").isEqualTo(false);
+        assertThat(mapped.isEnrolled(1_000_000)).withFailMessage("Первый ожидающий должен быть переведён").isEqualTo(true);
+    }
+
+    /**
+     * Упорядоченные копии списков не мешают обычному чтению снимка
+     */
+    @Test
+    void sortedCopiesAreSkippedOnRead() throws IOException {
+        Map<Integer, Course> courses = new LinkedHashMap<>();
+        CourseSnapshotFile.read(directory.resolve("courses.snapshot"), courses::put);
+        assertThat(courses).withFailMessage("Неверное количество курсов").hasSize(100);
+        assertThat(courses.get(5).getEnrollmentList()).withFailMessage("Неверный список записанных").containsExactly(500, 501, 502);
+        assertThat(courses.get(5).getWaitingList()).withFailMessage("Неверный список ожидания").containsExactly(503, 504);
+        assertThat(courses.get(100).getEnrollmentList()).withFailMessage("Неверный список последнего курса").containsExactly(10000, 10001, 10002);
+        assertThat(courses.get(100).getWaitingList()).withFailMessage("Неверный список ожидания последнего курса").containsExactly(10003);
+    }
+}
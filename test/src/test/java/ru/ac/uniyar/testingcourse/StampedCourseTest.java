@@ -0,0 +1,129 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты курса с оптимистическим чтением.
+ */
+public class StampedCourseTest {
+
+    private static final int WRITERS = 2;
+    private static final int READERS = 6;
+
+    /**
+     * Проверка базового поведения в одном потоке
+     */
+    @Test
+    void singleThreadBehaviourMatchesCourse() {
+        StampedCourse course = new StampedCourse(2);
+        course.enroll(1);
+        course.enroll(2);
+        course.enroll(3);
+        course.enroll(4);
+        course.enroll(3);
+        assertThat(course.isFullyEnrolled()).withFailMessage("Курс должен быть заполнен").isEqualTo(true);
+        assertThat(course.isWaiting(3)).withFailMessage("Студент должен быть в списке ожидания").isEqualTo(true);
+        assertThat(course.waitingPosition(4)).withFailMessage("Неверная позиция в списке ожидания").isEqualTo(1);
+        assertThat(course.getWaitingList()).withFailMessage("Неверный список ожидания").containsExactly(3, 4);
+        course.unenroll(1);
+        assertThat(course.isEnrolled(3)).withFailMessage("Первый ожидающий не переведён в список записанных").isEqualTo(true);
+        assertThat(course.getEnrollmentArray()).withFailMessage("Неверный список записанных").containsExactly(2, 3);
+        assertThat(course.getWaitingCount()).withFailMessage("Неверная длина списка ожидания").isEqualTo(1);
+        assertThat(course.setMaxStudents(3)).withFailMessage("Ожидающий не переведён при увеличении курса").containsExactly(4);
+        assertThat(course.hasWaitingList()).withFailMessage("Список ожидания должен быть пуст").isEqualTo(false);
+        assertThat(course.getEnrolledCount()).withFailMessage("Неверное количество записанных").isEqualTo(3);
+    }
+
+    /**
+     * Оптимистические чтения во время одновременных записи и отчисления
+     * не должны видеть несогласованного состояния
+     *
+     * @param storage - способ хранения списка записавшихся
+     */
+    @ParameterizedTest
+    @EnumSource(RosterStorage.class)
+    void optimisticReadsSeeConsistentState(RosterStorage storage) throws Exception {
+        int maxStudents = 20;
+        StampedCourse course = new StampedCourse(maxStudents, storage);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writers = new ArrayList<>();
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < WRITERS; t++) {
+                long seed = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        int studentId = random.nextInt(200);
+                        if (random.nextBoolean()) {
+                            course.enroll(studentId);
+                        } else {
+                            course.unenroll(studentId);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int t = 0; t < READERS; t++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    Random random = new Random();
+                    while (writing.get()) {
+                        int studentId = random.nextInt(200);
+                        assertThat(course.getEnrolledCount()).withFailMessage("Записано больше студентов, чем возможно").isLessThanOrEqualTo(maxStudents);
+                        course.isFullyEnrolled();
+                        course.isEnrolled(studentId);
+                        course.isWaiting(studentId);
+                        course.hasWaitingList();
+                        RosterSnapshot snapshot = course.snapshot();
+                        Set<Integer> all = new HashSet<>(snapshot.getEnrollmentList());
+                        all.addAll(snapshot.getWaitingList());
+                        assertThat(all.size()).withFailMessage("Студент записан более одного раза")
+                                .isEqualTo(snapshot.getEnrolledCount() + snapshot.getWaitingCount());
+                        if (!snapshot.isFullyEnrolled()) {
+                            assertThat(snapshot.hasWaitingList()).withFailMessage("Есть свободные места, но студенты остались в списке ожидания").isEqualTo(false);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            try {
+                for (Future<?> future : writers) {
+                    future.get();
+                }
+            } finally {
+                writing.set(false);
+            }
+            for (Future<?> future : readers) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        RosterSnapshot snapshot = course.snapshot();
+        assertThat(course.getEnrolledCount()).withFailMessage("Оптимистическое чтение расходится со снимком").isEqualTo(snapshot.getEnrolledCount());
+        assertThat(course.getWaitingCount()).withFailMessage("Оптимистическое чтение расходится со снимком").isEqualTo(snapshot.getWaitingCount());
+        for (int studentId : snapshot.getEnrollmentArray()) {
+            assertThat(course.isEnrolled(studentId)).withFailMessage("Записанный студент не найден").isEqualTo(true);
+        }
+    }
+}
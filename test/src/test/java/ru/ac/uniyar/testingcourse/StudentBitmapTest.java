@@ -0,0 +1,156 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты сжатой битовой карты идентификаторов.
+ */
+public class StudentBitmapTest {
+
+    private static int randomId(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return random.nextInt(20000);
+            case 1:
+                return 70000 + random.nextInt(300);
+            default:
+                return random.nextInt();
+        }
+    }
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Сравнение со стандартным {@link TreeSet} на случайной последовательности операций
+     *
+     * @param seed - начальное значение генератора случайных чисел
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {1, 42, 2021})
+    void randomOperationsMatchTreeSet(long seed) {
+        Random random = new Random(seed);
+        StudentBitmap bitmap = new StudentBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int step = 0; step < 60000; step++) {
+            int value = randomId(random);
+            if (random.nextInt(4) < 3) {
+                assertThat(bitmap.add(value)).withFailMessage("Результат добавления отличается от эталонного").isEqualTo(expected.add(value));
+            } else {
+                assertThat(bitmap.remove(value)).withFailMessage("Результат удаления отличается от эталонного").isEqualTo(expected.remove(value));
+            }
+        }
+        for (int value = 0; value < 20000; value += 7) {
+            if (random.nextBoolean()) {
+                assertThat(bitmap.remove(value)).withFailMessage("Результат удаления отличается от эталонного").isEqualTo(expected.remove(value));
+            }
+        }
+        assertThat(bitmap.size()).withFailMessage("Размер отличается от эталонного").isEqualTo(expected.size());
+        assertThat(bitmap.toArray()).withFailMessage("Элементы отличаются от эталонных").containsExactly(toArray(expected));
+        assertThat(StreamSupport.intStream(bitmap.spliterator(), true).toArray())
+                .withFailMessage("Параллельный поток отличается от эталона").containsExactly(toArray(expected));
+        List<Integer> list = bitmap.asList();
+        for (int i = 0; i < list.size(); i += 97) {
+            int value = list.get(i);
+            assertThat(list.indexOf(value)).withFailMessage("Неверный порядковый номер элемента " + value).isEqualTo(i);
+            assertThat(expected.headSet(value).size()).withFailMessage("Неверный элемент по номеру " + i).isEqualTo(i);
+        }
+    }
+
+    /**
+     * Пересечение и объединение сравниваются с операциями над {@link TreeSet}
+     */
+    @Test
+    void andOrMatchSetOperations() {
+        Random random = new Random(7);
+        List<StudentBitmap> bitmaps = new ArrayList<>();
+        List<TreeSet<Integer>> sets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            StudentBitmap bitmap = new StudentBitmap();
+            TreeSet<Integer> set = new TreeSet<>();
+            int count = i == 0 ? 30000 : 2000 + random.nextInt(8000);
+            for (int k = 0; k < count; k++) {
+                int value = random.nextInt(40000);
+                bitmap.add(value);
+                set.add(value);
+            }
+            bitmaps.add(bitmap);
+            sets.add(set);
+        }
+        TreeSet<Integer> intersection = new TreeSet<>(sets.get(0));
+        TreeSet<Integer> union = new TreeSet<>();
+        for (TreeSet<Integer> set : sets) {
+            intersection.retainAll(set);
+            union.addAll(set);
+        }
+        TreeSet<Integer> pair = new TreeSet<>(sets.get(0));
+        pair.retainAll(sets.get(1));
+        assertThat(bitmaps.get(0).and(bitmaps.get(1)).toArray()).withFailMessage("Неверное пересечение двух множеств").containsExactly(toArray(pair));
+        assertThat(bitmaps.get(0).andCardinality(bitmaps.get(1))).withFailMessage("Неверный размер пересечения").isEqualTo(pair.size());
+        assertThat(StudentBitmap.and(bitmaps).toArray()).withFailMessage("Неверное пересечение").containsExactly(toArray(intersection));
+        StudentBitmap or = StudentBitmap.or(bitmaps);
+        assertThat(or.toArray()).withFailMessage("Неверное объединение").containsExactly(toArray(union));
+        or.add(-1);
+        int removed = sets.get(1).pollFirst();
+        bitmaps.get(1).remove(removed);
+        TreeSet<Integer> pairUnion = new TreeSet<>(sets.get(0));
+        pairUnion.addAll(sets.get(1));
+        assertThat(bitmaps.get(0).or(bitmaps.get(1)).toArray()).withFailMessage("Изменение множеств повлияло на другие множества")
+                .containsExactly(toArray(pairUnion));
+        assertThat(bitmaps.get(0).toArray()).withFailMessage("Исходное множество изменилось").containsExactly(toArray(sets.get(0)));
+    }
+
+    /**
+     * Снимок не меняется при изменениях исходного множества
+     */
+    @Test
+    void snapshotIsIsolated() {
+        StudentBitmap bitmap = new StudentBitmap();
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(i * 2);
+        }
+        StudentBitmap snapshot = bitmap.snapshot();
+        int[] before = snapshot.toArray();
+        for (int i = 0; i < 10000; i += 3) {
+            bitmap.remove(i * 2);
+            bitmap.add(i * 2 + 1);
+        }
+        bitmap.add(1 << 20);
+        assertThat(snapshot.toArray()).withFailMessage("Снимок изменился").containsExactly(before);
+        assertThat(snapshot.contains(1)).withFailMessage("В снимке появился новый элемент").isEqualTo(false);
+        assertThatThrownBy(() -> snapshot.add(5)).withFailMessage("Снимок нельзя изменять").isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * Список записанных студентов курса с битовой картой обходится и сравнивается как обычный список
+     */
+    @Test
+    void bitmapCourseListViewIterates() {
+        Course course = new Course(10, RosterStorage.BITMAP);
+        course.enroll(70000);
+        course.enroll(5);
+        course.enroll(3);
+        List<Integer> list = course.getEnrollmentList();
+        List<Integer> iterated = new ArrayList<>();
+        for (int studentId : list) {
+            iterated.add(studentId);
+        }
+        assertThat(iterated).withFailMessage("Обход списка вернул неверные элементы").isEqualTo(Arrays.asList(3, 5, 70000));
+        assertThat(list).withFailMessage("Список отличается от эталонного").isEqualTo(Arrays.asList(3, 5, 70000)).containsExactly(3, 5, 70000);
+        assertThat(list.toString()).withFailMessage("Неверное строковое представление").isEqualTo("[3, 5, 70000]");
+        assertThat(list.hashCode()).withFailMessage("Неверный хеш-код списка").isEqualTo(Arrays.asList(3, 5, 70000).hashCode());
+    }
+}
@@ -0,0 +1,109 @@
+package ru.ac.uniyar.testingcourse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты иерархического колеса таймеров.
+ */
+public class TimerWheelTest {
+
+    /**
+     * Таймеры на всех уровнях колеса и за его пределами срабатывают ровно в свой такт
+     */
+    @Test
+    void timersFireAtTheirDeadline() {
+        TimerWheel timers = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        List<long[]> fired = new ArrayList<>();
+        TimerWheel.Target target = key -> fired.add(new long[]{key, timers.getTick()});
+        long[] delays = {1, 63, 64, 65, 4095, 4096, 262_143, 262_144, 16_777_215, 16_777_216, 20_000_000};
+        for (int i = 0; i < delays.length; i++) {
+            timers.schedule(target, i, TimeUnit.MILLISECONDS.toNanos(delays[i]));
+        }
+        timers.advance(30_000_000, TimeUnit.MILLISECONDS);
+        assertThat(fired).withFailMessage("Сработали не все таймеры").hasSize(delays.length);
+        for (int i = 0; i < delays.length; i++) {
+            assertThat(fired.get(i)[0]).withFailMessage("Нарушен порядок срабатывания").isEqualTo(i);
+            assertThat(fired.get(i)[1]).withFailMessage("Таймер сработал не в свой такт").isEqualTo(delays[i]);
+        }
+        assertThat(timers.size()).withFailMessage("Колесо должно опустеть").isEqualTo(0);
+    }
+
+    /**
+     * Отменённые таймеры не срабатывают, а номера освобождённых таймеров используются повторно
+     */
+    @Test
+    void cancelledTimersDoNotFire() {
+        TimerWheel timers = new TimerWheel(10, TimeUnit.MILLISECONDS);
+        Random random = new Random(7);
+        boolean[] cancelled = new boolean[10_000];
+        int[] handles = new int[cancelled.length];
+        int[] firedCount = new int[cancelled.length];
+        TimerWheel.Target target = key -> firedCount[key]++;
+        for (int key = 0; key < cancelled.length; key++) {
+            handles[key] = timers.schedule(target, key, TimeUnit.SECONDS.toNanos(1 + random.nextInt(3600)));
+        }
+        for (int key = 0; key < cancelled.length; key += 3) {
+            timers.cancel(handles[key]);
+            cancelled[key] = true;
+        }
+        timers.advance(30, TimeUnit.MINUTES);
+        int replacement = timers.schedule(target, 0, TimeUnit.HOURS.toNanos(2));
+        assertThat(replacement).withFailMessage("Номер освобождённого таймера должен использоваться повторно").isLessThan(cancelled.length);
+        timers.cancel(replacement);
+        timers.advance(30, TimeUnit.MINUTES);
+        for (int key = 0; key < cancelled.length; key++) {
+            assertThat(firedCount[key]).withFailMessage("Неверное число срабатываний таймера " + key).isEqualTo(cancelled[key] ? 0 : 1);
+        }
+    }
+
+    /**
+     * Время меньше такта накапливается, а обработчик может ставить новые таймеры
+     */
+    @Test
+    void partialTicksAccumulate() {
+        TimerWheel timers = new TimerWheel(1, TimeUnit.SECONDS);
+        int[] fired = new int[1];
+        TimerWheel.Target[] target = new TimerWheel.Target[1];
+        target[0] = key -> {
+            fired[0]++;
+            if (key > 0) {
+                timers.schedule(target[0], key - 1, 0);
+            }
+        };
+        timers.schedule(target[0], 2, TimeUnit.MILLISECONDS.toNanos(1500));
+        assertThat(timers.advance(1900, TimeUnit.MILLISECONDS)).withFailMessage("Срок ещё не наступил").isEqualTo(0);
+        assertThat(timers.advance(100, TimeUnit.MILLISECONDS)).withFailMessage("Срок должен наступить на втором такте").isEqualTo(1);
+        timers.advance(2, TimeUnit.SECONDS);
+        assertThat(fired[0]).withFailMessage("Таймеры, поставленные обработчиком, должны сработать").isEqualTo(3);
+        assertThat(timers.getTick()).withFailMessage("Неверное число тактов").isEqualTo(4);
+    }
+
+    /**
+     * Очень большие сроки не переполняются и не срабатывают раньше времени
+     */
+    @Test
+    void hugeDelaysSaturate() {
+        TimerWheel timers = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        int[] fired = new int[1];
+        timers.schedule(key -> fired[0]++, 1, Long.MAX_VALUE);
+        timers.schedule(key -> fired[0]++, 2, Long.MAX_VALUE - 1);
+        timers.advance(1, TimeUnit.HOURS);
+        assertThat(fired[0]).withFailMessage("Таймер с огромным сроком сработал").isEqualTo(0);
+        assertThat(timers.size()).withFailMessage("Таймеры с огромным сроком потеряны").isEqualTo(2);
+
+        Course course = new Course(1);
+        course.setTimerWheel(timers);
+        course.setWaitingTtl(Long.MAX_VALUE, TimeUnit.DAYS);
+        course.enroll(1);
+        course.enroll(2);
+        timers.advance(1, TimeUnit.SECONDS);
+        assertThat(course.isWaiting(2)).withFailMessage("Студент удалён из списка ожидания до истечения срока").isEqualTo(true);
+    }
+}